@@ -0,0 +1,51 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Forwards the notifications produced by {@link ChangeSetDispatcher} to a {@link RecyclerView.Adapter}.
+ */
+final class AdapterNotificationTarget implements ChangeSetDispatcher.Target {
+
+    private final RecyclerView.Adapter<?> adapter;
+
+    AdapterNotificationTarget(RecyclerView.Adapter<?> adapter) {
+        this.adapter = adapter;
+    }
+
+    @Override
+    public void notifyDataSetChanged() {
+        adapter.notifyDataSetChanged();
+    }
+
+    @Override
+    public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        adapter.notifyItemRangeRemoved(positionStart, itemCount);
+    }
+
+    @Override
+    public void notifyItemRangeInserted(int positionStart, int itemCount) {
+        adapter.notifyItemRangeInserted(positionStart, itemCount);
+    }
+
+    @Override
+    public void notifyItemRangeChanged(int positionStart, int itemCount) {
+        adapter.notifyItemRangeChanged(positionStart, itemCount);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Sum, minimum and maximum of one numeric value per position of a collection, updated from change sets.
+ * <p>
+ * The value of every position is cached in an array patched with {@link ChangeSetPatcher}, so a change set only
+ * costs reading the values of inserted and modified positions. The sum is updated with the difference of the changed
+ * values, using compensated summation to keep rounding errors from accumulating. The minimum and maximum are
+ * maintained as long as the changes cannot affect them, and otherwise recomputed from the cached values when next
+ * requested.
+ */
+final class AggregateColumn {
+
+    /**
+     * Reads the value at a position of the collection after the change.
+     */
+    interface Reader {
+        double read(int position);
+    }
+
+    private static final double[] NO_VALUES = new double[0];
+
+    private double[] values = NO_VALUES;
+    private double[] spareValues = NO_VALUES;
+    private int size;
+    private double sum;
+    // Compensation of the rounding errors of sum.
+    private double compensation;
+    private double min;
+    private double max;
+    private boolean minValid;
+    private boolean maxValid;
+
+    /**
+     * Reads all values of a collection of the given size.
+     */
+    void reset(int size, @NonNull Reader reader) {
+        if (values.length < size) {
+            values = new double[ChangeSetPatcher.capacityFor(size)];
+        }
+        this.size = size;
+        sum = 0;
+        compensation = 0;
+        for (int i = 0; i < size; i++) {
+            double value = reader.read(i);
+            values[i] = value;
+            add(value);
+        }
+        minValid = false;
+        maxValid = false;
+    }
+
+    /**
+     * Applies an {@link OrderedCollectionChangeSet.State#UPDATE} change set.
+     */
+    void apply(@NonNull OrderedCollectionChangeSet changeSet, @NonNull Reader reader) {
+        for (OrderedCollectionChangeSet.Range range : changeSet.getDeletionRanges()) {
+            for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                add(-values[i]);
+                removed(values[i]);
+            }
+        }
+        int newSize = ChangeSetPatcher.newSize(size, changeSet);
+        double[] newValues = spareValues.length >= newSize
+                ? spareValues : new double[ChangeSetPatcher.capacityFor(newSize)];
+        ChangeSetPatcher.patch(values, size, newValues, changeSet);
+        for (OrderedCollectionChangeSet.Range range : changeSet.getInsertionRanges()) {
+            for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                double value = reader.read(i);
+                newValues[i] = value;
+                add(value);
+                added(value);
+            }
+        }
+        // Positions of modifications are those after the change, where the patched array still holds the old value.
+        for (OrderedCollectionChangeSet.Range range : changeSet.getChangeRanges()) {
+            for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                double oldValue = newValues[i];
+                double value = reader.read(i);
+                newValues[i] = value;
+                add(value - oldValue);
+                removed(oldValue);
+                added(value);
+            }
+        }
+        spareValues = values;
+        values = newValues;
+        size = newSize;
+    }
+
+    int size() {
+        return size;
+    }
+
+    double getSum() {
+        return sum + compensation;
+    }
+
+    /**
+     * Returns the minimum, or {@link Double#NaN} if the collection is empty.
+     */
+    double getMin() {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (!minValid) {
+            min = values[0];
+            for (int i = 1; i < size; i++) {
+                min = Math.min(min, values[i]);
+            }
+            minValid = true;
+        }
+        return min;
+    }
+
+    /**
+     * Returns the maximum, or {@link Double#NaN} if the collection is empty.
+     */
+    double getMax() {
+        if (size == 0) {
+            return Double.NaN;
+        }
+        if (!maxValid) {
+            max = values[0];
+            for (int i = 1; i < size; i++) {
+                max = Math.max(max, values[i]);
+            }
+            maxValid = true;
+        }
+        return max;
+    }
+
+    /**
+     * Returns the average, or {@link Double#NaN} if the collection is empty.
+     */
+    double getAverage() {
+        return size == 0 ? Double.NaN : getSum() / size;
+    }
+
+    // Neumaier's variant of Kahan summation.
+    private void add(double value) {
+        double total = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensation += (sum - total) + value;
+        } else {
+            compensation += (value - total) + sum;
+        }
+        sum = total;
+    }
+
+    private void removed(double value) {
+        if (minValid && value <= min) {
+            minValid = false;
+        }
+        if (maxValid && value >= max) {
+            maxValid = false;
+        }
+    }
+
+    private void added(double value) {
+        if (minValid && value < min) {
+            min = value;
+        }
+        if (maxValid && value > max) {
+            max = value;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Merges a sequence of {@link OrderedCollectionChangeSet}s into a single change set describing the difference
+ * between the first and the last state of the collection.
+ * <p>
+ * Realm change sets never contain moves, so every row surviving from the first state keeps its relative order. This
+ * allows the merged state to be kept as a list of segments, each either a run of surviving rows (possibly modified)
+ * or a run of inserted rows. Merging costs time proportional to the number of ranges and segments, not to the size
+ * of the collection.
+ */
+final class ChangeSetAccumulator {
+
+    private static final int KEPT = 0;
+    private static final int CHANGED = 1;
+    private static final int INSERTED = 2;
+
+    private static final class Segment {
+        final int kind;
+        // Position in the original collection, only meaningful for KEPT and CHANGED.
+        final int origin;
+        final int length;
+
+        Segment(int kind, int origin, int length) {
+            this.kind = kind;
+            this.origin = origin;
+            this.length = length;
+        }
+    }
+
+    private List<Segment> segments = new ArrayList<>();
+    private int originalSize;
+    private int pendingCount;
+    private boolean fullReload;
+
+    /**
+     * Creates an accumulator for a collection currently holding {@code size} elements.
+     */
+    ChangeSetAccumulator(int size) {
+        reset(size);
+    }
+
+    /**
+     * Drops all pending changes and restarts from a collection of the given size.
+     */
+    void reset(int size) {
+        segments.clear();
+        if (size > 0) {
+            segments.add(new Segment(KEPT, 0, size));
+        }
+        originalSize = size;
+        pendingCount = 0;
+        fullReload = false;
+    }
+
+    /**
+     * Returns {@code true} if at least one change set has been added since the last reset.
+     */
+    boolean hasPendingChanges() {
+        return pendingCount > 0;
+    }
+
+    /**
+     * Returns the number of change sets added since the last reset.
+     */
+    int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Returns the size of the collection after all added change sets have been applied.
+     */
+    int getCurrentSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.length;
+        }
+        return size;
+    }
+
+    /**
+     * Applies a change set on top of the already accumulated ones.
+     */
+    void add(@NonNull OrderedCollectionChangeSet changeSet) {
+        pendingCount++;
+        if (fullReload) {
+            return;
+        }
+        if (changeSet.getState() != OrderedCollectionChangeSet.State.UPDATE) {
+            fullReload = true;
+            return;
+        }
+        List<Segment> result = removeRanges(segments, changeSet.getDeletionRanges());
+        result = insertRanges(result, changeSet.getInsertionRanges());
+        segments = markChanged(result, changeSet.getChangeRanges());
+    }
+
+    /**
+     * Returns the merged change set. If one of the added change sets could not be merged, e.g. because it was an
+     * {@link OrderedCollectionChangeSet.State#INITIAL} or {@link OrderedCollectionChangeSet.State#ERROR} change
+     * set, an {@link OrderedCollectionChangeSet.State#INITIAL} change set is returned, signalling a full reload.
+     */
+    DecodedChangeSet merge() {
+        if (fullReload) {
+            return DecodedChangeSet.initial();
+        }
+        List<OrderedCollectionChangeSet.Range> deletions = new ArrayList<>();
+        RangeBuilder insertions = new RangeBuilder();
+        RangeBuilder changes = new RangeBuilder();
+
+        int nextOrigin = 0;
+        int position = 0;
+        for (Segment segment : segments) {
+            if (segment.kind == INSERTED) {
+                insertions.add(position, segment.length);
+            } else {
+                if (segment.origin > nextOrigin) {
+                    deletions.add(new OrderedCollectionChangeSet.Range(nextOrigin, segment.origin - nextOrigin));
+                }
+                nextOrigin = segment.origin + segment.length;
+                if (segment.kind == CHANGED) {
+                    changes.add(position, segment.length);
+                }
+            }
+            position += segment.length;
+        }
+        if (originalSize > nextOrigin) {
+            deletions.add(new OrderedCollectionChangeSet.Range(nextOrigin, originalSize - nextOrigin));
+        }
+        return new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE,
+                deletions.toArray(new OrderedCollectionChangeSet.Range[0]),
+                insertions.build(),
+                changes.build(),
+                null,
+                true);
+    }
+
+    // Ranges are given in positions before the change and sorted ascending.
+    private static List<Segment> removeRanges(List<Segment> segments, OrderedCollectionChangeSet.Range[] ranges) {
+        if (ranges.length == 0) {
+            return segments;
+        }
+        List<Segment> result = new ArrayList<>(segments.size() + ranges.length);
+        int rangeIndex = 0;
+        int position = 0;
+        for (Segment segment : segments) {
+            int offset = 0;
+            while (offset < segment.length) {
+                int absolute = position + offset;
+                // Skip deletion ranges ending before the current position.
+                while (rangeIndex < ranges.length
+                        && ranges[rangeIndex].startIndex + ranges[rangeIndex].length <= absolute) {
+                    rangeIndex++;
+                }
+                if (rangeIndex == ranges.length || ranges[rangeIndex].startIndex >= position + segment.length) {
+                    // Nothing more to delete in this segment.
+                    add(result, slice(segment, offset, segment.length - offset));
+                    break;
+                }
+                OrderedCollectionChangeSet.Range range = ranges[rangeIndex];
+                if (range.startIndex > absolute) {
+                    add(result, slice(segment, offset, range.startIndex - absolute));
+                    offset += range.startIndex - absolute;
+                } else {
+                    int end = Math.min(range.startIndex + range.length, position + segment.length);
+                    offset += end - absolute;
+                }
+            }
+            position += segment.length;
+        }
+        return result;
+    }
+
+    // Ranges are given in positions after the change and sorted ascending.
+    private static List<Segment> insertRanges(List<Segment> segments, OrderedCollectionChangeSet.Range[] ranges) {
+        if (ranges.length == 0) {
+            return segments;
+        }
+        List<Segment> result = new ArrayList<>(segments.size() + ranges.length * 2);
+        int rangeIndex = 0;
+        // Position in the resulting list.
+        int position = 0;
+        for (Segment segment : segments) {
+            int offset = 0;
+            while (offset < segment.length) {
+                if (rangeIndex < ranges.length && ranges[rangeIndex].startIndex <= position) {
+                    OrderedCollectionChangeSet.Range range = ranges[rangeIndex++];
+                    add(result, new Segment(INSERTED, 0, range.length));
+                    position += range.length;
+                    continue;
+                }
+                int length = segment.length - offset;
+                if (rangeIndex < ranges.length) {
+                    length = Math.min(length, ranges[rangeIndex].startIndex - position);
+                }
+                add(result, slice(segment, offset, length));
+                offset += length;
+                position += length;
+            }
+        }
+        while (rangeIndex < ranges.length) {
+            add(result, new Segment(INSERTED, 0, ranges[rangeIndex++].length));
+        }
+        return result;
+    }
+
+    // Ranges are given in positions after the change and sorted ascending.
+    private static List<Segment> markChanged(List<Segment> segments, OrderedCollectionChangeSet.Range[] ranges) {
+        if (ranges.length == 0) {
+            return segments;
+        }
+        List<Segment> result = new ArrayList<>(segments.size() + ranges.length * 2);
+        int rangeIndex = 0;
+        int position = 0;
+        for (Segment segment : segments) {
+            if (segment.kind != KEPT) {
+                // Inserted rows are rebound anyway and changed rows are already marked.
+                add(result, segment);
+                position += segment.length;
+                continue;
+            }
+            int offset = 0;
+            while (offset < segment.length) {
+                int absolute = position + offset;
+                while (rangeIndex < ranges.length
+                        && ranges[rangeIndex].startIndex + ranges[rangeIndex].length <= absolute) {
+                    rangeIndex++;
+                }
+                if (rangeIndex == ranges.length || ranges[rangeIndex].startIndex >= position + segment.length) {
+                    add(result, slice(segment, offset, segment.length - offset));
+                    break;
+                }
+                OrderedCollectionChangeSet.Range range = ranges[rangeIndex];
+                if (range.startIndex > absolute) {
+                    add(result, slice(segment, offset, range.startIndex - absolute));
+                    offset += range.startIndex - absolute;
+                } else {
+                    int end = Math.min(range.startIndex + range.length, position + segment.length);
+                    add(result, new Segment(CHANGED, segment.origin + offset, end - absolute));
+                    offset += end - absolute;
+                }
+            }
+            position += segment.length;
+        }
+        return result;
+    }
+
+    private static Segment slice(Segment segment, int offset, int length) {
+        if (offset == 0 && length == segment.length) {
+            return segment;
+        }
+        return new Segment(segment.kind, segment.kind == INSERTED ? 0 : segment.origin + offset, length);
+    }
+
+    // Adds a segment, merging it with the previous one when they are contiguous.
+    private static void add(List<Segment> result, Segment segment) {
+        if (segment.length == 0) {
+            return;
+        }
+        int last = result.size() - 1;
+        if (last >= 0) {
+            Segment previous = result.get(last);
+            if (previous.kind == segment.kind
+                    && (segment.kind == INSERTED || previous.origin + previous.length == segment.origin)) {
+                result.set(last, new Segment(segment.kind, previous.origin, previous.length + segment.length));
+                return;
+            }
+        }
+        result.add(segment);
+    }
+}
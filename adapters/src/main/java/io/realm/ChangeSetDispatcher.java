@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Translates an {@link OrderedCollectionChangeSet} into the fine grained notifications understood by list adapters.
+ * <p>
+ * The mapping is shared between all adapters and only uses plain Java types, so it can also be exercised outside a
+ * device, e.g. by the JVM benchmarks.
+ */
+final class ChangeSetDispatcher {
+
+    /**
+     * Receiver of the notifications. The method names mirror those of {@code RecyclerView.Adapter}.
+     */
+    interface Target {
+        void notifyDataSetChanged();
+
+        void notifyItemRangeRemoved(int positionStart, int itemCount);
+
+        void notifyItemRangeInserted(int positionStart, int itemCount);
+
+        void notifyItemRangeChanged(int positionStart, int itemCount);
+    }
+
+    private ChangeSetDispatcher() {
+    }
+
+    /**
+     * Notifies the target about all changes described by the change set.
+     *
+     * @param changeSet the change set to dispatch.
+     * @param offset the number of elements in front of the collection elements, see
+     *               {@link RealmRecyclerViewAdapter#dataOffset()}.
+     * @param updateOnModification whether modifications should be dispatched as well.
+     * @param target the receiver of the notifications.
+     */
+    static void dispatch(@NonNull OrderedCollectionChangeSet changeSet, int offset, boolean updateOnModification,
+                         @NonNull Target target) {
+        if (changeSet.getState() == OrderedCollectionChangeSet.State.INITIAL) {
+            target.notifyDataSetChanged();
+            return;
+        }
+        // For deletions, the adapter has to be notified in reverse order.
+        OrderedCollectionChangeSet.Range[] deletions = changeSet.getDeletionRanges();
+        for (int i = deletions.length - 1; i >= 0; i--) {
+            OrderedCollectionChangeSet.Range range = deletions[i];
+            target.notifyItemRangeRemoved(range.startIndex + offset, range.length);
+        }
+
+        OrderedCollectionChangeSet.Range[] insertions = changeSet.getInsertionRanges();
+        for (OrderedCollectionChangeSet.Range range : insertions) {
+            target.notifyItemRangeInserted(range.startIndex + offset, range.length);
+        }
+
+        if (!updateOnModification) {
+            return;
+        }
+
+        OrderedCollectionChangeSet.Range[] modifications = changeSet.getChangeRanges();
+        for (OrderedCollectionChangeSet.Range range : modifications) {
+            target.notifyItemRangeChanged(range.startIndex + offset, range.length);
+        }
+    }
+
+    /**
+     * Returns the number of range notifications {@link #dispatch(OrderedCollectionChangeSet, int, boolean, Target)}
+     * sends for an {@link OrderedCollectionChangeSet.State#UPDATE} change set.
+     */
+    static int countRanges(@NonNull OrderedCollectionChangeSet changeSet, boolean updateOnModification) {
+        int count = changeSet.getDeletionRanges().length + changeSet.getInsertionRanges().length;
+        return updateOnModification ? count + changeSet.getChangeRanges().length : count;
+    }
+
+    /**
+     * Returns the number of items covered by the range notifications
+     * {@link #dispatch(OrderedCollectionChangeSet, int, boolean, Target)} sends for an
+     * {@link OrderedCollectionChangeSet.State#UPDATE} change set.
+     */
+    static int countItems(@NonNull OrderedCollectionChangeSet changeSet, boolean updateOnModification) {
+        int count = countItems(changeSet.getDeletionRanges()) + countItems(changeSet.getInsertionRanges());
+        return updateOnModification ? count + countItems(changeSet.getChangeRanges()) : count;
+    }
+
+    static int countItems(OrderedCollectionChangeSet.Range[] ranges) {
+        int count = 0;
+        for (OrderedCollectionChangeSet.Range range : ranges) {
+            count += range.length;
+        }
+        return count;
+    }
+}
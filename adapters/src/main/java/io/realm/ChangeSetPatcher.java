@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Keeps arrays aligned with the positions of a collection in sync with its {@link OrderedCollectionChangeSet}s.
+ * <p>
+ * Surviving elements are moved in runs using {@link System#arraycopy(Object, int, Object, int, int)}, so patching
+ * costs one pass over the array plus one copy per range, independently of the element type.
+ */
+final class ChangeSetPatcher {
+
+    private ChangeSetPatcher() {
+    }
+
+    /**
+     * Returns the size of the collection after the change set has been applied to a collection of {@code oldSize}
+     * elements.
+     */
+    static int newSize(int oldSize, @NonNull OrderedCollectionChangeSet changeSet) {
+        int size = oldSize;
+        for (OrderedCollectionChangeSet.Range range : changeSet.getDeletionRanges()) {
+            size -= range.length;
+        }
+        for (OrderedCollectionChangeSet.Range range : changeSet.getInsertionRanges()) {
+            size += range.length;
+        }
+        return size;
+    }
+
+    /**
+     * Copies the elements of {@code src} that survive the change set to their new positions in {@code dst}.
+     * Positions of inserted elements are left untouched in {@code dst} and must be filled by the caller.
+     *
+     * @param src array aligned with the positions before the change. Must not be {@code dst}.
+     * @param oldSize number of valid elements in {@code src}.
+     * @param dst array of the same type as {@code src}, large enough to hold {@link #newSize(int,
+     *            OrderedCollectionChangeSet)} elements.
+     * @param changeSet the change to apply.
+     */
+    static void patch(@NonNull Object src, int oldSize, @NonNull Object dst,
+                      @NonNull OrderedCollectionChangeSet changeSet) {
+        OrderedCollectionChangeSet.Range[] deletions = changeSet.getDeletionRanges();
+        OrderedCollectionChangeSet.Range[] insertions = changeSet.getInsertionRanges();
+        int oldPosition = 0;
+        int newPosition = 0;
+        int deletion = 0;
+        int insertion = 0;
+        while (oldPosition < oldSize) {
+            if (deletion < deletions.length && deletions[deletion].startIndex == oldPosition) {
+                oldPosition += deletions[deletion++].length;
+                continue;
+            }
+            if (insertion < insertions.length && insertions[insertion].startIndex == newPosition) {
+                newPosition += insertions[insertion++].length;
+                continue;
+            }
+            int run = oldSize - oldPosition;
+            if (deletion < deletions.length) {
+                run = Math.min(run, deletions[deletion].startIndex - oldPosition);
+            }
+            if (insertion < insertions.length) {
+                run = Math.min(run, insertions[insertion].startIndex - newPosition);
+            }
+            System.arraycopy(src, oldPosition, dst, newPosition, run);
+            oldPosition += run;
+            newPosition += run;
+        }
+    }
+
+    /**
+     * Returns the first position, in the new collection, whose element differs from or has moved compared to the
+     * old collection. Elements in front of it keep their position and content. Returns {@code newSize} if no element
+     * is affected.
+     */
+    static int firstAffectedPosition(@NonNull OrderedCollectionChangeSet changeSet, int newSize) {
+        int first = newSize;
+        OrderedCollectionChangeSet.Range[] deletions = changeSet.getDeletionRanges();
+        if (deletions.length > 0) {
+            first = Math.min(first, deletions[0].startIndex);
+        }
+        OrderedCollectionChangeSet.Range[] insertions = changeSet.getInsertionRanges();
+        if (insertions.length > 0) {
+            first = Math.min(first, insertions[0].startIndex);
+        }
+        OrderedCollectionChangeSet.Range[] changes = changeSet.getChangeRanges();
+        if (changes.length > 0) {
+            first = Math.min(first, changes[0].startIndex);
+        }
+        return first;
+    }
+
+    /**
+     * Returns the first position, in the new collection, whose element is not at the same position as before the
+     * change. Unlike {@link #firstAffectedPosition(OrderedCollectionChangeSet, int)} modifications are ignored.
+     * Returns {@code newSize} if no element has moved.
+     */
+    static int firstShiftedPosition(@NonNull OrderedCollectionChangeSet changeSet, int newSize) {
+        int first = newSize;
+        OrderedCollectionChangeSet.Range[] deletions = changeSet.getDeletionRanges();
+        if (deletions.length > 0) {
+            first = Math.min(first, deletions[0].startIndex);
+        }
+        OrderedCollectionChangeSet.Range[] insertions = changeSet.getInsertionRanges();
+        if (insertions.length > 0) {
+            first = Math.min(first, insertions[0].startIndex);
+        }
+        return first;
+    }
+
+    /**
+     * Returns the capacity to allocate for an array that has to hold {@code size} elements, leaving some room for
+     * growth.
+     */
+    static int capacityFor(int size) {
+        return size + (size >> 2) + 8;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Reads the change sets written by {@link ChangeSetTraceWriter}.
+ */
+final class ChangeSetTraceReader implements Closeable {
+
+    /**
+     * A change set read from a trace.
+     */
+    static final class Record {
+        final long delayNanos;
+        final int size;
+        final DecodedChangeSet changeSet;
+
+        Record(long delayNanos, int size, DecodedChangeSet changeSet) {
+            this.delayNanos = delayNanos;
+            this.size = size;
+            this.changeSet = changeSet;
+        }
+    }
+
+    private static final OrderedCollectionChangeSet.State[] STATES = OrderedCollectionChangeSet.State.values();
+
+    private final InputStream in;
+
+    /**
+     * @throws IOException if the stream does not start with a supported trace header.
+     */
+    ChangeSetTraceReader(@NonNull InputStream in) throws IOException {
+        this.in = new BufferedInputStream(in);
+        int magic = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+        if (magic != ChangeSetTraceWriter.MAGIC) {
+            throw new IOException("Not a change set trace.");
+        }
+        int version = readByte();
+        if (version != ChangeSetTraceWriter.VERSION) {
+            throw new IOException("Unsupported change set trace version: " + version);
+        }
+    }
+
+    /**
+     * Returns the next change set of the trace, or {@code null} at the end of the trace.
+     *
+     * @throws IOException if the trace cannot be read or is corrupt.
+     */
+    @Nullable
+    Record read() throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        long delayNanos = readVarLong(first);
+        int flags = readByte();
+        int state = flags & ChangeSetTraceWriter.FLAG_STATE_MASK;
+        if (state >= STATES.length) {
+            throw new IOException("Corrupt change set trace, unknown state: " + state);
+        }
+        int size = readVarInt();
+        OrderedCollectionChangeSet.Range[] deletions = readRanges();
+        OrderedCollectionChangeSet.Range[] insertions = readRanges();
+        OrderedCollectionChangeSet.Range[] changes = readRanges();
+        DecodedChangeSet changeSet = new DecodedChangeSet(STATES[state], deletions, insertions, changes, null,
+                (flags & ChangeSetTraceWriter.FLAG_COMPLETE_RESULT) != 0);
+        return new Record(delayNanos, size, changeSet);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private OrderedCollectionChangeSet.Range[] readRanges() throws IOException {
+        OrderedCollectionChangeSet.Range[] ranges = new OrderedCollectionChangeSet.Range[readVarInt()];
+        int end = 0;
+        for (int i = 0; i < ranges.length; i++) {
+            int start = end + readVarInt();
+            int length = readVarInt();
+            ranges[i] = new OrderedCollectionChangeSet.Range(start, length);
+            end = start + length;
+        }
+        return ranges;
+    }
+
+    private int readVarInt() throws IOException {
+        long value = readVarLong(readByte());
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt change set trace, value out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private long readVarLong(int first) throws IOException {
+        long value = first & 0x7F;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            if (shift > 63) {
+                throw new IOException("Corrupt change set trace, malformed number.");
+            }
+            b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        }
+        return value;
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            throw new EOFException("Truncated change set trace.");
+        }
+        return b;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Writes change sets to a compact binary trace, read back by {@link ChangeSetTraceReader}.
+ * <p>
+ * A trace starts with {@link #MAGIC} and {@link #VERSION}, followed by one record per change set:
+ * <ul>
+ * <li>the time elapsed since the previous record, in nanoseconds,</li>
+ * <li>a flags byte holding the ordinal of the {@link OrderedCollectionChangeSet.State} and
+ * {@link #FLAG_COMPLETE_RESULT},</li>
+ * <li>the size of the collection after the change,</li>
+ * <li>the deletion, insertion and change ranges, each as a count followed by the distance of every range from the end
+ * of the previous one and its length.</li>
+ * </ul>
+ * All numbers are unsigned variable length integers using 7 bits per byte, so small ranges take two bytes.
+ */
+final class ChangeSetTraceWriter implements Closeable {
+
+    static final int MAGIC = 0x52435354;
+    static final int VERSION = 1;
+    static final int FLAG_STATE_MASK = 0x03;
+    static final int FLAG_COMPLETE_RESULT = 0x04;
+
+    private final OutputStream out;
+
+    ChangeSetTraceWriter(@NonNull OutputStream out) throws IOException {
+        this.out = new BufferedOutputStream(out);
+        writeInt(MAGIC);
+        this.out.write(VERSION);
+    }
+
+    /**
+     * Appends a change set to the trace.
+     *
+     * @param delayNanos the time elapsed since the previous change set.
+     * @param size the size of the collection after the change.
+     * @param changeSet the change set.
+     */
+    void write(long delayNanos, int size, @NonNull OrderedCollectionChangeSet changeSet) throws IOException {
+        writeVarLong(Math.max(0, delayNanos));
+        int flags = changeSet.getState().ordinal();
+        if (changeSet.isCompleteResult()) {
+            flags |= FLAG_COMPLETE_RESULT;
+        }
+        out.write(flags);
+        writeVarLong(size);
+        writeRanges(changeSet.getDeletionRanges());
+        writeRanges(changeSet.getInsertionRanges());
+        writeRanges(changeSet.getChangeRanges());
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeRanges(OrderedCollectionChangeSet.Range[] ranges) throws IOException {
+        writeVarLong(ranges.length);
+        int end = 0;
+        for (OrderedCollectionChangeSet.Range range : ranges) {
+            writeVarLong(range.startIndex - end);
+            writeVarLong(range.length);
+            end = range.startIndex + range.length;
+        }
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
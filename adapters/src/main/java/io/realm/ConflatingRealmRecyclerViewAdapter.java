@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * A variant of {@link RealmRecyclerViewAdapter} that collapses bursts of Realm commits into a single update.
+ * <p>
+ * Change sets arriving within the conflation window are merged into one change set describing the difference between
+ * the state currently shown and the latest state of the collection. Only that merged change set is dispatched to the
+ * RecyclerView, once the window has passed.
+ * <p>
+ * Between two dispatches the adapter reads from a snapshot of the collection taken at the last dispatch, so
+ * positions reported to the RecyclerView always match the data returned by {@link #getItem(int)}. Objects deleted
+ * since the last dispatch are reported as {@code null}.
+ * <p>
+ * The adapter will stop receiving updates if the Realm instance providing the {@link OrderedRealmCollection} is
+ * closed.
+ *
+ * @param <T> type of {@link RealmModel} stored in the adapter.
+ * @param <S> type of RecyclerView.ViewHolder used in the adapter.
+ * @see RealmRecyclerViewAdapter
+ */
+public abstract class ConflatingRealmRecyclerViewAdapter<T extends RealmModel, S extends RecyclerView.ViewHolder>
+        extends SnapshotBackedRecyclerViewAdapter<T, S> {
+
+    private final boolean updateOnModification;
+    private final long conflationWindowMillis;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ChangeSetDispatcher.Target target = new AdapterNotificationTarget(this);
+    private final ChangeSetAccumulator accumulator = new ChangeSetAccumulator(0);
+    private final OrderedRealmCollectionChangeListener listener = new OrderedRealmCollectionChangeListener() {
+        @Override
+        public void onChange(Object collection, OrderedCollectionChangeSet changeSet) {
+            accumulator.add(changeSet);
+            if (!dispatchScheduled) {
+                dispatchScheduled = true;
+                handler.postDelayed(dispatchRunnable, conflationWindowMillis);
+            }
+        }
+    };
+    private final Runnable dispatchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchScheduled = false;
+            dispatchPendingChanges();
+        }
+    };
+
+    @Nullable
+    private OrderedRealmCollection<T> observedData;
+    private boolean dispatchScheduled;
+
+    /**
+     * @param data collection data to be used by this adapter.
+     * @param updateOnModification when it is {@code true}, this adapter will be updated when deletions, insertions or
+     *                             modifications happen to the collection data. When it is {@code false}, only
+     *                             deletions and insertions will trigger the updates.
+     * @param conflationWindowMillis how long to wait after a change before it is dispatched. All changes arriving in
+     *                               the meantime are merged into the same update.
+     */
+    public ConflatingRealmRecyclerViewAdapter(@Nullable OrderedRealmCollection<T> data, boolean updateOnModification,
+                                              long conflationWindowMillis) {
+        super(data);
+        if (conflationWindowMillis < 0) {
+            throw new IllegalArgumentException("Conflation window must be >= 0. Input was: " + conflationWindowMillis);
+        }
+        this.updateOnModification = updateOnModification;
+        this.conflationWindowMillis = conflationWindowMillis;
+    }
+
+    @Override
+    void startListening(@NonNull OrderedRealmCollection<T> data) {
+        accumulator.reset(getSnapshotSize());
+        SharedCollectionObserver.subscribe(data, listener);
+        observedData = data;
+    }
+
+    @Override
+    void stopListening() {
+        handler.removeCallbacks(dispatchRunnable);
+        dispatchScheduled = false;
+        if (observedData != null) {
+            SharedCollectionObserver.unsubscribe(observedData, listener);
+            observedData = null;
+        }
+    }
+
+    @Override
+    boolean isListening() {
+        return observedData != null;
+    }
+
+    private void dispatchPendingChanges() {
+        if (!accumulator.hasPendingChanges()) {
+            return;
+        }
+        DecodedChangeSet changeSet = accumulator.merge();
+        takeSnapshot();
+        accumulator.reset(getSnapshotSize());
+        ChangeSetDispatcher.dispatch(changeSet, dataOffset(), updateOnModification, target);
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * An immutable, fully materialized {@link OrderedCollectionChangeSet}.
+ * <p>
+ * Reading the ranges of a change set delivered by Realm crosses into native code. This class reads them once so the
+ * same change set can be handed to several consumers without repeating that work.
+ */
+final class DecodedChangeSet implements OrderedCollectionChangeSet {
+
+    private static final Range[] NO_RANGES = new Range[0];
+
+    private final State state;
+    private final Range[] deletionRanges;
+    private final Range[] insertionRanges;
+    private final Range[] changeRanges;
+    @Nullable
+    private final Throwable error;
+    private final boolean completeResult;
+
+    DecodedChangeSet(@NonNull State state, @NonNull Range[] deletionRanges, @NonNull Range[] insertionRanges,
+                     @NonNull Range[] changeRanges, @Nullable Throwable error, boolean completeResult) {
+        this.state = state;
+        this.deletionRanges = deletionRanges;
+        this.insertionRanges = insertionRanges;
+        this.changeRanges = changeRanges;
+        this.error = error;
+        this.completeResult = completeResult;
+    }
+
+    /**
+     * Returns a decoded copy of the given change set, or the change set itself if it is already decoded.
+     */
+    static DecodedChangeSet from(@NonNull OrderedCollectionChangeSet changeSet) {
+        if (changeSet instanceof DecodedChangeSet) {
+            return (DecodedChangeSet) changeSet;
+        }
+        return new DecodedChangeSet(changeSet.getState(),
+                changeSet.getDeletionRanges(),
+                changeSet.getInsertionRanges(),
+                changeSet.getChangeRanges(),
+                changeSet.getError(),
+                changeSet.isCompleteResult());
+    }
+
+    /**
+     * Returns a change set in the {@link State#INITIAL} state without any ranges.
+     */
+    static DecodedChangeSet initial() {
+        return new DecodedChangeSet(State.INITIAL, NO_RANGES, NO_RANGES, NO_RANGES, null, true);
+    }
+
+    @Override
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public int[] getDeletions() {
+        return toIndices(deletionRanges);
+    }
+
+    @Override
+    public int[] getInsertions() {
+        return toIndices(insertionRanges);
+    }
+
+    @Override
+    public int[] getChanges() {
+        return toIndices(changeRanges);
+    }
+
+    @Override
+    public Range[] getDeletionRanges() {
+        return deletionRanges;
+    }
+
+    @Override
+    public Range[] getInsertionRanges() {
+        return insertionRanges;
+    }
+
+    @Override
+    public Range[] getChangeRanges() {
+        return changeRanges;
+    }
+
+    @Nullable
+    @Override
+    public Throwable getError() {
+        return error;
+    }
+
+    @Override
+    public boolean isCompleteResult() {
+        return completeResult;
+    }
+
+    private static int[] toIndices(Range[] ranges) {
+        int count = 0;
+        for (Range range : ranges) {
+            count += range.length;
+        }
+        int[] indices = new int[count];
+        int i = 0;
+        for (Range range : ranges) {
+            for (int j = 0; j < range.length; j++) {
+                indices[i++] = range.startIndex + j;
+            }
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Index from the key of an item to its position in a collection, patched from change sets instead of being rebuilt.
+ * <p>
+ * The keys of all positions are kept in an array aligned with the collection. When a change set arrives, the array is
+ * patched, the keys of inserted items are read from Realm and the keys of deleted items are dropped from the hash
+ * map. Map entries of items whose position shifted are refreshed lazily on the next lookup, starting from the first
+ * affected position, so a burst of changes only pays for one refresh.
+ */
+final class KeyPositionIndex<T extends RealmModel> {
+
+    private static final long[] NO_KEYS = new long[0];
+
+    private final RealmKeyProvider<T> keyProvider;
+    private final LongIntHashMap positions = new LongIntHashMap();
+    @Nullable
+    private OrderedRealmCollection<T> data;
+    private long[] keys = NO_KEYS;
+    private long[] spareKeys = NO_KEYS;
+    private int size;
+    // Map entries for positions >= validFrom might be outdated.
+    private int validFrom;
+    private boolean built;
+    private boolean maintained;
+    @Nullable
+    private OrderedCollectionChangeSet lastChangeSet;
+
+    KeyPositionIndex(@NonNull RealmKeyProvider<T> keyProvider) {
+        this.keyProvider = keyProvider;
+    }
+
+    /**
+     * Sets the collection to index. The index is rebuilt on next access.
+     */
+    void reset(@Nullable OrderedRealmCollection<T> data) {
+        this.data = data;
+        this.built = false;
+    }
+
+    RealmKeyProvider<T> getKeyProvider() {
+        return keyProvider;
+    }
+
+    /**
+     * Marks the index as kept up to date by a {@link RealmCollectionViewModel} for as long as its collection exists,
+     * so adapters using it do not need to invalidate it while they are not listening.
+     */
+    void setMaintained() {
+        maintained = true;
+    }
+
+    boolean isMaintained() {
+        return maintained;
+    }
+
+    /**
+     * Forgets the indexed state. The index is rebuilt on next access.
+     */
+    void invalidate() {
+        built = false;
+    }
+
+    /**
+     * Returns the position of the item with the given key, or {@link LongIntHashMap#NO_VALUE}.
+     */
+    int getPosition(long key) {
+        if (!ensureBuilt()) {
+            return LongIntHashMap.NO_VALUE;
+        }
+        int position = positions.get(key);
+        if (position != LongIntHashMap.NO_VALUE && position < validFrom && keys[position] == key) {
+            return position;
+        }
+        if (validFrom < size) {
+            refreshTail();
+            return positions.get(key);
+        }
+        return position;
+    }
+
+    /**
+     * Returns the key of the item at the given position.
+     */
+    long getKey(int position) {
+        if (!ensureBuilt() || position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size);
+        }
+        return keys[position];
+    }
+
+    /**
+     * Returns the number of indexed items.
+     */
+    int size() {
+        return ensureBuilt() ? size : 0;
+    }
+
+    /**
+     * Applies a change set reported for the indexed collection. Must be called for every change set while the index
+     * is in use, before other code reads the index. Applying the change set just applied again, e.g. by another
+     * subscriber of the collection sharing the index, does nothing.
+     */
+    void apply(@NonNull OrderedCollectionChangeSet changeSet) {
+        if (changeSet == lastChangeSet) {
+            return;
+        }
+        lastChangeSet = changeSet;
+        if (!built) {
+            return;
+        }
+        if (changeSet.getState() != OrderedCollectionChangeSet.State.UPDATE || !isDataValid()) {
+            built = false;
+            return;
+        }
+        for (OrderedCollectionChangeSet.Range range : changeSet.getDeletionRanges()) {
+            for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                positions.remove(keys[i]);
+            }
+        }
+        int newSize = ChangeSetPatcher.newSize(size, changeSet);
+        long[] newKeys = spareKeys.length >= newSize ? spareKeys : new long[ChangeSetPatcher.capacityFor(newSize)];
+        ChangeSetPatcher.patch(keys, size, newKeys, changeSet);
+        //noinspection ConstantConditions
+        for (OrderedCollectionChangeSet.Range range : changeSet.getInsertionRanges()) {
+            for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                newKeys[i] = keyProvider.getKey(data.get(i));
+            }
+        }
+        spareKeys = keys;
+        keys = newKeys;
+        size = newSize;
+        validFrom = Math.min(validFrom, ChangeSetPatcher.firstShiftedPosition(changeSet, newSize));
+    }
+
+    private void refreshTail() {
+        for (int i = validFrom; i < size; i++) {
+            positions.put(keys[i], i);
+        }
+        validFrom = size;
+    }
+
+    private boolean ensureBuilt() {
+        if (!isDataValid()) {
+            return false;
+        }
+        if (built) {
+            return true;
+        }
+        //noinspection ConstantConditions
+        size = data.size();
+        if (keys.length < size) {
+            keys = new long[ChangeSetPatcher.capacityFor(size)];
+        }
+        positions.clear(size);
+        for (int i = 0; i < size; i++) {
+            long key = keyProvider.getKey(data.get(i));
+            keys[i] = key;
+            positions.put(key, i);
+        }
+        validFrom = size;
+        built = true;
+        return true;
+    }
+
+    private boolean isDataValid() {
+        return data != null && data.isValid();
+    }
+}
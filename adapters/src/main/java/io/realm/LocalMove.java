@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A single item moved locally, e.g. by a drag, which has not been reported by a change set yet.
+ * <p>
+ * Any number of drag steps of the same item compose into one move from its original position to its current one, so
+ * mapping positions stays O(1). Positions are indexes in the collection as shown, without header elements.
+ */
+final class LocalMove {
+
+    private static final int NONE = -1;
+
+    private int from = NONE;
+    private int to = NONE;
+    private boolean committed;
+
+    boolean isActive() {
+        return from != NONE;
+    }
+
+    int getFrom() {
+        return from;
+    }
+
+    int getTo() {
+        return to;
+    }
+
+    boolean isCommitted() {
+        return committed;
+    }
+
+    /**
+     * Moves the item at {@code fromIndex} to {@code toIndex}.
+     *
+     * @return {@code false} if another item has already been moved and the move was not applied.
+     */
+    boolean move(int fromIndex, int toIndex) {
+        if (!isActive()) {
+            from = fromIndex;
+        } else if (committed || fromIndex != to) {
+            return false;
+        }
+        to = toIndex;
+        if (from == to) {
+            clear();
+        }
+        return true;
+    }
+
+    /**
+     * Marks the move as written to Realm. The next change set is expected to be its echo.
+     */
+    void commit() {
+        committed = true;
+    }
+
+    void clear() {
+        from = NONE;
+        to = NONE;
+        committed = false;
+    }
+
+    /**
+     * Returns the index, before the move, of the item shown at the given index.
+     */
+    int toOriginalIndex(int index) {
+        if (!isActive()) {
+            return index;
+        }
+        if (index == to) {
+            return from;
+        }
+        if (from < to && index >= from && index < to) {
+            return index + 1;
+        }
+        if (from > to && index > to && index <= from) {
+            return index - 1;
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index at which the item that was at the given index before the move is shown.
+     */
+    int toMovedIndex(int index) {
+        if (!isActive()) {
+            return index;
+        }
+        if (index == from) {
+            return to;
+        }
+        if (from < to && index > from && index <= to) {
+            return index - 1;
+        }
+        if (from > to && index >= to && index < from) {
+            return index + 1;
+        }
+        return index;
+    }
+
+    /**
+     * Returns whether the change set only reports the committed move, as one deletion at its original position and
+     * one insertion at its new position. Modifications are allowed.
+     */
+    boolean isEcho(@NonNull OrderedCollectionChangeSet changeSet) {
+        if (!committed || changeSet.getState() != OrderedCollectionChangeSet.State.UPDATE) {
+            return false;
+        }
+        OrderedCollectionChangeSet.Range[] deletions = changeSet.getDeletionRanges();
+        OrderedCollectionChangeSet.Range[] insertions = changeSet.getInsertionRanges();
+        return deletions.length == 1 && deletions[0].startIndex == from && deletions[0].length == 1
+                && insertions.length == 1 && insertions[0].startIndex == to && insertions[0].length == 1;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash set of {@code long} values, without boxing.
+ */
+final class LongHashSet {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+
+    LongHashSet() {
+        allocate(MIN_CAPACITY);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long value) {
+        int slot = slot(value);
+        while (used[slot]) {
+            if (values[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the value. Returns {@code true} if it was not in the set already.
+     */
+    boolean add(long value) {
+        int slot = slot(value);
+        while (used[slot]) {
+            if (values[slot] == value) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        values[slot] = value;
+        used[slot] = true;
+        size++;
+        if (size * 2 > values.length) {
+            rehash(values.length * 2);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the value. Returns {@code true} if it was in the set.
+     */
+    boolean remove(long value) {
+        int slot = slot(value);
+        while (used[slot]) {
+            if (values[slot] == value) {
+                shiftBack(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /**
+     * Returns the values of the set, in no particular order.
+     */
+    long[] toArray() {
+        long[] result = new long[size];
+        int i = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (used[slot]) {
+                result[i++] = values[slot];
+            }
+        }
+        return result;
+    }
+
+    // Closes the gap left by a removed value so lookups of colliding values keep working.
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (used[next]) {
+            int ideal = slot(values[next]);
+            // Move the value if its ideal slot is not within (gap, next].
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[gap] = false;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldValues[i]);
+                while (used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        values = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Least recently used cache from {@code long} keys to weighted values. Entries are evicted, least recently used first,
+ * once the total weight of the cache exceeds its maximum size.
+ * <p>
+ * {@code android.util.LruCache} is not available on all supported API levels, hence this class.
+ */
+final class LongLruCache<V> {
+
+    private static final class Entry<V> {
+        final V value;
+        final int weight;
+
+        Entry(V value, int weight) {
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    // Iterates from the least to the most recently accessed entry.
+    private final LinkedHashMap<Long, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxSize;
+    private int size;
+
+    /**
+     * @param maxSize the maximum total weight of the entries.
+     */
+    LongLruCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be > 0. Input was: " + maxSize);
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the value of the key and marks it as most recently used, or returns {@code null}.
+     */
+    @Nullable
+    V get(long key) {
+        Entry<V> entry = entries.get(key);
+        return entry == null ? null : entry.value;
+    }
+
+    /**
+     * Returns whether the key is in the cache, without changing its position in the eviction order.
+     */
+    boolean containsKey(long key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Puts a value with the given weight and evicts entries until the cache fits its maximum size again. A value
+     * heavier than the maximum size empties the cache, itself included.
+     */
+    void put(long key, V value, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("Only weights >= 0 are allowed. Input was: " + weight);
+        }
+        Entry<V> previous = entries.put(key, new Entry<>(value, weight));
+        if (previous != null) {
+            size -= previous.weight;
+        }
+        size += weight;
+        trimToSize(maxSize);
+    }
+
+    /**
+     * Removes the key. Returns the value it was mapped to, or {@code null}.
+     */
+    @Nullable
+    V remove(long key) {
+        Entry<V> entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        size -= entry.weight;
+        return entry.value;
+    }
+
+    /**
+     * Evicts the least recently used entries until the total weight is at most {@code targetSize}.
+     */
+    void trimToSize(int targetSize) {
+        Iterator<Map.Entry<Long, Entry<V>>> iterator = entries.entrySet().iterator();
+        while (size > targetSize && iterator.hasNext()) {
+            size -= iterator.next().getValue().weight;
+            iterator.remove();
+        }
+    }
+
+    void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * Returns the total weight of the entries.
+     */
+    int size() {
+        return size;
+    }
+
+    int maxSize() {
+        return maxSize;
+    }
+}
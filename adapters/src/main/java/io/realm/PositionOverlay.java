@@ -0,0 +1,560 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.Arrays;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Pending mutations shown by an adapter before they are committed to Realm: rows hidden ahead of their deletion and
+ * placeholder rows shown ahead of their insertion.
+ * <p>
+ * Entries are grouped by a token, so all entries of one operation can be rolled back if it fails. Change sets of the
+ * collection are translated to visible positions and reconciled with the pending entries: the deletion of a hidden
+ * row confirms it and is not reported again, and the insertion of a row with the key of a placeholder replaces that
+ * placeholder, in place if the row lands where the placeholder is shown.
+ * <p>
+ * Once the operation of a token has succeeded, the token can be settled: its entries not reconciled by the next change
+ * set are rolled back right after it.
+ */
+final class PositionOverlay {
+
+    /**
+     * Returns the key of a row of the collection.
+     */
+    interface KeySource {
+        long getKey(int dataIndex);
+    }
+
+    private static final int NO_TOKEN = 0;
+
+    // Entries sorted by index. A hidden entry hides the row at its index, a placeholder is shown in front of the row
+    // at its index. Placeholders come before the hidden entry of the same index, in the order they were added.
+    private int[] indexes = new int[8];
+    private int[] tokens = new int[8];
+    private boolean[] placeholders = new boolean[8];
+    private long[] keys = new long[8];
+    private Object[] items = new Object[8];
+    private int count;
+    private int placeholderCount;
+    private int nextToken = 1;
+    private int[] settledTokens = new int[4];
+    private int settledCount;
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Returns the number of visible rows minus the number of rows in the collection.
+     */
+    int getSizeDelta() {
+        return placeholderCount - (count - placeholderCount);
+    }
+
+    int getPlaceholderCount() {
+        return placeholderCount;
+    }
+
+    /**
+     * Returns the index in the collection of the row shown at the given visible index. For placeholders, a negative
+     * value to pass to {@link #getPlaceholderItem(int)} and {@link #getPlaceholderKey(int)} is returned instead.
+     */
+    int toDataIndex(int visibleIndex) {
+        int delta = 0;
+        for (int i = 0; i < count; i++) {
+            int position = indexes[i] + delta;
+            if (visibleIndex < position) {
+                break;
+            }
+            if (placeholders[i]) {
+                if (visibleIndex == position) {
+                    return -1 - i;
+                }
+                delta++;
+            } else {
+                delta--;
+            }
+        }
+        return visibleIndex - delta;
+    }
+
+    /**
+     * Returns the item of a placeholder, see {@link #toDataIndex(int)}.
+     */
+    @Nullable
+    Object getPlaceholderItem(int dataIndex) {
+        return items[-1 - dataIndex];
+    }
+
+    /**
+     * Returns the key of a placeholder, see {@link #toDataIndex(int)}.
+     */
+    long getPlaceholderKey(int dataIndex) {
+        return keys[-1 - dataIndex];
+    }
+
+    /**
+     * Returns the visible index of the row at the given index in the collection, or {@code -1} if it is hidden.
+     */
+    int toVisibleIndex(int dataIndex) {
+        if (count == 0) {
+            return dataIndex;
+        }
+        int end = upperBound(dataIndex);
+        if (end > 0 && indexes[end - 1] == dataIndex && !placeholders[end - 1]) {
+            return -1;
+        }
+        return dataIndex + deltaBefore(end);
+    }
+
+    /**
+     * Returns the visible index of the placeholder with the given key, or {@code -1}.
+     */
+    int findPlaceholder(long key) {
+        for (int i = 0; i < count; i++) {
+            if (placeholders[i] && keys[i] == key) {
+                return indexes[i] + deltaBefore(i);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hides the rows at the given collection indexes and notifies the target about their removal, merged into as few
+     * ranges as possible.
+     *
+     * @param dataIndexes the indexes to hide, in any order. Already hidden indexes are ignored.
+     * @param offset the number of elements in front of the collection elements.
+     * @param target the receiver of the notifications.
+     * @return the token identifying the hidden rows, to be passed to {@link #restore(int, int,
+     * ChangeSetDispatcher.Target)}.
+     */
+    int hide(@NonNull int[] dataIndexes, int offset, @NonNull ChangeSetDispatcher.Target target) {
+        int token = newToken();
+        int[] sorted = dataIndexes.clone();
+        Arrays.sort(sorted);
+        RangeBuilder removed = new RangeBuilder();
+        int[] hidden = new int[sorted.length];
+        int hiddenCount = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i > 0 && sorted[i - 1] == sorted[i]) {
+                continue;
+            }
+            int visibleIndex = toVisibleIndex(sorted[i]);
+            if (visibleIndex >= 0) {
+                // Visible positions before anything is removed.
+                removed.add(visibleIndex, 1);
+                hidden[hiddenCount++] = sorted[i];
+            }
+        }
+        for (int i = hiddenCount - 1; i >= 0; i--) {
+            add(upperBound(hidden[i]), hidden[i], token, false, 0, null);
+        }
+        OrderedCollectionChangeSet.Range[] ranges = removed.build();
+        for (int i = ranges.length - 1; i >= 0; i--) {
+            target.notifyItemRangeRemoved(ranges[i].startIndex + offset, ranges[i].length);
+        }
+        return token;
+    }
+
+    /**
+     * Shows a placeholder at the given visible index and notifies the target about its insertion.
+     *
+     * @param visibleIndex the position of the placeholder, between {@code 0} and the number of visible rows.
+     * @param dataSize the number of rows in the collection.
+     * @param key the key of the row the placeholder stands for.
+     * @param item the item returned for the placeholder.
+     * @param offset the number of elements in front of the collection elements.
+     * @param target the receiver of the notifications.
+     * @return the token identifying the placeholder.
+     */
+    int insert(int visibleIndex, int dataSize, long key, @Nullable Object item, int offset,
+               @NonNull ChangeSetDispatcher.Target target) {
+        int visibleSize = dataSize + getSizeDelta();
+        if (visibleIndex < 0 || visibleIndex > visibleSize) {
+            throw new IndexOutOfBoundsException("Index: " + visibleIndex + ", size: " + visibleSize);
+        }
+        int token = newToken();
+        int position;
+        int anchor;
+        if (visibleIndex == visibleSize) {
+            position = count;
+            anchor = dataSize;
+        } else {
+            int dataIndex = toDataIndex(visibleIndex);
+            if (dataIndex < 0) {
+                // In front of the placeholder currently shown there.
+                position = -1 - dataIndex;
+                anchor = indexes[position];
+            } else {
+                position = upperBound(dataIndex);
+                anchor = dataIndex;
+            }
+        }
+        add(position, anchor, token, true, key, item);
+        target.notifyItemRangeInserted(visibleIndex + offset, 1);
+        return token;
+    }
+
+    /**
+     * Rolls back the entries of the given token which have not been reconciled yet: placeholders are removed and
+     * hidden rows are shown again. The target is notified accordingly.
+     */
+    void restore(int token, int offset, @NonNull ChangeSetDispatcher.Target target) {
+        RangeBuilder removed = new RangeBuilder();
+        for (int i = 0; i < count; i++) {
+            if (tokens[i] == token && placeholders[i]) {
+                removed.add(indexes[i] + deltaBefore(i), 1);
+            }
+        }
+        int[] restored = new int[count];
+        int restoredCount = 0;
+        for (int i = count - 1; i >= 0; i--) {
+            if (tokens[i] == token) {
+                if (!placeholders[i]) {
+                    restored[restoredCount++] = indexes[i];
+                }
+                remove(i);
+            }
+        }
+        OrderedCollectionChangeSet.Range[] ranges = removed.build();
+        for (int i = ranges.length - 1; i >= 0; i--) {
+            target.notifyItemRangeRemoved(ranges[i].startIndex + offset, ranges[i].length);
+        }
+        RangeBuilder inserted = new RangeBuilder();
+        // Collected in descending order.
+        for (int i = restoredCount - 1; i >= 0; i--) {
+            inserted.add(toVisibleIndex(restored[i]), 1);
+        }
+        for (OrderedCollectionChangeSet.Range range : inserted.build()) {
+            target.notifyItemRangeInserted(range.startIndex + offset, range.length);
+        }
+    }
+
+    /**
+     * Marks the entries of the given token to be rolled back by {@link #restoreSettled(int,
+     * ChangeSetDispatcher.Target)} unless the next change set reconciles them.
+     *
+     * @return {@code true} if the token still has entries, {@code false} if all have been reconciled already.
+     */
+    boolean settle(int token) {
+        boolean pending = false;
+        for (int i = 0; i < count; i++) {
+            if (tokens[i] == token) {
+                pending = true;
+                break;
+            }
+        }
+        if (!pending) {
+            return false;
+        }
+        if (settledCount == settledTokens.length) {
+            settledTokens = Arrays.copyOf(settledTokens, settledCount * 2);
+        }
+        settledTokens[settledCount++] = token;
+        return true;
+    }
+
+    /**
+     * Rolls back the entries of all settled tokens, see {@link #restore(int, int, ChangeSetDispatcher.Target)}.
+     */
+    void restoreSettled(int offset, @NonNull ChangeSetDispatcher.Target target) {
+        if (settledCount == 0) {
+            return;
+        }
+        int[] tokensToRestore = Arrays.copyOf(settledTokens, settledCount);
+        settledCount = 0;
+        for (int token : tokensToRestore) {
+            restore(token, offset, target);
+        }
+    }
+
+    /**
+     * Drops all entries without notifying anybody, e.g. because the data has been replaced.
+     */
+    void clear() {
+        Arrays.fill(items, 0, count, null);
+        count = 0;
+        placeholderCount = 0;
+        settledCount = 0;
+    }
+
+    /**
+     * Translates a change set of the collection into a change set of the visible rows, and reconciles the entries
+     * with it.
+     *
+     * @param changeSet the change set reported for the collection.
+     * @param keySource returns the keys of the rows of the collection after the change. Only used to reconcile
+     *                  placeholders.
+     */
+    @NonNull
+    OrderedCollectionChangeSet translate(@NonNull OrderedCollectionChangeSet changeSet,
+                                         @Nullable KeySource keySource) {
+        if (count == 0) {
+            return changeSet;
+        }
+        if (changeSet.getState() != OrderedCollectionChangeSet.State.UPDATE) {
+            clear();
+            return changeSet;
+        }
+        OrderedCollectionChangeSet.Range[] deletionRanges = changeSet.getDeletionRanges();
+        OrderedCollectionChangeSet.Range[] insertionRanges = changeSet.getInsertionRanges();
+        IntList deletions = new IntList();
+        IntList changes = new IntList();
+        boolean[] dropped = new boolean[count];
+
+        // Deletions, in old visible positions. Deleting a hidden row confirms it.
+        for (OrderedCollectionChangeSet.Range range : deletionRanges) {
+            for (int index = range.startIndex; index < range.startIndex + range.length; index++) {
+                int end = upperBound(index);
+                if (end > 0 && indexes[end - 1] == index && !placeholders[end - 1]) {
+                    dropped[end - 1] = true;
+                } else {
+                    deletions.add(index + deltaBefore(end));
+                }
+            }
+        }
+
+        // Placeholders whose row has been inserted, and the index of that row.
+        int[] matches = null;
+        if (placeholderCount > 0 && keySource != null && insertionRanges.length > 0) {
+            matches = new int[count];
+            Arrays.fill(matches, -1);
+            for (OrderedCollectionChangeSet.Range range : insertionRanges) {
+                for (int index = range.startIndex; index < range.startIndex + range.length; index++) {
+                    long key = keySource.getKey(index);
+                    for (int i = 0; i < count; i++) {
+                        if (placeholders[i] && matches[i] == -1 && keys[i] == key) {
+                            matches[i] = index;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Move the entries along with the change. Rows inserted at the index of a placeholder are placed after it,
+        // rows inserted at the index of a hidden row in front of it.
+        int[] newIndexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            int position = indexes[i] - countBefore(deletionRanges, indexes[i]);
+            for (OrderedCollectionChangeSet.Range range : insertionRanges) {
+                if (range.startIndex < position || (!placeholders[i] && range.startIndex == position)) {
+                    position += range.length;
+                } else {
+                    break;
+                }
+            }
+            newIndexes[i] = position;
+        }
+
+        // Reconcile placeholders. A placeholder directly followed by its row is replaced in place, otherwise it is
+        // removed and the row inserted where it belongs.
+        IntList replacingRows = new IntList();
+        if (matches != null) {
+            for (int i = 0; i < count; i++) {
+                if (matches[i] == -1) {
+                    continue;
+                }
+                if (matches[i] == newIndexes[i] && isLastPlaceholderAt(newIndexes, dropped, i)) {
+                    replacingRows.add(matches[i]);
+                } else {
+                    deletions.add(indexes[i] + deltaBefore(i));
+                }
+                dropped[i] = true;
+            }
+        }
+
+        // Apply the new state.
+        int newCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (dropped[i]) {
+                if (placeholders[i]) {
+                    placeholderCount--;
+                }
+                continue;
+            }
+            indexes[newCount] = newIndexes[i];
+            tokens[newCount] = tokens[i];
+            placeholders[newCount] = placeholders[i];
+            keys[newCount] = keys[i];
+            items[newCount] = items[i];
+            newCount++;
+        }
+        Arrays.fill(items, newCount, count, null);
+        count = newCount;
+
+        // Insertions and changes, in new visible positions. Rows replacing a placeholder are reported as changed.
+        IntList insertions = new IntList();
+        for (OrderedCollectionChangeSet.Range range : insertionRanges) {
+            for (int index = range.startIndex; index < range.startIndex + range.length; index++) {
+                if (replacingRows.contains(index)) {
+                    changes.add(toVisibleIndex(index));
+                } else {
+                    insertions.add(toVisibleIndex(index));
+                }
+            }
+        }
+        for (OrderedCollectionChangeSet.Range range : changeSet.getChangeRanges()) {
+            for (int index = range.startIndex; index < range.startIndex + range.length; index++) {
+                int visibleIndex = toVisibleIndex(index);
+                if (visibleIndex >= 0) {
+                    changes.add(visibleIndex);
+                }
+            }
+        }
+        return new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE, deletions.toRanges(),
+                insertions.toRanges(), changes.toRanges(), changeSet.getError(), changeSet.isCompleteResult());
+    }
+
+    // Returns whether no other placeholder is shown between the given one and the row at its new index.
+    private boolean isLastPlaceholderAt(int[] newIndexes, boolean[] dropped, int entry) {
+        for (int i = entry + 1; i < count; i++) {
+            if (dropped[i]) {
+                // Confirmed hidden rows have been deleted, their new index is meaningless.
+                continue;
+            }
+            if (newIndexes[i] != newIndexes[entry]) {
+                break;
+            }
+            if (placeholders[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int newToken() {
+        int token = nextToken++;
+        if (nextToken == NO_TOKEN) {
+            nextToken++;
+        }
+        return token;
+    }
+
+    // Returns the number of positions covered by the ranges below the given index.
+    private static int countBefore(OrderedCollectionChangeSet.Range[] ranges, int index) {
+        int result = 0;
+        for (OrderedCollectionChangeSet.Range range : ranges) {
+            if (range.startIndex >= index) {
+                break;
+            }
+            result += Math.min(range.length, index - range.startIndex);
+        }
+        return result;
+    }
+
+    // Returns the number of visible rows minus the number of collection rows, for the entries before the given one.
+    private int deltaBefore(int end) {
+        int delta = 0;
+        for (int i = 0; i < end; i++) {
+            delta += placeholders[i] ? 1 : -1;
+        }
+        return delta;
+    }
+
+    // Returns the first entry with an index greater than the given one.
+    private int upperBound(int index) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (indexes[mid] <= index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void add(int position, int index, int token, boolean placeholder, long key, @Nullable Object item) {
+        if (count == indexes.length) {
+            int capacity = ChangeSetPatcher.capacityFor(count);
+            indexes = Arrays.copyOf(indexes, capacity);
+            tokens = Arrays.copyOf(tokens, capacity);
+            placeholders = Arrays.copyOf(placeholders, capacity);
+            keys = Arrays.copyOf(keys, capacity);
+            items = Arrays.copyOf(items, capacity);
+        }
+        int moved = count - position;
+        System.arraycopy(indexes, position, indexes, position + 1, moved);
+        System.arraycopy(tokens, position, tokens, position + 1, moved);
+        System.arraycopy(placeholders, position, placeholders, position + 1, moved);
+        System.arraycopy(keys, position, keys, position + 1, moved);
+        System.arraycopy(items, position, items, position + 1, moved);
+        indexes[position] = index;
+        tokens[position] = token;
+        placeholders[position] = placeholder;
+        keys[position] = key;
+        items[position] = item;
+        count++;
+        if (placeholder) {
+            placeholderCount++;
+        }
+    }
+
+    private void remove(int position) {
+        if (placeholders[position]) {
+            placeholderCount--;
+        }
+        int moved = count - position - 1;
+        System.arraycopy(indexes, position + 1, indexes, position, moved);
+        System.arraycopy(tokens, position + 1, tokens, position, moved);
+        System.arraycopy(placeholders, position + 1, placeholders, position, moved);
+        System.arraycopy(keys, position + 1, keys, position, moved);
+        System.arraycopy(items, position + 1, items, position, moved);
+        count--;
+        items[count] = null;
+    }
+
+    // Unordered list of positions, turned into ranges at the end.
+    private static final class IntList {
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        boolean contains(int value) {
+            for (int i = 0; i < size; i++) {
+                if (values[i] == value) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        OrderedCollectionChangeSet.Range[] toRanges() {
+            Arrays.sort(values, 0, size);
+            RangeBuilder builder = new RangeBuilder();
+            for (int i = 0; i < size; i++) {
+                if (i == 0 || values[i] != values[i - 1]) {
+                    builder.add(values[i], 1);
+                }
+            }
+            return builder.build();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects ascending positions into {@link OrderedCollectionChangeSet.Range}s, merging adjacent positions.
+ */
+final class RangeBuilder {
+
+    private final List<OrderedCollectionChangeSet.Range> ranges = new ArrayList<>();
+    private int start = -1;
+    private int length;
+
+    void add(int position, int count) {
+        if (start >= 0 && start + length == position) {
+            length += count;
+            return;
+        }
+        flush();
+        start = position;
+        length = count;
+    }
+
+    OrderedCollectionChangeSet.Range[] build() {
+        flush();
+        return ranges.toArray(new OrderedCollectionChangeSet.Range[0]);
+    }
+
+    private void flush() {
+        if (start >= 0) {
+            ranges.add(new OrderedCollectionChangeSet.Range(start, length));
+            start = -1;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+/**
+ * Receives measurements of the hot paths of {@link RealmRecyclerViewAdapter} and {@link RealmBaseAdapter}, set with
+ * their {@code setMetrics()} method.
+ * <p>
+ * Methods are called on the thread of the adapter, in the middle of layout and change notifications, so
+ * implementations must be cheap and must not block. {@link RealmMetricsRecorder} records them into histograms.
+ */
+public interface RealmAdapterMetrics {
+
+    /**
+     * Called after the adapter has handled a change notification of its collection.
+     *
+     * @param durationNanos time spent handling the notification, including the adapter notifications.
+     * @param rangeCount number of ranges the change was dispatched as, {@code 0} for a full rebind.
+     * @param itemCount number of items in those ranges, the size of the collection for a full rebind.
+     * @param fullRebind whether the change was dispatched as {@code notifyDataSetChanged()}.
+     */
+    void onChangeDispatched(long durationNanos, int rangeCount, int itemCount, boolean fullRebind);
+
+    /**
+     * Called every time {@code getItem()} reads an item from Realm.
+     */
+    void onGetItem();
+
+    /**
+     * Called every time the item count of the adapter is requested.
+     */
+    void onGetItemCount();
+
+    /**
+     * Called after a ViewHolder has been bound.
+     *
+     * @param durationNanos time spent binding.
+     */
+    void onBind(long durationNanos);
+}
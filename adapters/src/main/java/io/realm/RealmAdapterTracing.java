@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+import androidx.tracing.Trace;
+
+/**
+ * Switch for the system trace sections emitted by the adapters, visible in Perfetto and systrace captures.
+ * <p>
+ * When enabled, {@link RealmRecyclerViewAdapter} and {@link RealmBaseAdapter} emit trace sections around change
+ * notifications, {@code updateData()} and listener registration, and trace counters with the sizes of the change sets.
+ * {@link RealmRecyclerViewAdapter} also emits a section around {@code onBindViewHolder()}, which covers the items read
+ * while binding a row, instead of one section per {@code getItem()} call. When disabled, which is the default, each
+ * trace point only costs reading a static field.
+ * <p>
+ * Sections are emitted with {@code androidx.tracing}, which the library does not depend on at runtime. The application
+ * must add {@code androidx.tracing:tracing} to its dependencies to enable tracing.
+ */
+public final class RealmAdapterTracing {
+
+    static final String SECTION_CHANGE = "RealmAdapter:onChange";
+    static final String SECTION_UPDATE_DATA = "RealmAdapter:updateData";
+    static final String SECTION_BIND = "RealmAdapter:bind";
+    static final String SECTION_ADD_LISTENER = "RealmAdapter:addListener";
+    static final String SECTION_REMOVE_LISTENER = "RealmAdapter:removeListener";
+    static final String COUNTER_DELETIONS = "RealmAdapter:deletions";
+    static final String COUNTER_INSERTIONS = "RealmAdapter:insertions";
+    static final String COUNTER_CHANGES = "RealmAdapter:changes";
+
+    /**
+     * Receiver of the trace points, replaced by tests to observe them.
+     */
+    interface Sink {
+        void beginSection(@NonNull String name);
+
+        void endSection();
+
+        void setCounter(@NonNull String name, int value);
+    }
+
+    private static final Sink SYSTEM_TRACE = new Sink() {
+        @Override
+        public void beginSection(@NonNull String name) {
+            Trace.beginSection(name);
+        }
+
+        @Override
+        public void endSection() {
+            Trace.endSection();
+        }
+
+        @Override
+        public void setCounter(@NonNull String name, int value) {
+            Trace.setCounter(name, value);
+        }
+    };
+
+    // Read on every trace point, so it is a plain field.
+    static boolean enabled;
+    static Sink sink = SYSTEM_TRACE;
+
+    private RealmAdapterTracing() {
+    }
+
+    /**
+     * Enables or disables the trace sections of all adapters. Sections already started when the setting changes are
+     * still ended, so sections stay balanced.
+     *
+     * @param enabled whether to emit trace sections.
+     * @throws IllegalStateException if {@code androidx.tracing} is not available.
+     */
+    public static void setEnabled(boolean enabled) {
+        if (enabled) {
+            try {
+                Class.forName("androidx.tracing.Trace");
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(
+                        "Tracing requires the 'androidx.tracing:tracing' dependency to be added to the project.", e);
+            }
+        }
+        RealmAdapterTracing.enabled = enabled;
+    }
+
+    /**
+     * Returns whether the adapters emit trace sections.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void beginSection(@NonNull String name) {
+        sink.beginSection(name);
+    }
+
+    static void endSection() {
+        sink.endSection();
+    }
+
+    /**
+     * Restores the system trace as receiver of the trace points, after a test replaced it.
+     */
+    static void resetSink() {
+        sink = SYSTEM_TRACE;
+    }
+
+    /**
+     * Sets the counters with the number of items deleted, inserted and changed by a change set.
+     */
+    static void countChanges(@NonNull OrderedCollectionChangeSet changeSet) {
+        sink.setCounter(COUNTER_DELETIONS, ChangeSetDispatcher.countItems(changeSet.getDeletionRanges()));
+        sink.setCounter(COUNTER_INSERTIONS, ChangeSetDispatcher.countItems(changeSet.getInsertionRanges()));
+        sink.setCounter(COUNTER_CHANGES, ChangeSetDispatcher.countItems(changeSet.getChangeRanges()));
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Keeps aggregates of the collection of a {@link RealmRecyclerViewAdapter}, such as totals shown in a footer, up to
+ * date from its change sets instead of recomputing them over the whole collection on every change.
+ * <p>
+ * Each {@link Column} caches one numeric value per row, read by a {@link ValueProvider}. When the collection changes,
+ * only the values of inserted and modified rows are read from Realm, and the count, sum, minimum, maximum and average
+ * are updated from the cached values.
+ * <p>
+ * With {@link #setFooterEnabled(boolean)}, the footer row following the data of the adapter is rebound with
+ * {@link #PAYLOAD_AGGREGATES} whenever the aggregates change. The adapter is then responsible for counting the footer
+ * in {@link RealmRecyclerViewAdapter#getItemCount()}, at {@link #getFooterPosition()}.
+ * <p>
+ * All methods must be called on the thread owning the collection, typically the main thread.
+ *
+ * @param <T> type of {@link RealmModel} in the collection.
+ */
+public final class RealmAggregateTracker<T extends RealmModel> {
+
+    /**
+     * Payload of the {@code notifyItemChanged()} notification of the footer row.
+     */
+    public static final Object PAYLOAD_AGGREGATES = new Object();
+
+    /**
+     * Returns the value to aggregate for a row.
+     */
+    public interface ValueProvider<T extends RealmModel> {
+        double getValue(@NonNull T item);
+    }
+
+    /**
+     * Listener notified after the aggregates have been updated.
+     */
+    public interface Listener {
+        void onAggregatesChanged();
+    }
+
+    /**
+     * Aggregates of one value of every row.
+     */
+    public final class Column {
+        private final ValueProvider<T> valueProvider;
+        private final AggregateColumn values = new AggregateColumn();
+        private final AggregateColumn.Reader reader = new AggregateColumn.Reader() {
+            @Override
+            public double read(int position) {
+                //noinspection ConstantConditions
+                return valueProvider.getValue(data.get(position));
+            }
+        };
+
+        Column(ValueProvider<T> valueProvider) {
+            this.valueProvider = valueProvider;
+        }
+
+        /**
+         * Returns the sum of the values, {@code 0} if there are no rows.
+         */
+        public double getSum() {
+            return values.getSum();
+        }
+
+        /**
+         * Returns the smallest value, or {@link Double#NaN} if there are no rows.
+         */
+        public double getMin() {
+            return values.getMin();
+        }
+
+        /**
+         * Returns the largest value, or {@link Double#NaN} if there are no rows.
+         */
+        public double getMax() {
+            return values.getMax();
+        }
+
+        /**
+         * Returns the average of the values, or {@link Double#NaN} if there are no rows.
+         */
+        public double getAverage() {
+            return values.getAverage();
+        }
+    }
+
+    private final RealmRecyclerViewAdapter<T, ?> adapter;
+    private final List<Column> columns = new ArrayList<>();
+    private final Handler handler;
+    private final OrderedRealmCollectionChangeListener changeListener = new OrderedRealmCollectionChangeListener() {
+        @Override
+        public void onChange(Object collection, OrderedCollectionChangeSet changeSet) {
+            apply(changeSet);
+        }
+    };
+    private final RealmRecyclerViewAdapter.DataReplacedListener dataReplacedListener =
+            new RealmRecyclerViewAdapter.DataReplacedListener() {
+                @Override
+                public void onDataReplaced(@Nullable OrderedRealmCollection<?> newData) {
+                    if (started && adapter.getData() != data) {
+                        observe(adapter.getData());
+                    }
+                }
+            };
+    private final Runnable notifyFooter = new Runnable() {
+        @Override
+        public void run() {
+            footerPosted = false;
+            int position = getFooterPosition();
+            if (footerEnabled && position < adapter.getItemCount()) {
+                adapter.notifyItemChanged(position, PAYLOAD_AGGREGATES);
+            }
+        }
+    };
+
+    @Nullable
+    private OrderedRealmCollection<T> data;
+    @Nullable
+    private Listener listener;
+    private int count;
+    private boolean started;
+    private boolean footerEnabled;
+    private boolean footerPosted;
+
+    /**
+     * @param adapter the adapter whose collection to aggregate.
+     * @throws IllegalStateException if the calling thread has no {@link Looper}.
+     */
+    public RealmAggregateTracker(@NonNull RealmRecyclerViewAdapter<T, ?> adapter) {
+        Looper looper = Looper.myLooper();
+        if (looper == null) {
+            throw new IllegalStateException("RealmAggregateTracker can only be created on a thread with a Looper, " +
+                    "typically the main thread.");
+        }
+        this.adapter = adapter;
+        this.handler = new Handler(looper);
+    }
+
+    /**
+     * Adds a column of values to aggregate. If the tracker is started, the values of all rows are read right away.
+     *
+     * @param valueProvider provider of the value of each row.
+     * @return the column, giving access to its aggregates.
+     */
+    @NonNull
+    public Column addColumn(@NonNull ValueProvider<T> valueProvider) {
+        Column column = new Column(valueProvider);
+        columns.add(column);
+        if (started && isDataValid()) {
+            column.values.reset(count, column.reader);
+        }
+        return column;
+    }
+
+    /**
+     * Starts observing the collection of the adapter, also after
+     * {@link RealmRecyclerViewAdapter#updateData(OrderedRealmCollection)}. The values of all rows are read once.
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        adapter.addDataReplacedListener(dataReplacedListener);
+        observe(adapter.getData());
+    }
+
+    /**
+     * Stops observing the collection. The aggregates keep their last values.
+     */
+    public void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        adapter.removeDataReplacedListener(dataReplacedListener);
+        if (isDataValid()) {
+            //noinspection ConstantConditions
+            SharedCollectionObserver.unsubscribe(data, changeListener);
+        }
+        data = null;
+        handler.removeCallbacks(notifyFooter);
+        footerPosted = false;
+    }
+
+    /**
+     * Returns the number of rows as of the last change.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Sets a listener notified after the aggregates have been updated.
+     */
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Enables rebinding the footer row at {@link #getFooterPosition()} with {@link #PAYLOAD_AGGREGATES} whenever the
+     * aggregates change. The notification is sent once the adapter has dispatched the change itself.
+     */
+    public void setFooterEnabled(boolean enabled) {
+        this.footerEnabled = enabled;
+    }
+
+    /**
+     * Returns the adapter position of a footer row placed right after the data of the adapter, taking
+     * {@link RealmRecyclerViewAdapter#dataOffset()} into account.
+     */
+    public int getFooterPosition() {
+        return adapter.dataOffset() + adapter.getDataItemCount();
+    }
+
+    private void observe(@Nullable OrderedRealmCollection<T> newData) {
+        if (isDataValid()) {
+            //noinspection ConstantConditions
+            SharedCollectionObserver.unsubscribe(data, changeListener);
+        }
+        data = newData;
+        if (isDataValid()) {
+            //noinspection ConstantConditions
+            SharedCollectionObserver.subscribe(data, changeListener);
+        }
+        rebuild();
+        notifyChanged();
+    }
+
+    private void apply(OrderedCollectionChangeSet changeSet) {
+        if (changeSet.getState() != OrderedCollectionChangeSet.State.UPDATE || !isDataValid()) {
+            rebuild();
+        } else {
+            for (Column column : columns) {
+                column.values.apply(changeSet, column.reader);
+            }
+            count = ChangeSetPatcher.newSize(count, changeSet);
+        }
+        notifyChanged();
+    }
+
+    private void rebuild() {
+        //noinspection ConstantConditions
+        count = isDataValid() ? data.size() : 0;
+        for (Column column : columns) {
+            column.values.reset(count, column.reader);
+        }
+    }
+
+    private void notifyChanged() {
+        if (listener != null) {
+            listener.onAggregatesChanged();
+        }
+        // Subscribers are notified in no particular order, so let the adapter dispatch the change first.
+        if (footerEnabled && !footerPosted) {
+            footerPosted = true;
+            handler.post(notifyFooter);
+        }
+    }
+
+    private boolean isDataValid() {
+        return data != null && data.isValid();
+    }
+}
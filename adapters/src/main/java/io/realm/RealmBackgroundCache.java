@@ -0,0 +1,527 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.content.ComponentCallbacks2;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+import java.util.Arrays;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import io.realm.log.RealmLog;
+
+/**
+ * Cache of values computed from the fields of Realm objects on a background thread, for values that are too expensive
+ * to compute in {@code onBindViewHolder()}, such as decoded images.
+ * <p>
+ * Values are computed by {@link #load(DynamicRealmObject, String)} on a worker thread with its own
+ * {@link DynamicRealm}, and cached per object and field, keyed by the primary key of the object. The cache is bounded
+ * by the total {@link #sizeOf(Object)} of its values and evicts the least recently used objects first.
+ * <p>
+ * When observing a collection, cached values are only dropped when a change set reports their object as inserted or
+ * modified, and values computed from a version older than such a change are discarded. When attached to a
+ * {@link RealmRecyclerViewAdapter}, values for the rows ahead of the scroll direction are loaded before they are shown
+ * and every loaded row is rebound with the {@link #PAYLOAD_LOADED} payload, so {@code onBindViewHolder()} can simply
+ * call {@link #get(long, int)} and show a placeholder while it returns {@code null}.
+ * <p>
+ * All methods must be called on the main thread. The cache must be closed with {@link #close()} once it is no longer
+ * used.
+ *
+ * @param <T> type of {@link RealmModel} the values are computed from.
+ * @param <V> type of the cached values.
+ */
+public abstract class RealmBackgroundCache<T extends RealmModel, V> {
+
+    /**
+     * Payload of the {@code notifyItemChanged()} notification sent once the values of a row have been loaded.
+     */
+    public static final Object PAYLOAD_LOADED = new Object();
+
+    /**
+     * Listener notified on the main thread when the values of an object have been loaded.
+     */
+    public interface Listener {
+        void onLoaded(long key);
+    }
+
+    private final RealmConfiguration configuration;
+    private final String className;
+    private final String keyField;
+    private final String[] fields;
+    private final RealmKeyProvider<T> keyProvider;
+    private final LongLruCache<Object[]> cache;
+    // Keys requested from the worker and not delivered yet.
+    private final LongHashSet inFlight = new LongHashSet();
+    // Keys invalidated while in flight. Their values are outdated once delivered.
+    private final LongHashSet stale = new LongHashSet();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final OrderedRealmCollectionChangeListener changeListener = new OrderedRealmCollectionChangeListener() {
+        @Override
+        public void onChange(Object collection, OrderedCollectionChangeSet changeSet) {
+            onCollectionChanged(changeSet);
+        }
+    };
+    private final RecyclerView.OnScrollListener scrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            prefetchAhead(recyclerView, dx, dy);
+        }
+    };
+    private final RealmRecyclerViewAdapter.DataReplacedListener dataReplacedListener =
+            new RealmRecyclerViewAdapter.DataReplacedListener() {
+                @Override
+                public void onDataReplaced(@Nullable OrderedRealmCollection<?> newData) {
+                    if (adapter != null && adapter.getData() != data) {
+                        observe(adapter.getData());
+                    }
+                }
+            };
+    private final Runnable flush = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    private long[] pending = new long[16];
+    private int pendingCount;
+    private boolean flushPosted;
+    // Incremented by invalidateAll(), values loaded for an older generation are outdated.
+    private int generation;
+    @Nullable
+    private OrderedRealmCollection<T> data;
+    @Nullable
+    private RecyclerView recyclerView;
+    @Nullable
+    private RealmRecyclerViewAdapter<T, ?> adapter;
+    private int prefetchDistance;
+    @Nullable
+    private Listener listener;
+    @Nullable
+    private Handler workerHandler;
+    private boolean closed;
+
+    // Only accessed on the worker thread.
+    @Nullable
+    private DynamicRealm workerRealm;
+
+    /**
+     * @param configuration configuration of the Realm containing the objects.
+     * @param className name of the Realm model class of the objects.
+     * @param keyField name of the integral primary key field. Its value must be the key returned by
+     *                 {@code keyProvider}.
+     * @param fields names of the fields to compute values for. Values are referred to by their index in this array.
+     * @param keyProvider provider of the key of each object, used to map change sets to keys.
+     * @param maxSize maximum total {@link #sizeOf(Object)} of the cached values.
+     */
+    protected RealmBackgroundCache(@NonNull RealmConfiguration configuration, @NonNull String className,
+                                   @NonNull String keyField, @NonNull String[] fields,
+                                   @NonNull RealmKeyProvider<T> keyProvider, int maxSize) {
+        if (fields.length == 0) {
+            throw new IllegalArgumentException("At least one field is required.");
+        }
+        this.configuration = configuration;
+        this.className = className;
+        this.keyField = keyField;
+        this.fields = fields.clone();
+        this.keyProvider = keyProvider;
+        this.cache = new LongLruCache<>(maxSize);
+    }
+
+    /**
+     * Computes the value of a field. Called on the worker thread. If it throws, the failure is logged and no value
+     * of the object is cached.
+     *
+     * @param object the object, read from the worker's own Realm instance.
+     * @param field the name of the field.
+     * @return the value to cache, or {@code null}.
+     */
+    @WorkerThread
+    @Nullable
+    protected abstract V load(@NonNull DynamicRealmObject object, @NonNull String field);
+
+    /**
+     * Returns the size of a value, in the unit of the {@code maxSize} given to the constructor. Called on the worker
+     * thread. Defaults to {@code 1}, which bounds the number of values.
+     */
+    @WorkerThread
+    protected int sizeOf(@NonNull V value) {
+        return 1;
+    }
+
+    /**
+     * Returns the cached value of a field of an object. If the object has not been loaded yet, it is loaded in the
+     * background and {@code null} is returned.
+     *
+     * @param key the key of the object.
+     * @param field the index of the field in the {@code fields} given to the constructor.
+     * @return the value or {@code null} if it has not been loaded yet or was computed as {@code null}.
+     */
+    @MainThread
+    @Nullable
+    public V get(long key, int field) {
+        Object[] values = cache.get(key);
+        if (values == null) {
+            request(key);
+            flushLater();
+            return null;
+        }
+        //noinspection unchecked
+        return (V) values[field];
+    }
+
+    /**
+     * Returns whether the values of an object are cached.
+     */
+    @MainThread
+    public boolean isLoaded(long key) {
+        return cache.containsKey(key);
+    }
+
+    /**
+     * Loads the values of an object in the background if they are not cached yet.
+     */
+    @MainThread
+    public void prefetch(long key) {
+        if (!cache.containsKey(key)) {
+            request(key);
+            flushLater();
+        }
+    }
+
+    /**
+     * Drops the cached values of an object.
+     */
+    @MainThread
+    public void invalidate(long key) {
+        cache.remove(key);
+        if (inFlight.contains(key)) {
+            stale.add(key);
+        }
+    }
+
+    /**
+     * Drops all cached values.
+     */
+    @MainThread
+    public void invalidateAll() {
+        cache.clear();
+        stale.clear();
+        generation++;
+    }
+
+    /**
+     * Sets a listener notified when the values of an object have been loaded.
+     */
+    @MainThread
+    public void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Invalidates cached values from the change sets of a collection. Inserted and modified objects are invalidated,
+     * other objects are kept. Values are not invalidated while no collection is observed.
+     *
+     * @param data the collection to observe, {@code null} to stop observing.
+     */
+    @MainThread
+    public void observe(@Nullable OrderedRealmCollection<T> data) {
+        if (this.data != null && this.data.isValid()) {
+            SharedCollectionObserver.unsubscribe(this.data, changeListener);
+        }
+        this.data = data;
+        // Changes made while not observing have been missed.
+        invalidateAll();
+        if (data != null && data.isValid() && !closed) {
+            SharedCollectionObserver.subscribe(data, changeListener);
+        }
+    }
+
+    /**
+     * Attaches the cache to a RecyclerView showing an adapter. The collection of the adapter is observed, also after
+     * {@link RealmRecyclerViewAdapter#updateData(OrderedRealmCollection)}, rows are rebound with
+     * {@link #PAYLOAD_LOADED} once loaded, and the given number of rows ahead of the scroll direction are loaded
+     * while scrolling with a {@link LinearLayoutManager}.
+     *
+     * @param recyclerView the RecyclerView showing the adapter.
+     * @param adapter the adapter. It must have a {@link RealmKeyProvider} set with
+     *                {@link RealmRecyclerViewAdapter#setKeyProvider(RealmKeyProvider)}.
+     * @param prefetchDistance the number of rows to load ahead of the last visible row.
+     */
+    @MainThread
+    public void attach(@NonNull RecyclerView recyclerView, @NonNull RealmRecyclerViewAdapter<T, ?> adapter,
+                       int prefetchDistance) {
+        detach();
+        this.recyclerView = recyclerView;
+        this.adapter = adapter;
+        this.prefetchDistance = prefetchDistance;
+        recyclerView.addOnScrollListener(scrollListener);
+        adapter.addDataReplacedListener(dataReplacedListener);
+        observe(adapter.getData());
+    }
+
+    /**
+     * Detaches the cache from the RecyclerView it was attached to, if any, and stops observing its collection.
+     */
+    @MainThread
+    public void detach() {
+        if (recyclerView == null || adapter == null) {
+            return;
+        }
+        recyclerView.removeOnScrollListener(scrollListener);
+        adapter.removeDataReplacedListener(dataReplacedListener);
+        recyclerView = null;
+        adapter = null;
+        observe(null);
+    }
+
+    /**
+     * Releases memory according to the given level. Call this from {@code onTrimMemory()} of the application or the
+     * activity. Values are dropped entirely once the process is in the background or memory is critically low, and
+     * halved otherwise.
+     *
+     * @param level the level passed to {@code onTrimMemory()}.
+     */
+    @MainThread
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.clear();
+        } else {
+            cache.trimToSize(cache.maxSize() / 2);
+        }
+    }
+
+    /**
+     * Drops all values, stops the worker thread and closes its Realm instance.
+     */
+    @MainThread
+    public void close() {
+        if (closed) {
+            return;
+        }
+        detach();
+        observe(null);
+        closed = true;
+        mainHandler.removeCallbacks(flush);
+        pendingCount = 0;
+        if (workerHandler != null) {
+            workerHandler.removeCallbacksAndMessages(null);
+            workerHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (workerRealm != null) {
+                        workerRealm.close();
+                        workerRealm = null;
+                    }
+                    //noinspection ConstantConditions
+                    Looper.myLooper().quit();
+                }
+            });
+            workerHandler = null;
+        }
+    }
+
+    private void onCollectionChanged(OrderedCollectionChangeSet changeSet) {
+        if (changeSet.getState() == OrderedCollectionChangeSet.State.ERROR) {
+            invalidateAll();
+            return;
+        }
+        if (changeSet.getState() != OrderedCollectionChangeSet.State.UPDATE
+                || (cache.isEmpty() && inFlight.size() == 0)) {
+            return;
+        }
+        invalidate(changeSet.getInsertionRanges());
+        invalidate(changeSet.getChangeRanges());
+    }
+
+    private void invalidate(OrderedCollectionChangeSet.Range[] ranges) {
+        for (OrderedCollectionChangeSet.Range range : ranges) {
+            for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                //noinspection ConstantConditions
+                invalidate(keyProvider.getKey(data.get(i)));
+            }
+        }
+    }
+
+    private void prefetchAhead(RecyclerView recyclerView, int dx, int dy) {
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (adapter == null || prefetchDistance <= 0 || !(layoutManager instanceof LinearLayoutManager)) {
+            return;
+        }
+        LinearLayoutManager linearLayoutManager = (LinearLayoutManager) layoutManager;
+        int delta = linearLayoutManager.getOrientation() == LinearLayoutManager.HORIZONTAL ? dx : dy;
+        if (delta == 0) {
+            return;
+        }
+        int first = linearLayoutManager.findFirstVisibleItemPosition();
+        int last = linearLayoutManager.findLastVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+        boolean forward = (delta > 0) != linearLayoutManager.getReverseLayout();
+        int from = forward ? last + 1 : first - prefetchDistance;
+        int offset = adapter.dataOffset();
+        int start = Math.max(from - offset, 0);
+        int end = Math.min(from + prefetchDistance - offset, adapter.getDataItemCount());
+        for (int i = start; i < end; i++) {
+            long key = adapter.getKey(i);
+            if (!cache.containsKey(key)) {
+                request(key);
+            }
+        }
+        flush();
+    }
+
+    private void request(long key) {
+        if (closed || !inFlight.add(key)) {
+            return;
+        }
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+        }
+        pending[pendingCount++] = key;
+    }
+
+    // Requests made while binding a frame are sent to the worker as one batch.
+    private void flushLater() {
+        if (!flushPosted && pendingCount > 0) {
+            flushPosted = true;
+            mainHandler.post(flush);
+        }
+    }
+
+    private void flush() {
+        flushPosted = false;
+        if (pendingCount == 0 || closed) {
+            return;
+        }
+        final long[] keys = Arrays.copyOf(pending, pendingCount);
+        final int batchGeneration = generation;
+        pendingCount = 0;
+        if (workerHandler == null) {
+            HandlerThread thread = new HandlerThread("RealmBackgroundCache");
+            thread.start();
+            workerHandler = new Handler(thread.getLooper());
+        }
+        workerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                loadOnWorker(keys, batchGeneration);
+            }
+        });
+    }
+
+    @WorkerThread
+    private void loadOnWorker(final long[] keys, final int batchGeneration) {
+        final Object[][] values = new Object[keys.length][];
+        final int[] weights = new int[keys.length];
+        try {
+            if (workerRealm == null) {
+                workerRealm = DynamicRealm.getInstance(configuration);
+            }
+            // Read at least the version the main thread has been notified about.
+            workerRealm.refresh();
+            LongIntHashMap indexes = new LongIntHashMap(keys.length);
+            for (int i = 0; i < keys.length; i++) {
+                indexes.put(keys[i], i);
+            }
+            for (int from = 0; from < keys.length; from += RealmBulkEditor.DEFAULT_CHUNK_SIZE) {
+                int to = Math.min(from + RealmBulkEditor.DEFAULT_CHUNK_SIZE, keys.length);
+                Long[] chunk = new Long[to - from];
+                for (int i = from; i < to; i++) {
+                    chunk[i - from] = keys[i];
+                }
+                RealmResults<DynamicRealmObject> objects = workerRealm.where(className).in(keyField, chunk).findAll();
+                for (int i = 0; i < objects.size(); i++) {
+                    DynamicRealmObject object = objects.get(i);
+                    int index = indexes.get(object.getLong(keyField));
+                    if (index == LongIntHashMap.NO_VALUE) {
+                        continue;
+                    }
+                    Object[] objectValues = new Object[fields.length];
+                    int weight = 0;
+                    try {
+                        for (int field = 0; field < fields.length; field++) {
+                            V value = load(object, fields[field]);
+                            objectValues[field] = value;
+                            if (value != null) {
+                                weight += sizeOf(value);
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        // Only this object is dropped, it is loaded again when next requested.
+                        RealmLog.warn(e, "Failed to load the values of the object with key %d.", keys[index]);
+                        continue;
+                    }
+                    values[index] = objectValues;
+                    weights[index] = weight;
+                }
+            }
+        } catch (RuntimeException e) {
+            RealmLog.warn(e, "Failed to load the values of %d objects.", keys.length);
+        } finally {
+            // Keys must leave the in flight set even if loading failed.
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    deliver(keys, values, weights, batchGeneration);
+                }
+            });
+        }
+    }
+
+    private void deliver(long[] keys, Object[][] values, int[] weights, int batchGeneration) {
+        if (closed) {
+            return;
+        }
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            inFlight.remove(key);
+            boolean outdated = stale.remove(key) || batchGeneration != generation;
+            if (outdated) {
+                // Once detached, or no longer observing, values are only loaded again when requested.
+                if (data != null) {
+                    request(key);
+                }
+            } else if (values[i] != null) {
+                cache.put(key, values[i], weights[i]);
+                notifyLoaded(key);
+            }
+        }
+        flushLater();
+    }
+
+    private void notifyLoaded(long key) {
+        if (adapter != null) {
+            int position = adapter.getPositionForKey(key);
+            if (position != RecyclerView.NO_POSITION) {
+                adapter.notifyItemChanged(position, PAYLOAD_LOADED);
+            }
+        }
+        if (listener != null) {
+            listener.onLoaded(key);
+        }
+    }
+}
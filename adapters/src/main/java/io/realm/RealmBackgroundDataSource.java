@@ -0,0 +1,270 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+/**
+ * Source of row models for a {@link RealmSnapshotRecyclerViewAdapter}, queried and observed on a background thread.
+ * <p>
+ * The data source owns a {@link Realm} instance on its own {@link HandlerThread}, where it runs
+ * {@link #query(Realm)} and listens to the changes of the results. For every change, the models of inserted and
+ * modified rows are created with {@link #map(RealmModel)} on that thread, and an immutable snapshot of all models is
+ * delivered to the main thread together with the change set leading to it. The main thread never queries Realm nor
+ * computes change sets, and binding only reads plain models.
+ * <p>
+ * Modified rows whose new model {@code equals()} the previous one are left out of the change set, so models
+ * implementing {@code equals()} over the fields they show avoid rebinding rows for changes they do not show.
+ * Notifications with the {@link OrderedCollectionChangeSet.State#ERROR} state are ignored and the last snapshot is
+ * kept.
+ * <p>
+ * {@link #start(Listener)} and {@link #close()} must be called on the main thread. The data source must be closed
+ * once it is no longer used, which stops its thread and closes its Realm instance.
+ *
+ * @param <T> type of {@link RealmModel} queried.
+ * @param <M> type of the row models.
+ */
+public abstract class RealmBackgroundDataSource<T extends RealmModel, M> {
+
+    /**
+     * Receives the snapshots of a data source on the main thread.
+     */
+    public interface Listener<M> {
+
+        /**
+         * Called with each new snapshot of the models.
+         *
+         * @param snapshot the models of all rows. It is never modified afterwards.
+         * @param changeSet the changes from the previous snapshot, or an
+         *                  {@link OrderedCollectionChangeSet.State#INITIAL} change set if the snapshot replaces
+         *                  everything.
+         */
+        @MainThread
+        void onSnapshot(@NonNull List<M> snapshot, @NonNull OrderedCollectionChangeSet changeSet);
+    }
+
+    private static final Object[] NO_MODELS = new Object[0];
+
+    private final RealmConfiguration configuration;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    @Nullable
+    private Handler workerHandler;
+    @Nullable
+    private Listener<M> listener;
+    private boolean closed;
+
+    // Only accessed on the worker thread.
+    @Nullable
+    private Realm workerRealm;
+    @Nullable
+    private RealmResults<T> results;
+    // Never modified once published, a new array is created for every snapshot.
+    private Object[] models = NO_MODELS;
+    private final OrderedRealmCollectionChangeListener<RealmResults<T>> changeListener =
+            new OrderedRealmCollectionChangeListener<RealmResults<T>>() {
+                @Override
+                public void onChange(RealmResults<T> results, OrderedCollectionChangeSet changeSet) {
+                    onResultsChanged(changeSet);
+                }
+            };
+
+    /**
+     * @param configuration configuration of the Realm to query.
+     */
+    protected RealmBackgroundDataSource(@NonNull RealmConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Runs the query of the data source. Called once on the worker thread.
+     *
+     * @param realm the Realm instance of the worker thread.
+     * @return the results to observe. They must be created synchronously, e.g. with {@code findAll()}.
+     */
+    @WorkerThread
+    @NonNull
+    protected abstract RealmResults<T> query(@NonNull Realm realm);
+
+    /**
+     * Creates the model of a row. Called on the worker thread for every inserted or modified row. The model must not
+     * reference the object, which cannot be used on the main thread.
+     *
+     * @param item the object, read from the Realm instance of the worker thread.
+     * @return the immutable model of the row.
+     */
+    @WorkerThread
+    @NonNull
+    protected abstract M map(@NonNull T item);
+
+    /**
+     * Starts the worker thread, runs the query and delivers the first snapshot, then a new snapshot for every change
+     * of the results.
+     *
+     * @param listener the receiver of the snapshots, typically a {@link RealmSnapshotRecyclerViewAdapter}.
+     * @throws IllegalStateException if the data source has already been started or has been closed.
+     */
+    @MainThread
+    public void start(@NonNull Listener<M> listener) {
+        if (closed) {
+            throw new IllegalStateException("This data source has been closed.");
+        }
+        if (workerHandler != null) {
+            throw new IllegalStateException("This data source has already been started.");
+        }
+        this.listener = listener;
+        HandlerThread thread = new HandlerThread("RealmBackgroundDataSource");
+        thread.start();
+        workerHandler = new Handler(thread.getLooper());
+        workerHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                startOnWorker();
+            }
+        });
+    }
+
+    /**
+     * Stops delivering snapshots, stops the worker thread and closes its Realm instance. A closed data source cannot
+     * be started again.
+     */
+    @MainThread
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        listener = null;
+        if (workerHandler != null) {
+            workerHandler.removeCallbacksAndMessages(null);
+            workerHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (results != null) {
+                        results.removeChangeListener(changeListener);
+                        results = null;
+                    }
+                    if (workerRealm != null) {
+                        workerRealm.close();
+                        workerRealm = null;
+                    }
+                    //noinspection ConstantConditions
+                    Looper.myLooper().quit();
+                }
+            });
+            workerHandler = null;
+        }
+    }
+
+    @WorkerThread
+    private void startOnWorker() {
+        workerRealm = Realm.getInstance(configuration);
+        results = query(workerRealm);
+        results.addChangeListener(changeListener);
+        // Results found synchronously are not reported as INITIAL, so the first snapshot is built right away.
+        rebuild();
+    }
+
+    @WorkerThread
+    private void onResultsChanged(OrderedCollectionChangeSet changeSet) {
+        switch (changeSet.getState()) {
+            case INITIAL:
+                rebuild();
+                break;
+            case UPDATE:
+                update(changeSet);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @WorkerThread
+    private void rebuild() {
+        //noinspection ConstantConditions
+        Object[] newModels = results.isEmpty() ? NO_MODELS : new Object[results.size()];
+        for (int i = 0; i < newModels.length; i++) {
+            //noinspection ConstantConditions
+            newModels[i] = map(results.get(i));
+        }
+        publish(newModels, DecodedChangeSet.initial());
+    }
+
+    @WorkerThread
+    private void update(OrderedCollectionChangeSet changeSet) {
+        int newSize = ChangeSetPatcher.newSize(models.length, changeSet);
+        Object[] newModels = new Object[newSize];
+        ChangeSetPatcher.patch(models, models.length, newModels, changeSet);
+        for (OrderedCollectionChangeSet.Range range : changeSet.getInsertionRanges()) {
+            for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                //noinspection ConstantConditions
+                newModels[i] = map(results.get(i));
+            }
+        }
+        // Positions of modifications are those after the change, where the patched array still holds the old model.
+        RangeBuilder changes = new RangeBuilder();
+        for (OrderedCollectionChangeSet.Range range : changeSet.getChangeRanges()) {
+            for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                //noinspection ConstantConditions
+                M model = map(results.get(i));
+                if (!model.equals(newModels[i])) {
+                    newModels[i] = model;
+                    changes.add(i, 1);
+                }
+            }
+        }
+        DecodedChangeSet batch = new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE,
+                changeSet.getDeletionRanges(),
+                changeSet.getInsertionRanges(),
+                changes.build(),
+                null,
+                changeSet.isCompleteResult());
+        if (batch.getDeletionRanges().length == 0 && batch.getInsertionRanges().length == 0
+                && batch.getChangeRanges().length == 0) {
+            // Nothing shown has changed, the main thread keeps its snapshot.
+            models = newModels;
+            return;
+        }
+        publish(newModels, batch);
+    }
+
+    @WorkerThread
+    private void publish(Object[] newModels, final OrderedCollectionChangeSet changeSet) {
+        models = newModels;
+        @SuppressWarnings("unchecked")
+        final List<M> snapshot = Collections.unmodifiableList(Arrays.asList((M[]) newModels));
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (listener != null) {
+                    listener.onSnapshot(snapshot, changeSet);
+                }
+            }
+        });
+    }
+}
@@ -34,17 +34,36 @@ import androidx.annotation.Nullable;
 public abstract class RealmBaseAdapter<T extends RealmModel> extends BaseAdapter {
     @Nullable
     protected OrderedRealmCollection<T> adapterData;
-    private final RealmChangeListener<OrderedRealmCollection<T>> listener;
+    private final OrderedRealmCollectionChangeListener listener;
+    @Nullable
+    private RealmAdapterMetrics metrics;
 
     public RealmBaseAdapter(@Nullable OrderedRealmCollection<T> data) {
         if (data != null && !data.isManaged())
             throw new IllegalStateException("Only use this adapter with managed list, " +
                     "for un-managed lists you can just use the BaseAdapter");
         this.adapterData = data;
-        this.listener = new RealmChangeListener<OrderedRealmCollection<T>>() {
+        this.listener = new OrderedRealmCollectionChangeListener() {
             @Override
-            public void onChange(OrderedRealmCollection<T> results) {
-                notifyDataSetChanged();
+            public void onChange(Object collection, OrderedCollectionChangeSet changeSet) {
+                boolean trace = RealmAdapterTracing.enabled;
+                if (trace) {
+                    RealmAdapterTracing.beginSection(RealmAdapterTracing.SECTION_CHANGE);
+                    RealmAdapterTracing.countChanges(changeSet);
+                }
+                try {
+                    if (metrics == null) {
+                        notifyDataSetChanged();
+                        return;
+                    }
+                    long start = System.nanoTime();
+                    notifyDataSetChanged();
+                    metrics.onChangeDispatched(System.nanoTime() - start, 0, getCount(), true);
+                } finally {
+                    if (trace) {
+                        RealmAdapterTracing.endSection();
+                    }
+                }
             }
         };
 
@@ -55,30 +74,30 @@ public abstract class RealmBaseAdapter<T extends RealmModel> extends BaseAdapter
     }
 
     private void addListener(@NonNull OrderedRealmCollection<T> data) {
-        if (data instanceof RealmResults) {
-            RealmResults<T> results = (RealmResults<T>) data;
-            //noinspection unchecked
-            results.addChangeListener((RealmChangeListener) listener);
-        } else if (data instanceof RealmList) {
-            RealmList<T> list = (RealmList<T>) data;
-            //noinspection unchecked
-            list.addChangeListener((RealmChangeListener) listener);
-        } else {
-            throw new IllegalArgumentException("RealmCollection not supported: " + data.getClass());
+        boolean trace = RealmAdapterTracing.enabled;
+        if (trace) {
+            RealmAdapterTracing.beginSection(RealmAdapterTracing.SECTION_ADD_LISTENER);
+        }
+        try {
+            SharedCollectionObserver.subscribe(data, listener);
+        } finally {
+            if (trace) {
+                RealmAdapterTracing.endSection();
+            }
         }
     }
 
     private void removeListener(@NonNull OrderedRealmCollection<T> data) {
-        if (data instanceof RealmResults) {
-            RealmResults<T> results = (RealmResults<T>) data;
-            //noinspection unchecked
-            results.removeChangeListener((RealmChangeListener) listener);
-        } else if (data instanceof RealmList) {
-            RealmList<T> list = (RealmList<T>) data;
-            //noinspection unchecked
-            list.removeChangeListener((RealmChangeListener) listener);
-        } else {
-            throw new IllegalArgumentException("RealmCollection not supported: " + data.getClass());
+        boolean trace = RealmAdapterTracing.enabled;
+        if (trace) {
+            RealmAdapterTracing.beginSection(RealmAdapterTracing.SECTION_REMOVE_LISTENER);
+        }
+        try {
+            SharedCollectionObserver.unsubscribe(data, listener);
+        } finally {
+            if (trace) {
+                RealmAdapterTracing.endSection();
+            }
         }
     }
 
@@ -89,6 +108,9 @@ public abstract class RealmBaseAdapter<T extends RealmModel> extends BaseAdapter
      */
     @Override
     public int getCount() {
+        if (metrics != null) {
+            metrics.onGetItemCount();
+        }
         //noinspection ConstantConditions
         return isDataValid() ? adapterData.size() : 0;
     }
@@ -103,8 +125,14 @@ public abstract class RealmBaseAdapter<T extends RealmModel> extends BaseAdapter
     @Override
     @Nullable
     public T getItem(int position) {
+        if (!isDataValid()) {
+            return null;
+        }
+        if (metrics != null) {
+            metrics.onGetItem();
+        }
         //noinspection ConstantConditions
-        return isDataValid() ? adapterData.get(position) : null;
+        return adapterData.get(position);
     }
 
     /**
@@ -121,6 +149,18 @@ public abstract class RealmBaseAdapter<T extends RealmModel> extends BaseAdapter
         return position;
     }
 
+    /**
+     * Sets the receiver of measurements of the change listener, {@link #getItem(int)} and {@link #getCount()} of this
+     * adapter. As every change is a full rebind of the list, no ranges are reported, and binds are not measured since
+     * they happen in {@code getView()} of subclasses.
+     *
+     * @param metrics the receiver of the measurements, for instance a {@link RealmMetricsRecorder}. {@code null}
+     *                disables measuring.
+     */
+    public void setMetrics(@Nullable RealmAdapterMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Updates the data associated with the Adapter.
      *
@@ -134,18 +174,28 @@ public abstract class RealmBaseAdapter<T extends RealmModel> extends BaseAdapter
      */
     @SuppressWarnings("WeakerAccess")
     public void updateData(@Nullable OrderedRealmCollection<T> data) {
-        if (listener != null) {
-            if (isDataValid()) {
-                //noinspection ConstantConditions
-                removeListener(adapterData);
+        boolean trace = RealmAdapterTracing.enabled;
+        if (trace) {
+            RealmAdapterTracing.beginSection(RealmAdapterTracing.SECTION_UPDATE_DATA);
+        }
+        try {
+            if (listener != null) {
+                if (isDataValid()) {
+                    //noinspection ConstantConditions
+                    removeListener(adapterData);
+                }
+                if (data != null && data.isValid()) {
+                    addListener(data);
+                }
             }
-            if (data != null && data.isValid()) {
-                addListener(data);
+
+            this.adapterData = data;
+            notifyDataSetChanged();
+        } finally {
+            if (trace) {
+                RealmAdapterTracing.endSection();
             }
         }
-
-        this.adapterData = data;
-        notifyDataSetChanged();
     }
 
     private boolean isDataValid() {
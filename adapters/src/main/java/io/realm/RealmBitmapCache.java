@@ -0,0 +1,68 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * {@link RealmBackgroundCache} of images stored in {@code byte[]} fields, decoded with {@link BitmapFactory} on the
+ * worker thread. The cache is bounded by the number of bytes of the decoded bitmaps.
+ *
+ * @param <T> type of {@link RealmModel} the images are stored in.
+ */
+public class RealmBitmapCache<T extends RealmModel> extends RealmBackgroundCache<T, Bitmap> {
+
+    @Nullable
+    private final BitmapFactory.Options options;
+
+    /**
+     * @param configuration configuration of the Realm containing the objects.
+     * @param className name of the Realm model class of the objects.
+     * @param keyField name of the integral primary key field.
+     * @param fields names of the {@code byte[]} fields holding encoded images.
+     * @param keyProvider provider of the key of each object.
+     * @param maxBytes maximum number of bytes of the cached bitmaps, e.g. an eighth of
+     *                 {@link Runtime#maxMemory()}.
+     * @param options options used to decode every image, e.g. to subsample large images, or {@code null}.
+     */
+    public RealmBitmapCache(@NonNull RealmConfiguration configuration, @NonNull String className,
+                            @NonNull String keyField, @NonNull String[] fields,
+                            @NonNull RealmKeyProvider<T> keyProvider, int maxBytes,
+                            @Nullable BitmapFactory.Options options) {
+        super(configuration, className, keyField, fields, keyProvider, maxBytes);
+        this.options = options;
+    }
+
+    @Nullable
+    @Override
+    protected Bitmap load(@NonNull DynamicRealmObject object, @NonNull String field) {
+        byte[] bytes = object.getBlob(field);
+        if (bytes == null) {
+            return null;
+        }
+        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+    }
+
+    @Override
+    protected int sizeOf(@NonNull Bitmap value) {
+        return value.getRowBytes() * value.getHeight();
+    }
+}
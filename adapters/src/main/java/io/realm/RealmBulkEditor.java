@@ -0,0 +1,191 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Deletes or updates many objects, identified by their primary keys, in a single background transaction.
+ * <p>
+ * Instead of running one query per key, the objects are looked up with {@link RealmQuery#in(String, Long[])} in
+ * chunks of {@link #setChunkSize(int)} keys. When a {@link RealmRecyclerViewAdapter} is given, deleted items are
+ * removed from it right away in as few notifications as possible, before the transaction has even started. The
+ * fragmented change set reported once the transaction is committed is then not dispatched again, and the items are
+ * shown again if the transaction fails.
+ * <p>
+ * This class must be used on a thread with a {@link android.os.Looper}, typically the main thread.
+ *
+ * @param <T> type of {@link RealmModel} to edit.
+ */
+public final class RealmBulkEditor<T extends RealmModel> {
+
+    /**
+     * Default number of keys per {@code in()} query.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    /**
+     * Modifies one object. Called on the background thread running the transaction.
+     */
+    public interface Updater<T extends RealmModel> {
+        void update(@NonNull T item);
+    }
+
+    /**
+     * Callback notified on the calling thread once the transaction is done.
+     */
+    public interface Callback {
+        void onSuccess();
+
+        void onError(@NonNull Throwable error);
+    }
+
+    private final Realm realm;
+    private final Class<T> clazz;
+    private final String keyFieldName;
+    @Nullable
+    private final RealmRecyclerViewAdapter<T, ?> adapter;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+    /**
+     * This is equivalent to {@code RealmBulkEditor(realm, clazz, keyFieldName, null)}.
+     */
+    public RealmBulkEditor(@NonNull Realm realm, @NonNull Class<T> clazz, @NonNull String keyFieldName) {
+        this(realm, clazz, keyFieldName, null);
+    }
+
+    /**
+     * @param realm the Realm used to start the asynchronous transactions.
+     * @param clazz the class of the objects to edit.
+     * @param keyFieldName the name of the {@code int} or {@code long} primary key field.
+     * @param adapter the adapter showing the objects. It needs a {@link RealmKeyProvider} returning the same keys to
+     *                have deletions announced ahead of the transaction, otherwise it is just updated by the change
+     *                set as usual.
+     */
+    public RealmBulkEditor(@NonNull Realm realm, @NonNull Class<T> clazz, @NonNull String keyFieldName,
+                           @Nullable RealmRecyclerViewAdapter<T, ?> adapter) {
+        this.realm = realm;
+        this.clazz = clazz;
+        this.keyFieldName = keyFieldName;
+        this.adapter = adapter;
+    }
+
+    /**
+     * Sets the number of keys looked up by each {@code in()} query.
+     *
+     * @param chunkSize the number of keys, must be {@code > 0}.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Only chunk sizes > 0 are allowed. Input was: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Deletes the objects with the given keys. Keys without a matching object are ignored.
+     *
+     * @param keys the primary keys of the objects to delete.
+     * @param callback optional callback notified once the transaction is done.
+     * @return the task running the transaction.
+     */
+    @NonNull
+    public RealmAsyncTask deleteAsync(@NonNull long[] keys, @Nullable final Callback callback) {
+        final long[] keysToDelete = keys.clone();
+        final int token = adapter != null ? adapter.hideKeys(keysToDelete) : 0;
+        final int size = chunkSize;
+        return realm.executeTransactionAsync(new Realm.Transaction() {
+            @Override
+            public void execute(@NonNull Realm realm) {
+                for (int start = 0; start < keysToDelete.length; start += size) {
+                    find(realm, keysToDelete, start, size).deleteAllFromRealm();
+                }
+            }
+        }, new Realm.Transaction.OnSuccess() {
+            @Override
+            public void onSuccess() {
+                // Hidden items are confirmed by the change set of the transaction, except those which were not
+                // deleted.
+                if (adapter != null) {
+                    adapter.settlePending(token);
+                }
+                if (callback != null) {
+                    callback.onSuccess();
+                }
+            }
+        }, new Realm.Transaction.OnError() {
+            @Override
+            public void onError(@NonNull Throwable error) {
+                if (adapter != null) {
+                    adapter.restorePending(token);
+                }
+                if (callback != null) {
+                    callback.onError(error);
+                }
+            }
+        });
+    }
+
+    /**
+     * Updates the objects with the given keys. Keys without a matching object are ignored. All modifications are
+     * committed together, so adapters receive a single change set.
+     *
+     * @param keys the primary keys of the objects to update.
+     * @param updater called for each object inside the transaction.
+     * @param callback optional callback notified once the transaction is done.
+     * @return the task running the transaction.
+     */
+    @NonNull
+    public RealmAsyncTask updateAsync(@NonNull long[] keys, @NonNull final Updater<T> updater,
+                                      @Nullable final Callback callback) {
+        final long[] keysToUpdate = keys.clone();
+        final int size = chunkSize;
+        return realm.executeTransactionAsync(new Realm.Transaction() {
+            @Override
+            public void execute(@NonNull Realm realm) {
+                for (int start = 0; start < keysToUpdate.length; start += size) {
+                    for (T item : find(realm, keysToUpdate, start, size).createSnapshot()) {
+                        updater.update(item);
+                    }
+                }
+            }
+        }, new Realm.Transaction.OnSuccess() {
+            @Override
+            public void onSuccess() {
+                if (callback != null) {
+                    callback.onSuccess();
+                }
+            }
+        }, new Realm.Transaction.OnError() {
+            @Override
+            public void onError(@NonNull Throwable error) {
+                if (callback != null) {
+                    callback.onError(error);
+                }
+            }
+        });
+    }
+
+    private RealmResults<T> find(Realm realm, long[] keys, int start, int size) {
+        Long[] chunk = new Long[Math.min(size, keys.length - start)];
+        for (int i = 0; i < chunk.length; i++) {
+            chunk[i] = keys[start + i];
+        }
+        return realm.where(clazz).in(keyFieldName, chunk).findAll();
+    }
+}
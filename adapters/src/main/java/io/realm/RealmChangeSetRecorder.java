@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Records the change sets of the collection of a {@link RealmRecyclerViewAdapter} and the time between them into a
+ * compact binary trace, which can be replayed with {@link RealmChangeSetReplayer}, e.g. to turn a workload observed in
+ * production into a repeatable benchmark.
+ * <p>
+ * Recording starts with {@link #start()} and follows
+ * {@link RealmRecyclerViewAdapter#updateData(OrderedRealmCollection)}. The state of the collection at that point is
+ * recorded as an {@link OrderedCollectionChangeSet.State#INITIAL} change set. Records are buffered and written to the
+ * stream as the buffer fills up, and flushed by {@link #stop()}. If writing fails, recording stops and the failure is
+ * available from {@link #getError()}.
+ * <p>
+ * All methods must be called on the thread owning the collection, typically the main thread.
+ */
+public final class RealmChangeSetRecorder implements Closeable {
+
+    private final RealmRecyclerViewAdapter<?, ?> adapter;
+    private final ChangeSetTraceWriter writer;
+    private final OrderedRealmCollectionChangeListener changeListener = new OrderedRealmCollectionChangeListener() {
+        @Override
+        public void onChange(Object collection, OrderedCollectionChangeSet changeSet) {
+            record(changeSet);
+        }
+    };
+    private final RealmRecyclerViewAdapter.DataReplacedListener dataReplacedListener =
+            new RealmRecyclerViewAdapter.DataReplacedListener() {
+                @Override
+                public void onDataReplaced(@Nullable OrderedRealmCollection<?> newData) {
+                    if (started && adapter.getData() != data) {
+                        observe(adapter.getData());
+                    }
+                }
+            };
+
+    @Nullable
+    private OrderedRealmCollection<?> data;
+    @Nullable
+    private IOException error;
+    private long lastRecordNanos;
+    private int recordCount;
+    private boolean started;
+    private boolean closed;
+
+    /**
+     * @param adapter the adapter whose collection to record.
+     * @param out the stream to write the trace to, e.g. a {@link java.io.FileOutputStream}.
+     * @throws IOException if the header of the trace cannot be written.
+     */
+    public RealmChangeSetRecorder(@NonNull RealmRecyclerViewAdapter<?, ?> adapter, @NonNull OutputStream out)
+            throws IOException {
+        this.adapter = adapter;
+        this.writer = new ChangeSetTraceWriter(out);
+    }
+
+    /**
+     * Starts recording the change sets of the collection of the adapter.
+     *
+     * @throws IllegalStateException if the recorder has been closed.
+     */
+    public void start() {
+        if (closed) {
+            throw new IllegalStateException("The recorder has been closed.");
+        }
+        if (started || error != null) {
+            return;
+        }
+        started = true;
+        lastRecordNanos = System.nanoTime();
+        adapter.addDataReplacedListener(dataReplacedListener);
+        observe(adapter.getData());
+    }
+
+    /**
+     * Stops recording and flushes the recorded change sets to the stream. Recording can be resumed with
+     * {@link #start()}.
+     */
+    public void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        adapter.removeDataReplacedListener(dataReplacedListener);
+        if (isDataValid()) {
+            //noinspection ConstantConditions
+            SharedCollectionObserver.unsubscribe(data, changeListener);
+        }
+        data = null;
+        if (error == null) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of change sets recorded so far, including the {@link OrderedCollectionChangeSet.State#INITIAL}
+     * ones marking the start of the recording and the replacement of the collection.
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Returns the failure that stopped the recording, or {@code null} if writing the trace did not fail.
+     */
+    @Nullable
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Stops recording and closes the stream.
+     *
+     * @throws IOException if the recording failed or the stream cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        stop();
+        closed = true;
+        writer.close();
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void observe(@Nullable OrderedRealmCollection<?> newData) {
+        if (isDataValid()) {
+            //noinspection ConstantConditions
+            SharedCollectionObserver.unsubscribe(data, changeListener);
+        }
+        data = newData;
+        if (isDataValid()) {
+            //noinspection ConstantConditions
+            SharedCollectionObserver.subscribe(data, changeListener);
+        }
+        record(DecodedChangeSet.initial());
+    }
+
+    private void record(OrderedCollectionChangeSet changeSet) {
+        if (!started || error != null) {
+            return;
+        }
+        long now = System.nanoTime();
+        //noinspection ConstantConditions
+        int size = isDataValid() ? data.size() : 0;
+        try {
+            writer.write(now - lastRecordNanos, size, changeSet);
+        } catch (IOException e) {
+            error = e;
+            stop();
+            return;
+        }
+        lastRecordNanos = now;
+        recordCount++;
+    }
+
+    private boolean isDataValid() {
+        return data != null && data.isValid();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Replays a trace written by {@link RealmChangeSetRecorder}.
+ * <p>
+ * The recorded change sets are dispatched by a {@link RealmRecyclerViewAdapter} to its RecyclerView, measured and
+ * traced as if Realm had reported them. They can be replayed all at once with
+ * {@link #replay(RealmRecyclerViewAdapter)}, e.g. inside a benchmark loop, or with the recorded timing with
+ * {@link #start(RealmRecyclerViewAdapter, Listener)}.
+ * <p>
+ * The collection itself does not change while replaying, so the notifications do not match its content. Caches
+ * derived from the collection, such as the key index of the adapter, and other subscribers of the collection, such
+ * as a {@link RealmAggregateTracker}, are not notified and stay in sync with the actual collection. Only replay into
+ * adapters which are not laid out on screen, e.g. attached to a {@link androidx.recyclerview.widget.RecyclerView}
+ * created for measuring.
+ */
+public final class RealmChangeSetReplayer {
+
+    /**
+     * Listener notified when a timed replay has delivered all change sets.
+     */
+    public interface Listener {
+        void onReplayFinished();
+    }
+
+    private final List<ChangeSetTraceReader.Record> records = new ArrayList<>();
+    @Nullable
+    private Handler handler;
+    @Nullable
+    private Runnable next;
+
+    /**
+     * Reads a whole trace. The stream is not closed.
+     *
+     * @param in the stream to read the trace from, e.g. a {@link java.io.FileInputStream}.
+     * @throws IOException if the trace cannot be read or is corrupt.
+     */
+    public RealmChangeSetReplayer(@NonNull InputStream in) throws IOException {
+        ChangeSetTraceReader reader = new ChangeSetTraceReader(in);
+        ChangeSetTraceReader.Record record;
+        while ((record = reader.read()) != null) {
+            records.add(record);
+        }
+    }
+
+    /**
+     * Returns the number of change sets in the trace.
+     */
+    public int getChangeSetCount() {
+        return records.size();
+    }
+
+    /**
+     * Returns a recorded change set. Recorded errors are not preserved, {@link OrderedCollectionChangeSet#getError()}
+     * always returns {@code null}.
+     */
+    @NonNull
+    public OrderedCollectionChangeSet getChangeSet(int index) {
+        return records.get(index).changeSet;
+    }
+
+    /**
+     * Returns the time between a change set and the previous one, in milliseconds.
+     */
+    public long getDelay(int index) {
+        return TimeUnit.NANOSECONDS.toMillis(records.get(index).delayNanos);
+    }
+
+    /**
+     * Returns the size of the collection after a change set.
+     */
+    public int getCollectionSize(int index) {
+        return records.get(index).size;
+    }
+
+    /**
+     * Dispatches all change sets of the trace at once.
+     *
+     * @param adapter the adapter to dispatch the change sets.
+     * @throws IllegalStateException if the adapter does not observe its collection, e.g. because it is not attached
+     *                               to a RecyclerView.
+     */
+    public void replay(@NonNull RealmRecyclerViewAdapter<?, ?> adapter) {
+        checkObserved(adapter);
+        for (ChangeSetTraceReader.Record record : records) {
+            adapter.dispatchReplayed(record.changeSet);
+        }
+    }
+
+    /**
+     * Starts delivering the change sets of the trace on the calling thread, which must have a {@link Looper}, with the
+     * recorded time between them. A running replay is cancelled first.
+     *
+     * @param adapter the adapter to dispatch the change sets.
+     * @param listener notified after the last change set, or {@code null}.
+     * @throws IllegalStateException if the adapter does not observe its collection, e.g. because it is not attached
+     *                               to a RecyclerView.
+     */
+    public void start(@NonNull final RealmRecyclerViewAdapter<?, ?> adapter, @Nullable final Listener listener) {
+        cancel();
+        checkObserved(adapter);
+        if (records.isEmpty()) {
+            if (listener != null) {
+                listener.onReplayFinished();
+            }
+            return;
+        }
+        final Handler handler = new Handler(Looper.myLooper());
+        this.handler = handler;
+        next = new Runnable() {
+            private int index;
+
+            @Override
+            public void run() {
+                if (adapter.isListening()) {
+                    adapter.dispatchReplayed(records.get(index).changeSet);
+                }
+                index++;
+                if (index < records.size()) {
+                    handler.postDelayed(this, getDelay(index));
+                } else {
+                    RealmChangeSetReplayer.this.handler = null;
+                    next = null;
+                    if (listener != null) {
+                        listener.onReplayFinished();
+                    }
+                }
+            }
+        };
+        handler.postDelayed(next, getDelay(0));
+    }
+
+    /**
+     * Stops a replay started with {@link #start(RealmRecyclerViewAdapter, Listener)}. Its listener is not notified.
+     */
+    public void cancel() {
+        if (handler != null && next != null) {
+            handler.removeCallbacks(next);
+        }
+        handler = null;
+        next = null;
+    }
+
+    private static void checkObserved(RealmRecyclerViewAdapter<?, ?> adapter) {
+        if (!adapter.isListening()) {
+            throw new IllegalStateException("The collection of the adapter must be observed to replay change sets.");
+        }
+    }
+}
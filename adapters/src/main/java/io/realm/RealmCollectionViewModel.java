@@ -0,0 +1,163 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.ViewModel;
+
+/**
+ * A {@link ViewModel} that keeps a Realm collection and its change listener alive across configuration changes.
+ * <p>
+ * The Realm instance is opened when the ViewModel is created and closed in {@link #onCleared()}. The collection is
+ * created once by {@link #createData(Realm)} and stays observed through {@link SharedCollectionObserver} for the whole
+ * lifetime of the ViewModel. An adapter recreated after e.g. a rotation therefore reuses the existing query and joins
+ * the already registered listener instead of running the query again and receiving an
+ * {@link OrderedCollectionChangeSet.State#INITIAL} notification that rebinds every row.
+ * <p>
+ * The key index of a {@link RealmKeyProvider} and the cached view types of a {@link RealmViewTypeProvider} can be kept
+ * as well with {@link #retainCaches(RealmRecyclerViewAdapter)}. The ViewModel then keeps patching them from the change
+ * sets of the collection, also while no adapter exists, and hands them to the recreated adapter, which therefore does
+ * not read every row again to rebuild them.
+ * <p>
+ * This class must be created and used on the main thread.
+ *
+ * @param <T> type of {@link RealmModel} in the collection.
+ */
+public abstract class RealmCollectionViewModel<T extends RealmModel> extends ViewModel {
+
+    private final Realm realm;
+    // Keeps the collection observed and the retained caches up to date between two adapters.
+    private final OrderedRealmCollectionChangeListener listener = new OrderedRealmCollectionChangeListener() {
+        @Override
+        public void onChange(Object collection, OrderedCollectionChangeSet changeSet) {
+            // An adapter sharing the caches applies the same change set, only the first call patches them.
+            if (keyIndex != null) {
+                keyIndex.apply(changeSet);
+            }
+            if (viewTypes != null) {
+                viewTypes.apply(changeSet);
+            }
+        }
+    };
+    @Nullable
+    private OrderedRealmCollection<T> data;
+    @Nullable
+    private KeyPositionIndex<T> keyIndex;
+    @Nullable
+    private ViewTypeCache<T> viewTypes;
+
+    /**
+     * Creates a ViewModel using the default Realm configuration.
+     */
+    protected RealmCollectionViewModel() {
+        this(Realm.getDefaultInstance());
+    }
+
+    /**
+     * Creates a ViewModel using the given Realm configuration.
+     *
+     * @param configuration configuration of the Realm to open.
+     */
+    protected RealmCollectionViewModel(@NonNull RealmConfiguration configuration) {
+        this(Realm.getInstance(configuration));
+    }
+
+    private RealmCollectionViewModel(Realm realm) {
+        this.realm = realm;
+    }
+
+    /**
+     * Creates the collection held by this ViewModel. This is only called once.
+     *
+     * @param realm the Realm instance owned by this ViewModel.
+     * @return a managed {@link RealmResults} or {@link RealmList}.
+     */
+    @NonNull
+    protected abstract OrderedRealmCollection<T> createData(@NonNull Realm realm);
+
+    /**
+     * Returns the Realm instance owned by this ViewModel. It must not be closed by the caller.
+     *
+     * @return the Realm instance.
+     */
+    @NonNull
+    public Realm getRealm() {
+        return realm;
+    }
+
+    /**
+     * Returns the collection held by this ViewModel, creating it on first access.
+     *
+     * @return the collection, to be passed to e.g. a {@link RealmRecyclerViewAdapter}.
+     */
+    @NonNull
+    public OrderedRealmCollection<T> getData() {
+        if (data == null) {
+            OrderedRealmCollection<T> collection = createData(realm);
+            if (!collection.isManaged()) {
+                throw new IllegalStateException("Only managed RealmCollections can be held by this ViewModel.");
+            }
+            SharedCollectionObserver.subscribe(collection, listener);
+            data = collection;
+        }
+        return data;
+    }
+
+    /**
+     * Keeps the key index and the view type cache of an adapter showing {@link #getData()} for the lifetime of this
+     * ViewModel. The first adapter passed hands its caches over, adapters passed later, e.g. after a rotation, use the
+     * retained caches instead of building their own. Call this after the {@link RealmKeyProvider} and the
+     * {@link RealmViewTypeProvider} have been set on the adapter. Caches the adapter does not have are not retained.
+     *
+     * @param adapter the adapter showing the collection of this ViewModel.
+     * @throws IllegalArgumentException if the adapter does not show the collection of this ViewModel.
+     */
+    public void retainCaches(@NonNull RealmRecyclerViewAdapter<T, ?> adapter) {
+        if (adapter.getData() != getData()) {
+            throw new IllegalArgumentException("The adapter must show the collection returned by getData().");
+        }
+        if (keyIndex == null) {
+            keyIndex = adapter.getKeyIndexCache();
+            if (keyIndex != null) {
+                // It might have missed changes while the adapter was not listening.
+                keyIndex.invalidate();
+                keyIndex.setMaintained();
+            }
+        }
+        if (viewTypes == null) {
+            viewTypes = adapter.getViewTypeCache();
+            if (viewTypes != null) {
+                viewTypes.invalidate();
+                viewTypes.setMaintained();
+            }
+        }
+        adapter.useCaches(keyIndex, viewTypes);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        if (data != null) {
+            SharedCollectionObserver.unsubscribe(data, listener);
+            data = null;
+        }
+        keyIndex = null;
+        viewTypes = null;
+        realm.close();
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm;
+
+import android.os.SystemClock;
+import android.widget.Filter;
+import android.widget.Filterable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+/**
+ * {@link RealmBaseAdapter} implementing {@link Filterable}, for {@code AutoCompleteTextView} and search lists, without
+ * querying on the main thread.
+ * <p>
+ * {@link Filter} runs {@code performFiltering()} on a worker thread, which cannot use the collections of the main
+ * thread. The filter of this adapter opens its own Realm instance there, runs the query built by
+ * {@link #buildQuery(RealmQuery, String)} with a result limit, and hands the primary keys of the matching objects
+ * back to the main thread. The main thread resolves them with an {@code in()} query on the indexed primary key, which
+ * only touches the matching rows, and displays the resulting live collection.
+ * <p>
+ * Filtering waits {@link #setDebounceMillis(long) a short delay} before querying. {@link Filter} drops requests
+ * queued while another one is running, so a burst of keystrokes only queries the first and the last constraint. The
+ * keys of recent constraints are kept in a small cache, so that e.g. deleting a character does not query again. The
+ * cache is cleared whenever objects of the filtered class change, observed through an asynchronous query of all of
+ * them.
+ * <p>
+ * The adapter must be closed with {@link #close()} once it is no longer used, which removes that listener. Otherwise
+ * the adapter is retained by the Realm until the Realm is closed.
+ *
+ * @param <T> type of {@link RealmModel} shown by the adapter.
+ */
+public abstract class RealmFilterableBaseAdapter<T extends RealmModel> extends RealmBaseAdapter<T>
+        implements Filterable {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 150;
+    public static final int DEFAULT_CACHE_SIZE = 16;
+
+    private static final long[] NO_KEYS = new long[0];
+
+    private final Realm realm;
+    private final RealmConfiguration configuration;
+    private final Class<T> clazz;
+    private final String keyField;
+    private final RealmKeyProvider<T> keyProvider;
+    private final RealmResults<T> allObjects;
+    private final OrderedRealmCollectionChangeListener<RealmResults<T>> classListener =
+            new OrderedRealmCollectionChangeListener<RealmResults<T>>() {
+                @Override
+                public void onChange(RealmResults<T> results, OrderedCollectionChangeSet changeSet) {
+                    // The first notification only reports that the query has completed.
+                    if (changeSet.getState() != OrderedCollectionChangeSet.State.INITIAL) {
+                        clearCache();
+                    }
+                }
+            };
+    private final Filter filter = new Filter() {
+        @Override
+        protected FilterResults performFiltering(CharSequence constraint) {
+            long[] keys = findKeys(constraint == null ? "" : constraint.toString());
+            FilterResults results = new FilterResults();
+            results.values = keys;
+            results.count = keys.length;
+            return results;
+        }
+
+        @Override
+        protected void publishResults(CharSequence constraint, FilterResults results) {
+            // Values are null if the query failed, in which case the current data is kept.
+            long[] keys = (long[]) results.values;
+            if (keys == null || realm.isClosed()) {
+                return;
+            }
+            updateData(resolve(constraint == null ? "" : constraint.toString(), keys));
+        }
+
+        @Override
+        public CharSequence convertResultToString(Object resultValue) {
+            //noinspection unchecked
+            return RealmFilterableBaseAdapter.this.convertResultToString((T) resultValue);
+        }
+    };
+
+    // Guarded by itself. Iterates from the least to the most recently used constraint.
+    private final LinkedHashMap<String, long[]> cache = new LinkedHashMap<>(16, 0.75f, true);
+    // Guarded by cache. Incremented when the cache is cleared, keys found for an older generation are outdated.
+    private int cacheGeneration;
+    private volatile int cacheSize = DEFAULT_CACHE_SIZE;
+    private volatile int limit = DEFAULT_LIMIT;
+    private volatile long debounceMillis = DEFAULT_DEBOUNCE_MILLIS;
+
+    /**
+     * @param realm the Realm instance of the main thread, used to resolve the keys of the matching objects.
+     * @param clazz the class of the objects.
+     * @param keyField name of the integral primary key field. Its value must be the key returned by
+     *                 {@code keyProvider}.
+     * @param keyProvider provider of the key of each object.
+     * @param data the collection shown before the first filtering, {@code null} to show nothing.
+     */
+    public RealmFilterableBaseAdapter(@NonNull Realm realm, @NonNull Class<T> clazz, @NonNull String keyField,
+                                      @NonNull RealmKeyProvider<T> keyProvider,
+                                      @Nullable OrderedRealmCollection<T> data) {
+        super(data);
+        this.realm = realm;
+        this.configuration = realm.getConfiguration();
+        this.clazz = clazz;
+        this.keyField = keyField;
+        this.keyProvider = keyProvider;
+        this.allObjects = realm.where(clazz).findAllAsync();
+        allObjects.addChangeListener(classListener);
+    }
+
+    /**
+     * Adds the conditions matching a constraint to a query, and optionally its sort order. Called on the filter
+     * thread with a query of its own Realm instance, and on the main thread to resolve the keys found, narrowed down
+     * to them.
+     *
+     * @param query the query to add the conditions to.
+     * @param constraint the text to filter with, never {@code null}.
+     * @return the query with the conditions added.
+     */
+    @NonNull
+    protected abstract RealmQuery<T> buildQuery(@NonNull RealmQuery<T> query, @NonNull String constraint);
+
+    /**
+     * Returns the text an {@code AutoCompleteTextView} is set to when the given object is selected. Defaults to
+     * {@code toString()}.
+     */
+    @NonNull
+    protected CharSequence convertResultToString(@NonNull T item) {
+        return item.toString();
+    }
+
+    @NonNull
+    @Override
+    public Filter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Sets the maximum number of objects shown for a constraint. Defaults to {@value #DEFAULT_LIMIT}.
+     */
+    public void setLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be > 0. Input was: " + limit);
+        }
+        this.limit = limit;
+        clearCache();
+    }
+
+    /**
+     * Sets how long filtering waits before querying, so keystrokes typed meanwhile replace the constraint. Defaults
+     * to {@value #DEFAULT_DEBOUNCE_MILLIS} milliseconds.
+     */
+    public void setDebounceMillis(long debounceMillis) {
+        if (debounceMillis < 0) {
+            throw new IllegalArgumentException("Only delays >= 0 are allowed. Input was: " + debounceMillis);
+        }
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * Sets the number of recent constraints whose keys are cached. {@code 0} disables the cache. Defaults to
+     * {@value #DEFAULT_CACHE_SIZE}.
+     */
+    public void setCacheSize(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Only sizes >= 0 are allowed. Input was: " + cacheSize);
+        }
+        this.cacheSize = cacheSize;
+        synchronized (cache) {
+            trimCache();
+        }
+    }
+
+    /**
+     * Forgets the keys cached for recent constraints.
+     */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+            cacheGeneration++;
+        }
+    }
+
+    /**
+     * Removes the change listener of the adapter, so it is no longer retained by the Realm. The cache is disabled, as
+     * it could no longer be cleared on changes, but filtering keeps working.
+     */
+    public void close() {
+        if (allObjects.isValid()) {
+            allObjects.removeChangeListener(classListener);
+        }
+        clearCache();
+        setCacheSize(0);
+    }
+
+    @WorkerThread
+    private long[] findKeys(String constraint) {
+        int generation;
+        synchronized (cache) {
+            long[] keys = cache.get(constraint);
+            if (keys != null) {
+                return keys;
+            }
+            generation = cacheGeneration;
+        }
+        if (debounceMillis > 0) {
+            SystemClock.sleep(debounceMillis);
+        }
+
+        long[] keys;
+        Realm workerRealm = Realm.getInstance(configuration);
+        try {
+            RealmResults<T> results = buildQuery(workerRealm.where(clazz), constraint).limit(limit).findAll();
+            keys = results.isEmpty() ? NO_KEYS : new long[results.size()];
+            for (int i = 0; i < keys.length; i++) {
+                //noinspection ConstantConditions
+                keys[i] = keyProvider.getKey(results.get(i));
+            }
+        } finally {
+            workerRealm.close();
+        }
+
+        synchronized (cache) {
+            if (generation == cacheGeneration && cacheSize > 0) {
+                cache.put(constraint, keys);
+                trimCache();
+            }
+        }
+        return keys;
+    }
+
+    @MainThread
+    @NonNull
+    private OrderedRealmCollection<T> resolve(String constraint, long[] keys) {
+        if (keys.length == 0) {
+            // in() requires at least one value. An empty managed collection keeps the adapter observing it.
+            return realm.where(clazz).equalTo(keyField, 0L).not().equalTo(keyField, 0L).findAll();
+        }
+        Long[] boxedKeys = new Long[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            boxedKeys[i] = keys[i];
+        }
+        return buildQuery(realm.where(clazz).in(keyField, boxedKeys), constraint).findAll();
+    }
+
+    // Must hold the cache lock.
+    private void trimCache() {
+        Iterator<Map.Entry<String, long[]>> iterator = cache.entrySet().iterator();
+        while (cache.size() > cacheSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
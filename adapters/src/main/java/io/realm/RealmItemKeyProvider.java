@@ -0,0 +1,62 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.selection.ItemKeyProvider;
+
+/**
+ * {@link ItemKeyProvider} for the RecyclerView selection library, backed by the key to position index of a
+ * {@link RealmRecyclerViewAdapter}.
+ * <p>
+ * Both directions of the mapping are answered in constant time from the index, which is patched from the change
+ * sets of the collection, so the provider can use {@link ItemKeyProvider#SCOPE_MAPPED} even for large collections.
+ * The selection library requires boxed keys; use {@link RealmItemSelection} to track selections without boxing.
+ * <p>
+ * This requires the {@code androidx.recyclerview:recyclerview-selection} dependency.
+ */
+public final class RealmItemKeyProvider extends ItemKeyProvider<Long> {
+
+    private final RealmRecyclerViewAdapter<?, ?> adapter;
+
+    /**
+     * @param adapter the adapter showing the items. A {@link RealmKeyProvider} must have been set using
+     *                {@link RealmRecyclerViewAdapter#setKeyProvider(RealmKeyProvider)}.
+     */
+    public RealmItemKeyProvider(@NonNull RealmRecyclerViewAdapter<?, ?> adapter) {
+        super(SCOPE_MAPPED);
+        this.adapter = adapter;
+    }
+
+    @Nullable
+    @Override
+    public Long getKey(int position) {
+        int index = position - adapter.dataOffset();
+        // The item count includes placeholders and excludes hidden rows, getKey() maps the index accordingly.
+        if (index < 0 || index >= adapter.getDataItemCount()) {
+            // Headers, footers and invalid data have no key.
+            return null;
+        }
+        return adapter.getKey(index);
+    }
+
+    @Override
+    public int getPosition(@NonNull Long key) {
+        return adapter.getPositionForKey(key);
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Set of selected items of a {@link RealmRecyclerViewAdapter}, identified by the keys of its
+ * {@link RealmKeyProvider}.
+ * <p>
+ * Keys are stored as primitive {@code long}s, so selecting an item does not allocate. Whenever the selection state of
+ * an item changes, only that row is notified using {@code notifyItemChanged(position, PAYLOAD_SELECTION_CHANGED)}.
+ * Adapters should check for {@link #PAYLOAD_SELECTION_CHANGED} in
+ * {@code onBindViewHolder(holder, position, payloads)} and only update the selection state of the view in that
+ * case, instead of rebinding the whole row.
+ * <p>
+ * Keys stay selected when their item is deleted, see {@link #retainExisting()}. This class must be used on the thread
+ * owning the adapter data.
+ */
+public final class RealmItemSelection {
+
+    /**
+     * Payload passed to the adapter when only the selection state of a row changed.
+     */
+    public static final Object PAYLOAD_SELECTION_CHANGED = new Object();
+
+    /**
+     * Listener notified when the selection changes.
+     */
+    public interface Listener {
+        /**
+         * Called after an item has been selected or deselected.
+         *
+         * @param key the key of the item.
+         * @param selected {@code true} if the item is now selected.
+         */
+        void onSelectionChanged(long key, boolean selected);
+    }
+
+    private final RealmRecyclerViewAdapter<?, ?> adapter;
+    private final LongHashSet selectedKeys = new LongHashSet();
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param adapter the adapter showing the items. A {@link RealmKeyProvider} must have been set using
+     *                {@link RealmRecyclerViewAdapter#setKeyProvider(RealmKeyProvider)}.
+     */
+    public RealmItemSelection(@NonNull RealmRecyclerViewAdapter<?, ?> adapter) {
+        this.adapter = adapter;
+    }
+
+    /**
+     * Adds a listener notified when the selection changes.
+     */
+    public void addListener(@NonNull Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(Listener)}.
+     */
+    public void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns whether the item with the given key is selected.
+     */
+    public boolean isSelected(long key) {
+        return selectedKeys.contains(key);
+    }
+
+    /**
+     * Returns whether the item at the given adapter position is selected.
+     *
+     * @param position the adapter position, including {@link RealmRecyclerViewAdapter#dataOffset()}.
+     * @return {@code true} if the item is selected, {@code false} if not or if the position is a header or footer.
+     */
+    public boolean isSelectedAt(int position) {
+        if (selectedKeys.size() == 0) {
+            return false;
+        }
+        int index = position - adapter.dataOffset();
+        if (index < 0 || index >= adapter.getDataItemCount()) {
+            return false;
+        }
+        return selectedKeys.contains(adapter.getKey(index));
+    }
+
+    /**
+     * Selects or deselects the item with the given key.
+     *
+     * @return {@code true} if the selection changed.
+     */
+    public boolean setSelected(long key, boolean selected) {
+        boolean changed = selected ? selectedKeys.add(key) : selectedKeys.remove(key);
+        if (changed) {
+            notifyChanged(key, selected);
+        }
+        return changed;
+    }
+
+    /**
+     * Inverts the selection state of the item with the given key.
+     *
+     * @return {@code true} if the item is now selected.
+     */
+    public boolean toggle(long key) {
+        boolean selected = !selectedKeys.contains(key);
+        setSelected(key, selected);
+        return selected;
+    }
+
+    /**
+     * Returns the number of selected keys.
+     */
+    public int size() {
+        return selectedKeys.size();
+    }
+
+    /**
+     * Returns the selected keys, in no particular order.
+     */
+    @NonNull
+    public long[] getSelectedKeys() {
+        return selectedKeys.toArray();
+    }
+
+    /**
+     * Deselects all items. Only the rows that were selected are notified.
+     */
+    public void clear() {
+        long[] keys = selectedKeys.toArray();
+        selectedKeys.clear();
+        for (long key : keys) {
+            notifyChanged(key, false);
+        }
+    }
+
+    /**
+     * Deselects the keys that are no longer part of the adapter data, e.g. because their items have been deleted.
+     * Listeners are notified, but the adapter is not as those items have no position.
+     */
+    public void retainExisting() {
+        for (long key : selectedKeys.toArray()) {
+            if (adapter.getPositionForKey(key) == RecyclerView.NO_POSITION) {
+                selectedKeys.remove(key);
+                for (Listener listener : listeners) {
+                    listener.onSelectionChanged(key, false);
+                }
+            }
+        }
+    }
+
+    private void notifyChanged(long key, boolean selected) {
+        int position = adapter.getPositionForKey(key);
+        if (position != RecyclerView.NO_POSITION) {
+            adapter.notifyItemChanged(position, PAYLOAD_SELECTION_CHANGED);
+        }
+        for (Listener listener : listeners) {
+            listener.onSelectionChanged(key, selected);
+        }
+    }
+}
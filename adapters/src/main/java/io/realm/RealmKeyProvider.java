@@ -0,0 +1,35 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Returns a stable key for a Realm object, typically its {@code int} or {@code long} primary key.
+ *
+ * @param <T> type of {@link RealmModel}.
+ */
+public interface RealmKeyProvider<T extends RealmModel> {
+
+    /**
+     * Returns the key of the given object. Two different objects must never return the same key.
+     *
+     * @param item a valid, managed object.
+     * @return the key of the object.
+     */
+    long getKey(@NonNull T item);
+}
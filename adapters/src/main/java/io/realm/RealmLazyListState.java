@@ -0,0 +1,225 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Exposes a Realm collection as lazily indexed state for declarative UI toolkits such as Jetpack Compose's
+ * {@code LazyColumn}, where there is no adapter to forward fine grained notifications to.
+ * <p>
+ * Items are only read from Realm when {@link #get(int)} or {@link #getKey(int)} is called for their index. Each
+ * position carries a stable key obtained from a {@link RealmKeyProvider}, and a version that only changes when the
+ * change sets report the item at that position as inserted or modified. A UI keyed by {@link #getKey(int)} and
+ * reading {@link #getVersion(int)} therefore only recomposes the items that actually changed, instead of everything on
+ * every commit.
+ * <p>
+ * Keys are cached once read and moved along with their items when the collection changes. All methods must be called
+ * on the thread owning the collection.
+ *
+ * @param <T> type of {@link RealmModel} in the collection.
+ */
+public final class RealmLazyListState<T extends RealmModel> {
+
+    /**
+     * Listener notified after the state has been updated.
+     */
+    public interface Listener {
+        /**
+         * Called once the state reflects the given change. Indexes in the change set are those of
+         * {@link RealmLazyListState}.
+         *
+         * @param changeSet the change applied. In the {@link OrderedCollectionChangeSet.State#INITIAL} state all
+         *                  items must be considered changed.
+         */
+        void onStateChanged(@NonNull OrderedCollectionChangeSet changeSet);
+    }
+
+    private static final long[] NO_KEYS = new long[0];
+    private static final int[] NO_VERSIONS = new int[0];
+
+    private final OrderedRealmCollection<T> data;
+    private final RealmKeyProvider<T> keyProvider;
+    private final List<Listener> listeners = new ArrayList<>();
+    private final OrderedRealmCollectionChangeListener changeListener = new OrderedRealmCollectionChangeListener() {
+        @Override
+        public void onChange(Object collection, OrderedCollectionChangeSet changeSet) {
+            apply(changeSet);
+        }
+    };
+
+    private long[] keys = NO_KEYS;
+    // A version of 0 marks a key which has not been read yet. Versions of read keys are always > 0.
+    private int[] versions = NO_VERSIONS;
+    // Buffers reused by the next patch, so a change does not allocate new arrays every time.
+    private long[] spareKeys = NO_KEYS;
+    private int[] spareVersions = NO_VERSIONS;
+    private int size;
+    private int currentVersion = 1;
+    private boolean started;
+
+    /**
+     * @param data the collection to expose.
+     * @param keyProvider provider of the key of each item.
+     */
+    public RealmLazyListState(@NonNull OrderedRealmCollection<T> data, @NonNull RealmKeyProvider<T> keyProvider) {
+        if (!data.isManaged()) {
+            throw new IllegalStateException("Only use this class with managed RealmCollection.");
+        }
+        this.data = data;
+        this.keyProvider = keyProvider;
+    }
+
+    /**
+     * Starts observing the collection. Call this when the state enters the composition.
+     */
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        reset();
+        if (data.isValid()) {
+            SharedCollectionObserver.subscribe(data, changeListener);
+        }
+    }
+
+    /**
+     * Stops observing the collection. Call this when the state leaves the composition.
+     */
+    public void stop() {
+        if (!started) {
+            return;
+        }
+        started = false;
+        SharedCollectionObserver.unsubscribe(data, changeListener);
+    }
+
+    /**
+     * Adds a listener notified after each change has been applied.
+     */
+    public void addListener(@NonNull Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addListener(Listener)}.
+     */
+    public void removeListener(@NonNull Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of items as of the last change notification.
+     */
+    public int size() {
+        return data.isValid() ? size : 0;
+    }
+
+    /**
+     * Returns the item at the given index, reading it from Realm.
+     *
+     * @param index index of the item.
+     * @return the item or {@code null} if the collection is no longer valid.
+     */
+    @Nullable
+    public T get(int index) {
+        checkIndex(index);
+        return data.isValid() ? data.get(index) : null;
+    }
+
+    /**
+     * Returns the key of the item at the given index. The key is only read from Realm the first time it is requested
+     * for that item.
+     *
+     * @param index index of the item.
+     * @return the key of the item.
+     */
+    public long getKey(int index) {
+        checkIndex(index);
+        if (versions[index] == 0) {
+            keys[index] = keyProvider.getKey(data.get(index));
+            versions[index] = currentVersion;
+        }
+        return keys[index];
+    }
+
+    /**
+     * Returns the version of the item at the given index. The version changes every time the item is reported as
+     * modified, so it can be used to decide if a recomposition is needed.
+     *
+     * @param index index of the item.
+     * @return the version of the item.
+     */
+    public int getVersion(int index) {
+        getKey(index);
+        return versions[index];
+    }
+
+    private void apply(OrderedCollectionChangeSet changeSet) {
+        if (changeSet.getState() != OrderedCollectionChangeSet.State.UPDATE) {
+            reset();
+        } else {
+            currentVersion++;
+            int newSize = ChangeSetPatcher.newSize(size, changeSet);
+            long[] newKeys = spareKeys.length >= newSize ? spareKeys : new long[ChangeSetPatcher.capacityFor(newSize)];
+            int[] newVersions = spareVersions.length >= newSize ? spareVersions : new int[newKeys.length];
+            for (OrderedCollectionChangeSet.Range range : changeSet.getInsertionRanges()) {
+                Arrays.fill(newVersions, range.startIndex, range.startIndex + range.length, 0);
+            }
+            ChangeSetPatcher.patch(keys, size, newKeys, changeSet);
+            ChangeSetPatcher.patch(versions, size, newVersions, changeSet);
+            // Inserted positions keep a version of 0 until their key is read.
+            for (OrderedCollectionChangeSet.Range range : changeSet.getChangeRanges()) {
+                for (int i = range.startIndex; i < range.startIndex + range.length; i++) {
+                    if (newVersions[i] != 0) {
+                        newVersions[i] = currentVersion;
+                    }
+                }
+            }
+            spareKeys = keys;
+            spareVersions = versions;
+            keys = newKeys;
+            versions = newVersions;
+            size = newSize;
+        }
+        // Listeners might remove themselves while being notified.
+        for (Listener listener : listeners.toArray(new Listener[0])) {
+            listener.onStateChanged(changeSet);
+        }
+    }
+
+    private void reset() {
+        currentVersion++;
+        size = data.isValid() ? data.size() : 0;
+        keys = new long[ChangeSetPatcher.capacityFor(size)];
+        versions = new int[keys.length];
+        spareKeys = NO_KEYS;
+        spareVersions = NO_VERSIONS;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        }
+    }
+}
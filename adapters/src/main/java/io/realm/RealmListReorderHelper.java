@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Reorders the {@link RealmList} shown by a {@link RealmRecyclerViewAdapter} using drag and drop, e.g. with an
+ * {@code ItemTouchHelper}.
+ * <p>
+ * Drag steps are only applied to the adapter positions. On drop, the whole drag is written as a single
+ * {@link RealmList#move(int, int)} in a background transaction, and the change set reporting that move, which Realm
+ * delivers as a deletion and an insertion, is not dispatched again. If the transaction fails, or other changes arrive
+ * before the move has been reported, the item is moved back to its original position.
+ * <p>
+ * Call {@link #onMove(int, int)} from {@code ItemTouchHelper.Callback.onMove()} and {@link #onDrop()} from
+ * {@code ItemTouchHelper.Callback.clearView()}. This class must be used on the thread owning the adapter data.
+ *
+ * @param <T> type of {@link RealmModel} in the list.
+ */
+public final class RealmListReorderHelper<T extends RealmModel> {
+
+    /**
+     * Finds the list to reorder in the Realm instance of the background transaction.
+     */
+    public interface ListLocator<T extends RealmModel> {
+        /**
+         * @param realm the Realm instance of the transaction.
+         * @return the list shown by the adapter, or {@code null} if it does not exist anymore.
+         */
+        @Nullable
+        RealmList<T> findList(@NonNull Realm realm);
+    }
+
+    private final Realm realm;
+    private final RealmRecyclerViewAdapter<T, ?> adapter;
+    private final ListLocator<T> listLocator;
+
+    /**
+     * @param realm the Realm used to start the asynchronous transaction.
+     * @param adapter the adapter showing the list. It must receive automatic updates.
+     * @param listLocator finds the same list in the background transaction.
+     */
+    public RealmListReorderHelper(@NonNull Realm realm, @NonNull RealmRecyclerViewAdapter<T, ?> adapter,
+                                  @NonNull ListLocator<T> listLocator) {
+        this.realm = realm;
+        this.adapter = adapter;
+        this.listLocator = listLocator;
+    }
+
+    /**
+     * Moves the dragged item to a new adapter position, without writing to Realm.
+     *
+     * @param fromPosition the current adapter position of the dragged item.
+     * @param toPosition the adapter position to move it to.
+     * @return {@code true} if the item was moved. Moves are refused while a previous drop is being written, and for
+     * header or footer positions.
+     */
+    public boolean onMove(int fromPosition, int toPosition) {
+        int from = fromPosition - adapter.dataOffset();
+        int to = toPosition - adapter.dataOffset();
+        OrderedRealmCollection<T> data = adapter.getData();
+        if (!(data instanceof RealmList) || !data.isValid()) {
+            return false;
+        }
+        int size = adapter.getItemCount() - adapter.dataOffset();
+        if (from < 0 || to < 0 || from >= size || to >= size) {
+            return false;
+        }
+        return adapter.moveLocally(from, to);
+    }
+
+    /**
+     * Writes the move performed by the drag, if any, to Realm.
+     */
+    public void onDrop() {
+        final LocalMove localMove = adapter.getLocalMove();
+        if (!localMove.isActive() || localMove.isCommitted()) {
+            return;
+        }
+        // The positions of the move are those before and after it, so they must not be mapped through it again.
+        final int from = adapter.toUnmovedDataIndex(localMove.getFrom());
+        final int to = adapter.toUnmovedDataIndex(localMove.getTo());
+        final AtomicBoolean moved = new AtomicBoolean(false);
+        localMove.commit();
+        realm.executeTransactionAsync(new Realm.Transaction() {
+            @Override
+            public void execute(@NonNull Realm realm) {
+                RealmList<T> list = listLocator.findList(realm);
+                if (list != null && list.isValid() && from < list.size() && to < list.size()) {
+                    list.move(from, to);
+                    moved.set(true);
+                }
+            }
+        }, new Realm.Transaction.OnSuccess() {
+            @Override
+            public void onSuccess() {
+                if (!moved.get()) {
+                    // Nothing was written, so no change set will confirm the move.
+                    revertIfCommitted();
+                }
+            }
+        }, new Realm.Transaction.OnError() {
+            @Override
+            public void onError(@NonNull Throwable error) {
+                revertIfCommitted();
+            }
+        });
+    }
+
+    private void revertIfCommitted() {
+        if (adapter.getLocalMove().isCommitted()) {
+            adapter.revertLocalMove();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+
+/**
+ * {@link RealmAdapterMetrics} recording measurements into {@link RealmHistogram}s and counters, to be read and
+ * exported periodically, e.g. to a telemetry backend.
+ * <p>
+ * Like the adapters reporting to it, this class must only be used on the main thread.
+ */
+public final class RealmMetricsRecorder implements RealmAdapterMetrics {
+
+    private final RealmHistogram changeDurations = new RealmHistogram();
+    private final RealmHistogram rangeCounts = new RealmHistogram();
+    private final RealmHistogram itemCounts = new RealmHistogram();
+    private final RealmHistogram bindDurations = new RealmHistogram();
+    private long fullRebinds;
+    private long getItemCalls;
+    private long getItemCountCalls;
+
+    @Override
+    public void onChangeDispatched(long durationNanos, int rangeCount, int itemCount, boolean fullRebind) {
+        changeDurations.record(durationNanos);
+        rangeCounts.record(rangeCount);
+        itemCounts.record(itemCount);
+        if (fullRebind) {
+            fullRebinds++;
+        }
+    }
+
+    @Override
+    public void onGetItem() {
+        getItemCalls++;
+    }
+
+    @Override
+    public void onGetItemCount() {
+        getItemCountCalls++;
+    }
+
+    @Override
+    public void onBind(long durationNanos) {
+        bindDurations.record(durationNanos);
+    }
+
+    /**
+     * Returns the durations of change notifications, in nanoseconds. Its count is the number of notifications.
+     */
+    @NonNull
+    public RealmHistogram getChangeDurations() {
+        return changeDurations;
+    }
+
+    /**
+     * Returns the number of ranges per change notification.
+     */
+    @NonNull
+    public RealmHistogram getRangeCounts() {
+        return rangeCounts;
+    }
+
+    /**
+     * Returns the number of items affected per change notification.
+     */
+    @NonNull
+    public RealmHistogram getItemCounts() {
+        return itemCounts;
+    }
+
+    /**
+     * Returns the durations of binds, in nanoseconds.
+     */
+    @NonNull
+    public RealmHistogram getBindDurations() {
+        return bindDurations;
+    }
+
+    /**
+     * Returns the number of change notifications dispatched as {@code notifyDataSetChanged()}.
+     */
+    public long getFullRebindCount() {
+        return fullRebinds;
+    }
+
+    /**
+     * Returns the number of items read from Realm by {@code getItem()}.
+     */
+    public long getItemCallCount() {
+        return getItemCalls;
+    }
+
+    /**
+     * Returns the number of times the item count of the adapter was requested.
+     */
+    public long getItemCountCallCount() {
+        return getItemCountCalls;
+    }
+
+    /**
+     * Forgets all measurements, e.g. after they have been exported.
+     */
+    public void reset() {
+        changeDurations.reset();
+        rangeCounts.reset();
+        itemCounts.reset();
+        bindDurations.reset();
+        fullRebinds = 0;
+        getItemCalls = 0;
+        getItemCountCalls = 0;
+    }
+}
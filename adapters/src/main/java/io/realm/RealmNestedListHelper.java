@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Helper for lists whose rows show a nested, usually horizontal, {@link RecyclerView} of a {@link RealmList} of the
+ * parent object.
+ * <p>
+ * Each parent ViewHolder creates one {@link ChildList} for its nested RecyclerView, which keeps the same child
+ * adapter for the whole lifetime of the ViewHolder:
+ * <ul>
+ * <li>All nested RecyclerViews share one {@link RecyclerView.RecycledViewPool}, so child rows are recycled across
+ * parent rows.</li>
+ * <li>Rebinding a parent row to the same parent object keeps the child adapter and its live collection untouched.
+ * Binding it to another parent only swaps the data of the child adapter.</li>
+ * <li>Child adapters only listen to changes while their parent row is attached to the window. When a row comes back
+ * on screen, its child adapter is only reloaded if the Realm has changed in the meantime.</li>
+ * <li>The scroll position of each nested list is saved per parent key and restored when the parent is shown again.
+ * </li>
+ * </ul>
+ * The parent adapter calls {@link ChildList#bind(long, OrderedRealmCollection)} in {@code onBindViewHolder()},
+ * {@link ChildList#onAttached()} in {@code onViewAttachedToWindow()} and {@link ChildList#onDetached()} in
+ * {@code onViewDetachedFromWindow()}.
+ * <p>
+ * All methods must be called on the thread of the given Realm, typically the main thread. Call {@link #close()} once
+ * the parent list is destroyed.
+ */
+public final class RealmNestedListHelper {
+
+    /**
+     * Default number of scroll positions saved by {@link RealmNestedListHelper}.
+     */
+    public static final int DEFAULT_MAX_SAVED_STATES = 100;
+
+    private final Realm realm;
+    private final RecyclerView.RecycledViewPool pool = new RecyclerView.RecycledViewPool();
+    private final LongLruCache<Parcelable> scrollStates;
+    private final RealmChangeListener<Realm> realmListener = new RealmChangeListener<Realm>() {
+        @Override
+        public void onChange(Realm realm) {
+            realmVersion++;
+        }
+    };
+    // Incremented every time the Realm advances to a new version.
+    private int realmVersion;
+
+    /**
+     * This is equivalent to {@code RealmNestedListHelper(realm, DEFAULT_MAX_SAVED_STATES)}.
+     *
+     * @param realm the Realm instance the child collections belong to.
+     */
+    public RealmNestedListHelper(@NonNull Realm realm) {
+        this(realm, DEFAULT_MAX_SAVED_STATES);
+    }
+
+    /**
+     * @param realm the Realm instance the child collections belong to.
+     * @param maxSavedStates the maximum number of scroll positions to save. The least recently used are dropped
+     *                       first.
+     */
+    public RealmNestedListHelper(@NonNull Realm realm, int maxSavedStates) {
+        this.realm = realm;
+        this.scrollStates = new LongLruCache<>(maxSavedStates);
+        realm.addChangeListener(realmListener);
+    }
+
+    /**
+     * Returns the pool shared by all nested RecyclerViews.
+     */
+    @NonNull
+    public RecyclerView.RecycledViewPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets up a nested RecyclerView with the shared pool and its child adapter. Call this once per parent
+     * ViewHolder, in {@code onCreateViewHolder()}.
+     *
+     * @param recyclerView the nested RecyclerView. Its layout manager must already be set.
+     * @param adapter the child adapter, created with {@code null} data.
+     * @param <C> type of {@link RealmModel} in the nested lists.
+     * @return the object to bind the nested list with.
+     */
+    @NonNull
+    public <C extends RealmModel> ChildList<C> createChildList(@NonNull RecyclerView recyclerView,
+                                                               @NonNull RealmRecyclerViewAdapter<C, ?> adapter) {
+        recyclerView.setRecycledViewPool(pool);
+        RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            // Hand the child rows to the shared pool when the parent row is detached.
+            ((LinearLayoutManager) layoutManager).setRecycleChildrenOnDetach(true);
+        }
+        recyclerView.setAdapter(adapter);
+        return new ChildList<>(recyclerView, adapter);
+    }
+
+    /**
+     * Stops tracking changes of the Realm and drops the saved scroll positions.
+     */
+    public void close() {
+        realm.removeChangeListener(realmListener);
+        scrollStates.clear();
+    }
+
+    /**
+     * The nested list of one parent ViewHolder.
+     *
+     * @param <C> type of {@link RealmModel} in the nested list.
+     */
+    public final class ChildList<C extends RealmModel> {
+
+        private final RecyclerView recyclerView;
+        private final RealmRecyclerViewAdapter<C, ?> adapter;
+        private long parentKey;
+        private boolean bound;
+        private boolean attached;
+        private int pausedAtVersion;
+
+        ChildList(RecyclerView recyclerView, RealmRecyclerViewAdapter<C, ?> adapter) {
+            this.recyclerView = recyclerView;
+            this.adapter = adapter;
+        }
+
+        /**
+         * Returns the child adapter.
+         */
+        @NonNull
+        public RealmRecyclerViewAdapter<C, ?> getAdapter() {
+            return adapter;
+        }
+
+        /**
+         * Shows the nested collection of a parent object. Binding the same parent again keeps the current collection,
+         * which is still updated automatically.
+         *
+         * @param parentKey the key of the parent object, typically its primary key.
+         * @param data the nested collection of the parent object.
+         */
+        public void bind(long parentKey, @Nullable OrderedRealmCollection<C> data) {
+            OrderedRealmCollection<C> current = adapter.getData();
+            if (bound && parentKey == this.parentKey && current != null && current.isValid()) {
+                return;
+            }
+            if (bound) {
+                saveScrollState();
+            }
+            this.parentKey = parentKey;
+            this.bound = true;
+            adapter.updateData(data);
+            // The new data is loaded from scratch anyway.
+            pausedAtVersion = realmVersion;
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (layoutManager != null) {
+                Parcelable state = scrollStates.get(parentKey);
+                if (state != null) {
+                    layoutManager.onRestoreInstanceState(state);
+                } else {
+                    layoutManager.scrollToPosition(0);
+                }
+            }
+        }
+
+        /**
+         * Starts listening to changes again. Call this from {@code onViewAttachedToWindow()} of the parent adapter.
+         */
+        public void onAttached() {
+            if (attached) {
+                return;
+            }
+            attached = true;
+            adapter.resumeUpdates(pausedAtVersion != realmVersion);
+        }
+
+        /**
+         * Saves the scroll position and stops listening to changes. Call this from
+         * {@code onViewDetachedFromWindow()} of the parent adapter.
+         */
+        public void onDetached() {
+            attached = false;
+            if (bound) {
+                saveScrollState();
+            }
+            adapter.pauseUpdates();
+            pausedAtVersion = realmVersion;
+        }
+
+        private void saveScrollState() {
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            Parcelable state = layoutManager != null ? layoutManager.onSaveInstanceState() : null;
+            if (state != null) {
+                scrollStates.put(parentKey, state, 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Runs asynchronous transactions whose effect on a {@link RealmRecyclerViewAdapter} is shown right away, instead of
+ * once the transaction has been committed and the change listener has been called.
+ * <p>
+ * Removed items are hidden from the adapter immediately, and inserted items are represented by an unmanaged
+ * placeholder object until the row is reported by a change set. The change set is reconciled with these pending
+ * mutations, so they are not animated twice: a hidden row being deleted is not reported again, and a row inserted
+ * right where its placeholder is shown replaces it in place. If the transaction fails, or does not affect the
+ * adapter's data, the pending mutations are rolled back.
+ * <p>
+ * The adapter needs a {@link RealmKeyProvider}, see {@link RealmRecyclerViewAdapter#setKeyProvider(RealmKeyProvider)},
+ * and must receive automatic updates. Otherwise the transactions are run without showing their effect in advance.
+ * This class must be used on the thread owning the adapter data.
+ *
+ * @param <T> type of {@link RealmModel} shown by the adapter.
+ */
+public final class RealmOptimisticEditor<T extends RealmModel> {
+
+    private final Realm realm;
+    private final RealmRecyclerViewAdapter<T, ?> adapter;
+
+    /**
+     * @param realm the Realm used to start the asynchronous transactions.
+     * @param adapter the adapter to show the mutations in.
+     */
+    public RealmOptimisticEditor(@NonNull Realm realm, @NonNull RealmRecyclerViewAdapter<T, ?> adapter) {
+        this.realm = realm;
+        this.adapter = adapter;
+    }
+
+    /**
+     * Shows a placeholder for an object and runs the transaction creating it.
+     *
+     * @param position the adapter position to show the placeholder at, including
+     *                 {@link RealmRecyclerViewAdapter#dataOffset()}.
+     * @param key the key of the object created by the transaction, as returned by the {@link RealmKeyProvider}.
+     * @param placeholder an unmanaged object returned by {@link RealmRecyclerViewAdapter#getItem(int)} until the
+     *                    object is reported by a change set.
+     * @param transaction the transaction creating the object.
+     * @param callback optional callback notified once the transaction is done.
+     * @return the task running the transaction.
+     */
+    @NonNull
+    public RealmAsyncTask insertAsync(int position, long key, @NonNull T placeholder,
+                                      @NonNull Realm.Transaction transaction,
+                                      @Nullable RealmBulkEditor.Callback callback) {
+        if (RealmObject.isManaged(placeholder)) {
+            throw new IllegalArgumentException("The placeholder must be an unmanaged object.");
+        }
+        int token = adapter.insertPlaceholder(position - adapter.dataOffset(), key, placeholder);
+        return execute(token, transaction, callback);
+    }
+
+    /**
+     * Hides the items with the given keys and runs the transaction removing them.
+     *
+     * @param keys the keys of the items removed by the transaction, as returned by the {@link RealmKeyProvider}.
+     * @param transaction the transaction removing the objects from the adapter's data, e.g. by deleting them.
+     * @param callback optional callback notified once the transaction is done.
+     * @return the task running the transaction.
+     */
+    @NonNull
+    public RealmAsyncTask removeAsync(@NonNull long[] keys, @NonNull Realm.Transaction transaction,
+                                      @Nullable RealmBulkEditor.Callback callback) {
+        int token = adapter.hideKeys(keys);
+        return execute(token, transaction, callback);
+    }
+
+    private RealmAsyncTask execute(final int token, Realm.Transaction transaction,
+                                   @Nullable final RealmBulkEditor.Callback callback) {
+        return realm.executeTransactionAsync(transaction, new Realm.Transaction.OnSuccess() {
+            @Override
+            public void onSuccess() {
+                adapter.settlePending(token);
+                if (callback != null) {
+                    callback.onSuccess();
+                }
+            }
+        }, new Realm.Transaction.OnError() {
+            @Override
+            public void onError(@NonNull Throwable error) {
+                adapter.restorePending(token);
+                if (callback != null) {
+                    callback.onError(error);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.widget.TextView;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+
+/**
+ * {@link RealmBackgroundCache} of {@link PrecomputedTextCompat} for {@code String} fields, so the text measurement of
+ * long strings happens on the worker thread instead of in {@code onBindViewHolder()}. The cache is bounded by the
+ * number of characters of the cached texts.
+ * <p>
+ * The text of each field is measured with the {@link PrecomputedTextCompat.Params} of the TextView it is shown in,
+ * obtained with {@link TextViewCompat#getTextMetricsParams(TextView)}. In {@code onBindViewHolder()}, call
+ * {@link #setText(TextView, long, int, CharSequence)} which shows the precomputed text if it is ready and the plain
+ * text otherwise.
+ *
+ * @param <T> type of {@link RealmModel} the strings are stored in.
+ */
+public class RealmPrecomputedTextCache<T extends RealmModel>
+        extends RealmBackgroundCache<T, PrecomputedTextCompat> {
+
+    private final String[] fields;
+    private final PrecomputedTextCompat.Params[] params;
+
+    /**
+     * @param configuration configuration of the Realm containing the objects.
+     * @param className name of the Realm model class of the objects.
+     * @param keyField name of the integral primary key field.
+     * @param fields names of the {@code String} fields to measure.
+     * @param params text parameters of the TextView showing each field, aligned with {@code fields}.
+     * @param keyProvider provider of the key of each object.
+     * @param maxChars maximum number of characters of the cached texts.
+     */
+    public RealmPrecomputedTextCache(@NonNull RealmConfiguration configuration, @NonNull String className,
+                                     @NonNull String keyField, @NonNull String[] fields,
+                                     @NonNull PrecomputedTextCompat.Params[] params,
+                                     @NonNull RealmKeyProvider<T> keyProvider, int maxChars) {
+        super(configuration, className, keyField, fields, keyProvider, maxChars);
+        if (params.length != fields.length) {
+            throw new IllegalArgumentException("One Params is required per field. Fields: " + fields.length
+                    + ", params: " + params.length);
+        }
+        this.fields = fields.clone();
+        this.params = params.clone();
+    }
+
+    /**
+     * Shows the text of a field in a TextView, precomputed if it has been loaded and as plain text otherwise. If the
+     * text parameters of the TextView no longer match those the text was measured with, the plain text is shown.
+     *
+     * @param textView the TextView to show the text in.
+     * @param key the key of the object.
+     * @param field the index of the field in the {@code fields} given to the constructor.
+     * @param text the plain text of the field, shown until the precomputed text is ready.
+     * @return {@code true} if the precomputed text was shown.
+     */
+    @MainThread
+    public boolean setText(@NonNull TextView textView, long key, int field, @Nullable CharSequence text) {
+        PrecomputedTextCompat precomputed = get(key, field);
+        if (precomputed != null && precomputed.getParams().equals(TextViewCompat.getTextMetricsParams(textView))) {
+            TextViewCompat.setPrecomputedText(textView, precomputed);
+            return true;
+        }
+        textView.setText(text);
+        return false;
+    }
+
+    @Nullable
+    @Override
+    protected PrecomputedTextCompat load(@NonNull DynamicRealmObject object, @NonNull String field) {
+        String text = object.getString(field);
+        if (text == null) {
+            return null;
+        }
+        return PrecomputedTextCompat.create(text, params[indexOf(field)]);
+    }
+
+    @Override
+    protected int sizeOf(@NonNull PrecomputedTextCompat value) {
+        return value.length();
+    }
+
+    private int indexOf(String field) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(field)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown field: " + field);
+    }
+}
@@ -16,6 +16,10 @@
 
 package io.realm;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.RecyclerView;
@@ -40,44 +44,92 @@ import androidx.recyclerview.widget.RecyclerView;
 public abstract class RealmRecyclerViewAdapter<T extends RealmModel, S extends RecyclerView.ViewHolder>
         extends RecyclerView.Adapter<S> {
 
+    /**
+     * Notified after {@link #updateData(OrderedRealmCollection)} has replaced the collection of an adapter, by helpers
+     * following the collection of an adapter.
+     */
+    interface DataReplacedListener {
+        void onDataReplaced(@Nullable OrderedRealmCollection<?> data);
+    }
+
     private final boolean hasAutoUpdates;
     private final boolean updateOnModification;
     private final OrderedRealmCollectionChangeListener listener;
+    private final ChangeSetDispatcher.Target target = new AdapterNotificationTarget(this);
+    private final PositionOverlay overlay = new PositionOverlay();
+    private final LocalMove localMove = new LocalMove();
+    private final PositionOverlay.KeySource keySource = new PositionOverlay.KeySource() {
+        @Override
+        public long getKey(int dataIndex) {
+            //noinspection ConstantConditions
+            return keyIndex.getKey(dataIndex);
+        }
+    };
     @Nullable
     private OrderedRealmCollection<T> adapterData;
+    @Nullable
+    private KeyPositionIndex<T> keyIndex;
+    @Nullable
+    private ViewTypeCache<T> viewTypes;
+    @Nullable
+    private RealmAdapterMetrics metrics;
+    private final List<DataReplacedListener> dataReplacedListeners = new ArrayList<>(0);
+    private boolean listening;
+    private boolean paused;
+    // Whether to listen again once resumed.
+    private boolean resumeListening;
+
+    private static final OrderedCollectionChangeSet.Range[] NO_RANGES = new OrderedCollectionChangeSet.Range[0];
 
     private OrderedRealmCollectionChangeListener createListener() {
         return new OrderedRealmCollectionChangeListener() {
             @Override
             public void onChange(Object collection, OrderedCollectionChangeSet changeSet) {
-                if (changeSet.getState() == OrderedCollectionChangeSet.State.INITIAL) {
-                    notifyDataSetChanged();
-                    return;
-                }
-                // For deletions, the adapter has to be notified in reverse order.
-                OrderedCollectionChangeSet.Range[] deletions = changeSet.getDeletionRanges();
-                for (int i = deletions.length - 1; i >= 0; i--) {
-                    OrderedCollectionChangeSet.Range range = deletions[i];
-                    notifyItemRangeRemoved(range.startIndex + dataOffset(), range.length);
-                }
-
-                OrderedCollectionChangeSet.Range[] insertions = changeSet.getInsertionRanges();
-                for (OrderedCollectionChangeSet.Range range : insertions) {
-                    notifyItemRangeInserted(range.startIndex + dataOffset(), range.length);
-                }
-
-                if (!updateOnModification) {
-                    return;
+                boolean trace = RealmAdapterTracing.enabled;
+                if (trace) {
+                    RealmAdapterTracing.beginSection(RealmAdapterTracing.SECTION_CHANGE);
+                    RealmAdapterTracing.countChanges(changeSet);
                 }
-
-                OrderedCollectionChangeSet.Range[] modifications = changeSet.getChangeRanges();
-                for (OrderedCollectionChangeSet.Range range : modifications) {
-                    notifyItemRangeChanged(range.startIndex + dataOffset(), range.length);
+                try {
+                    onCollectionChanged(changeSet);
+                } finally {
+                    if (trace) {
+                        RealmAdapterTracing.endSection();
+                    }
                 }
             }
         };
     }
 
+    private void onCollectionChanged(OrderedCollectionChangeSet changeSet) {
+        long start = metrics != null ? System.nanoTime() : 0;
+        if (keyIndex != null) {
+            keyIndex.apply(changeSet);
+        }
+        if (viewTypes != null) {
+            viewTypes.apply(changeSet);
+        }
+        // Rows hidden ahead of their deletion have already been reported as removed.
+        OrderedCollectionChangeSet visibleChanges = overlay.translate(changeSet,
+                keyIndex != null ? keySource : null);
+        if (localMove.isActive()) {
+            if (localMove.isEcho(visibleChanges)) {
+                // The move is already shown, only modifications are left to dispatch.
+                localMove.clear();
+                visibleChanges = new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE,
+                        NO_RANGES, NO_RANGES, visibleChanges.getChangeRanges(), null, true);
+            } else {
+                revertLocalMove();
+            }
+        }
+        ChangeSetDispatcher.dispatch(visibleChanges, dataOffset(), updateOnModification, target);
+        // Pending items of committed transactions which this change set did not reconcile will never be.
+        overlay.restoreSettled(dataOffset(), target);
+        if (metrics != null) {
+            reportChange(System.nanoTime() - start, visibleChanges);
+        }
+    }
+
     /**
      * Returns the number of header elements before the Realm collection elements. This is needed so
      * all indexes reported by the {@link OrderedRealmCollectionChangeListener} can be adjusted
@@ -142,8 +194,74 @@ public abstract class RealmRecyclerViewAdapter<T extends RealmModel, S extends R
 
     @Override
     public int getItemCount() {
+        if (metrics != null) {
+            metrics.onGetItemCount();
+        }
+        return getDataItemCount();
+    }
+
+    /**
+     * Binds the ViewHolder, measuring the time spent if a {@link RealmAdapterMetrics} has been set and emitting a trace
+     * section if {@link RealmAdapterTracing} is enabled. Subclasses overriding this method must call {@code super} for
+     * binds to be measured and traced.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull S holder, int position, @NonNull List<Object> payloads) {
+        boolean trace = RealmAdapterTracing.enabled;
+        if (metrics == null && !trace) {
+            super.onBindViewHolder(holder, position, payloads);
+            return;
+        }
+        if (trace) {
+            RealmAdapterTracing.beginSection(RealmAdapterTracing.SECTION_BIND);
+        }
+        try {
+            long start = metrics != null ? System.nanoTime() : 0;
+            super.onBindViewHolder(holder, position, payloads);
+            if (metrics != null) {
+                metrics.onBind(System.nanoTime() - start);
+            }
+        } finally {
+            if (trace) {
+                RealmAdapterTracing.endSection();
+            }
+        }
+    }
+
+    /**
+     * Returns the view type reported by the {@link RealmViewTypeProvider} set using
+     * {@link #setViewTypeProvider(RealmViewTypeProvider)} for positions of the collection, and
+     * {@link RecyclerView.Adapter#getItemViewType(int) super.getItemViewType()} otherwise. Subclasses with header or
+     * footer elements can override this method and call {@code super} for the other positions.
+     *
+     * @param position the adapter position, including {@link #dataOffset()}.
+     * @return the view type of the item at that position.
+     */
+    @Override
+    public int getItemViewType(int position) {
+        int index = position - dataOffset();
+        if (viewTypes == null || index < 0 || index >= getDataItemCount()) {
+            return super.getItemViewType(position);
+        }
+        int dataIndex = toDataIndex(index);
+        if (dataIndex < 0) {
+            //noinspection unchecked
+            return viewTypes.getViewTypeProvider().getViewType((T) overlay.getPlaceholderItem(dataIndex));
+        }
+        if (!listening && !viewTypes.isMaintained()) {
+            // Changes are not observed, so cached view types cannot be trusted.
+            //noinspection ConstantConditions
+            return viewTypes.getViewTypeProvider().getViewType(adapterData.get(dataIndex));
+        }
+        return viewTypes.getViewType(dataIndex);
+    }
+
+    /**
+     * Returns the number of items shown for the collection, without header or footer elements.
+     */
+    int getDataItemCount() {
         //noinspection ConstantConditions
-        return isDataValid() ? adapterData.size() : 0;
+        return isDataValid() ? adapterData.size() + overlay.getSizeDelta() : 0;
     }
 
     /**
@@ -156,7 +274,9 @@ public abstract class RealmRecyclerViewAdapter<T extends RealmModel, S extends R
      * Also, this method does not take into account any header views. If these are present, modify
      * the {@code index} parameter accordingly first.
      *
-     * @param index index of the item in the original collection backing this adapter.
+     * @param index index of the item as currently shown, without {@link #dataOffset()}. Rows hidden or inserted
+     *              ahead of a write and an ongoing local move are taken into account, so it is only the index in the
+     *              collection backing this adapter while neither is pending.
      * @return the item at the specified position or {@code null} if the position does not exists or
      * the adapter data are no longer valid.
      */
@@ -169,9 +289,20 @@ public abstract class RealmRecyclerViewAdapter<T extends RealmModel, S extends R
 
         // To avoid exception, return null if there are some extra positions that the
         // child adapter is adding in getItemCount (e.g: to display footer view in recycler view)
-        if(adapterData != null && index >= adapterData.size()) return null;
+        if(adapterData != null && index >= adapterData.size() + overlay.getSizeDelta()) return null;
+        if (!isDataValid()) {
+            return null;
+        }
+        int dataIndex = toDataIndex(index);
+        if (dataIndex < 0) {
+            //noinspection unchecked
+            return (T) overlay.getPlaceholderItem(dataIndex);
+        }
+        if (metrics != null) {
+            metrics.onGetItem();
+        }
         //noinspection ConstantConditions
-        return isDataValid() ? adapterData.get(index) : null;
+        return adapterData.get(dataIndex);
     }
 
     /**
@@ -184,6 +315,288 @@ public abstract class RealmRecyclerViewAdapter<T extends RealmModel, S extends R
         return adapterData;
     }
 
+    /**
+     * Enables an index from the key of each item to its position, used by {@link #getPositionForKey(long)}.
+     * <p>
+     * The index is built once and then patched from the change sets of the collection, so it is only maintained
+     * incrementally while the adapter receives automatic updates. Otherwise it is rebuilt on every lookup.
+     *
+     * @param keyProvider provider of the key of each item, typically its primary key. {@code null} disables the
+     *                    index.
+     */
+    public void setKeyProvider(@Nullable RealmKeyProvider<T> keyProvider) {
+        if (keyProvider == null) {
+            keyIndex = null;
+            return;
+        }
+        keyIndex = new KeyPositionIndex<>(keyProvider);
+        keyIndex.reset(adapterData);
+    }
+
+    /**
+     * Sets the receiver of measurements of the change listener, {@link #getItem(int)}, {@link #getItemCount()} and
+     * binds of this adapter.
+     *
+     * @param metrics the receiver of the measurements, for instance a {@link RealmMetricsRecorder}. {@code null}
+     *                disables measuring.
+     */
+    public void setMetrics(@Nullable RealmAdapterMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the provider of the view type of each item, typically read from a discriminator field, and makes
+     * {@link #getItemViewType(int)} use it.
+     * <p>
+     * View types are cached in an array aligned with the collection and patched from its change sets, so
+     * {@link #getItemViewType(int)} only reads from Realm for items which were inserted or modified since their view
+     * type was last read. The cache is only used while the adapter receives automatic updates.
+     *
+     * @param viewTypeProvider provider of the view type of each item. {@code null} restores the default
+     *                         {@link #getItemViewType(int)}.
+     */
+    public void setViewTypeProvider(@Nullable RealmViewTypeProvider<T> viewTypeProvider) {
+        if (viewTypeProvider == null) {
+            viewTypes = null;
+            return;
+        }
+        viewTypes = new ViewTypeCache<>(viewTypeProvider);
+        viewTypes.reset(adapterData);
+    }
+
+    /**
+     * Returns the adapter position of the item with the given key, including {@link #dataOffset()}. This requires a
+     * {@link RealmKeyProvider} to be set using {@link #setKeyProvider(RealmKeyProvider)}.
+     *
+     * @param key the key of the item.
+     * @return the position of the item or {@link RecyclerView#NO_POSITION} if no item has that key.
+     * @throws IllegalStateException if no {@link RealmKeyProvider} has been set.
+     */
+    public int getPositionForKey(long key) {
+        KeyPositionIndex<T> index = getKeyIndex();
+        int position = index.getPosition(key);
+        if (position != LongIntHashMap.NO_VALUE) {
+            position = overlay.toVisibleIndex(position);
+        } else if (overlay.getPlaceholderCount() > 0) {
+            position = overlay.findPlaceholder(key);
+        }
+        if (position >= 0) {
+            position = localMove.toMovedIndex(position);
+        }
+        return position < 0 ? RecyclerView.NO_POSITION : position + dataOffset();
+    }
+
+    /**
+     * Returns the key of the item at the given index, as reported by the {@link RealmKeyProvider} set using
+     * {@link #setKeyProvider(RealmKeyProvider)}.
+     *
+     * @param index index of the item as currently shown, without {@link #dataOffset()}, translated to the collection
+     *              like in {@link #getItem(int)}.
+     * @return the key of the item.
+     * @throws IllegalStateException if no {@link RealmKeyProvider} has been set.
+     */
+    public long getKey(int index) {
+        KeyPositionIndex<T> keyIndex = getKeyIndex();
+        int dataIndex = toDataIndex(index);
+        return dataIndex < 0 ? overlay.getPlaceholderKey(dataIndex) : keyIndex.getKey(dataIndex);
+    }
+
+    /**
+     * Removes the items with the given keys from the adapter ahead of their deletion from Realm. The removal is
+     * notified at once, merged into as few ranges as possible, and the change set confirming the deletion is not
+     * dispatched again.
+     * <p>
+     * This only has an effect if a {@link RealmKeyProvider} has been set and the adapter receives automatic updates.
+     *
+     * @return a token to pass to {@link #restorePending(int)} if the deletion fails.
+     */
+    int hideKeys(@NonNull long[] keys) {
+        if (keyIndex == null || !listening) {
+            return 0;
+        }
+        revertLocalMove();
+        int[] indexes = new int[keys.length];
+        int count = 0;
+        for (long key : keys) {
+            int index = keyIndex.getPosition(key);
+            if (index != LongIntHashMap.NO_VALUE) {
+                indexes[count++] = index;
+            }
+        }
+        return overlay.hide(Arrays.copyOf(indexes, count), dataOffset(), target);
+    }
+
+    /**
+     * Shows a placeholder item ahead of the insertion of the row with the given key. Once the row is reported by a
+     * change set, it replaces the placeholder.
+     * <p>
+     * This only has an effect if a {@link RealmKeyProvider} has been set and the adapter receives automatic updates.
+     *
+     * @param index the index to show the placeholder at, without {@link #dataOffset()}.
+     * @return a token to pass to {@link #restorePending(int)} if the insertion fails.
+     */
+    int insertPlaceholder(int index, long key, @NonNull T item) {
+        if (keyIndex == null || !listening || !isDataValid()) {
+            return 0;
+        }
+        revertLocalMove();
+        //noinspection ConstantConditions
+        return overlay.insert(index, adapterData.size(), key, item, dataOffset(), target);
+    }
+
+    /**
+     * Rolls back the hidden items and placeholders of the given token which have not been reconciled with a change
+     * set yet.
+     */
+    void restorePending(int token) {
+        if (token == 0) {
+            return;
+        }
+        revertLocalMove();
+        overlay.restore(token, dataOffset(), target);
+    }
+
+    /**
+     * Rolls back the pending items of a successful transaction which the next change set of the collection does not
+     * reconcile, e.g. because the transaction did not affect the data of this adapter. Items are rolled back right
+     * after that change set has been dispatched, so they are not shown again in between, also if the change set of a
+     * collection queried asynchronously only arrives some frames after the transaction.
+     * <p>
+     * Must be called once the Realm of the adapter has been updated to the version of the transaction, e.g. from
+     * {@link Realm.Transaction.OnSuccess}. Every change set reported after that is at least of that version.
+     */
+    void settlePending(int token) {
+        if (token == 0) {
+            return;
+        }
+        overlay.settle(token);
+    }
+
+    /**
+     * Moves an item locally, without writing to Realm. The move is undone by the next change set unless it is the
+     * echo of the move once committed, see {@link LocalMove#commit()}.
+     *
+     * @return {@code false} if the move could not be applied.
+     */
+    boolean moveLocally(int fromIndex, int toIndex) {
+        if (!listening || !localMove.move(fromIndex, toIndex)) {
+            return false;
+        }
+        notifyItemMoved(fromIndex + dataOffset(), toIndex + dataOffset());
+        return true;
+    }
+
+    LocalMove getLocalMove() {
+        return localMove;
+    }
+
+    /**
+     * Undoes the local move, if any.
+     */
+    void revertLocalMove() {
+        if (localMove.isActive()) {
+            int from = localMove.getFrom();
+            int to = localMove.getTo();
+            localMove.clear();
+            notifyItemMoved(to + dataOffset(), from + dataOffset());
+        }
+    }
+
+    /**
+     * Dispatches a replayed change set to the RecyclerView, measured and traced like a change reported by Realm. The
+     * collection has not changed, so the key index, the view type cache and the overlay are left untouched.
+     */
+    void dispatchReplayed(@NonNull OrderedCollectionChangeSet changeSet) {
+        boolean trace = RealmAdapterTracing.enabled;
+        if (trace) {
+            RealmAdapterTracing.beginSection(RealmAdapterTracing.SECTION_CHANGE);
+            RealmAdapterTracing.countChanges(changeSet);
+        }
+        try {
+            long start = metrics != null ? System.nanoTime() : 0;
+            ChangeSetDispatcher.dispatch(changeSet, dataOffset(), updateOnModification, target);
+            if (metrics != null) {
+                reportChange(System.nanoTime() - start, changeSet);
+            }
+        } finally {
+            if (trace) {
+                RealmAdapterTracing.endSection();
+            }
+        }
+    }
+
+    @Nullable
+    KeyPositionIndex<T> getKeyIndexCache() {
+        return keyIndex;
+    }
+
+    @Nullable
+    ViewTypeCache<T> getViewTypeCache() {
+        return viewTypes;
+    }
+
+    /**
+     * Replaces the key index and the view type cache of this adapter, for those which are set, by the given ones kept
+     * up to date by a {@link RealmCollectionViewModel}.
+     */
+    void useCaches(@Nullable KeyPositionIndex<T> keyIndex, @Nullable ViewTypeCache<T> viewTypes) {
+        if (this.keyIndex != null && keyIndex != null) {
+            this.keyIndex = keyIndex;
+        }
+        if (this.viewTypes != null && viewTypes != null) {
+            this.viewTypes = viewTypes;
+        }
+    }
+
+    void addDataReplacedListener(@NonNull DataReplacedListener listener) {
+        dataReplacedListeners.add(listener);
+    }
+
+    void removeDataReplacedListener(@NonNull DataReplacedListener listener) {
+        dataReplacedListeners.remove(listener);
+    }
+
+    boolean isListening() {
+        return listening;
+    }
+
+    /**
+     * Returns the index in the collection of the item shown at the given index.
+     */
+    int toDataIndex(int index) {
+        return overlay.toDataIndex(localMove.toOriginalIndex(index));
+    }
+
+    /**
+     * Returns the index in the collection of the given index, ignoring the local move. Used to map the positions of
+     * the local move itself, which are given before and after the move.
+     */
+    int toUnmovedDataIndex(int index) {
+        return overlay.toDataIndex(index);
+    }
+
+    private void reportChange(long durationNanos, OrderedCollectionChangeSet changeSet) {
+        //noinspection ConstantConditions
+        if (changeSet.getState() == OrderedCollectionChangeSet.State.INITIAL) {
+            metrics.onChangeDispatched(durationNanos, 0, getDataItemCount(), true);
+        } else {
+            metrics.onChangeDispatched(durationNanos,
+                    ChangeSetDispatcher.countRanges(changeSet, updateOnModification),
+                    ChangeSetDispatcher.countItems(changeSet, updateOnModification), false);
+        }
+    }
+
+    private KeyPositionIndex<T> getKeyIndex() {
+        if (keyIndex == null) {
+            throw new IllegalStateException("No RealmKeyProvider has been set. Call setKeyProvider() first.");
+        }
+        if (!listening && !keyIndex.isMaintained()) {
+            // Changes are not observed, so the index cannot be trusted.
+            keyIndex.invalidate();
+        }
+        return keyIndex;
+    }
+
     /**
      * Updates the data associated to the Adapter. Useful when the query has been changed.
      * If the query does not change you might consider using the automaticUpdate feature.
@@ -192,45 +605,138 @@ public abstract class RealmRecyclerViewAdapter<T extends RealmModel, S extends R
      */
     @SuppressWarnings("WeakerAccess")
     public void updateData(@Nullable OrderedRealmCollection<T> data) {
-        if (hasAutoUpdates) {
-            if (isDataValid()) {
-                //noinspection ConstantConditions
-                removeListener(adapterData);
+        boolean trace = RealmAdapterTracing.enabled;
+        if (trace) {
+            RealmAdapterTracing.beginSection(RealmAdapterTracing.SECTION_UPDATE_DATA);
+        }
+        try {
+            if (hasAutoUpdates) {
+                if (isDataValid()) {
+                    //noinspection ConstantConditions
+                    removeListener(adapterData);
+                }
+                if (data != null) {
+                    addListener(data);
+                }
+            }
+
+            boolean replaced = data != adapterData;
+            this.adapterData = data;
+            overlay.clear();
+            localMove.clear();
+            if (keyIndex != null) {
+                if (replaced && keyIndex.isMaintained()) {
+                    // The cache kept by a ViewModel stays with its collection.
+                    keyIndex = new KeyPositionIndex<>(keyIndex.getKeyProvider());
+                }
+                keyIndex.reset(data);
+            }
+            if (viewTypes != null) {
+                if (replaced && viewTypes.isMaintained()) {
+                    viewTypes = new ViewTypeCache<>(viewTypes.getViewTypeProvider());
+                }
+                viewTypes.reset(data);
             }
-            if (data != null) {
-                addListener(data);
+            notifyDataSetChanged();
+            // Listeners might remove themselves while being notified.
+            for (DataReplacedListener dataReplacedListener
+                    : dataReplacedListeners.toArray(new DataReplacedListener[0])) {
+                dataReplacedListener.onDataReplaced(data);
+            }
+        } finally {
+            if (trace) {
+                RealmAdapterTracing.endSection();
             }
         }
+    }
 
-        this.adapterData = data;
-        notifyDataSetChanged();
+    /**
+     * Stops listening to changes of the collection until {@link #resumeUpdates(boolean)} is called, e.g. while the
+     * RecyclerView showing this adapter is off screen.
+     */
+    void pauseUpdates() {
+        if (paused) {
+            return;
+        }
+        boolean wasListening = listening;
+        if (listening && isDataValid()) {
+            //noinspection ConstantConditions
+            removeListener(adapterData);
+        }
+        paused = true;
+        resumeListening = wasListening;
+    }
+
+    /**
+     * Listens to changes of the collection again after {@link #pauseUpdates()}.
+     *
+     * @param changed whether the data might have changed while paused. Changes missed while paused can only be
+     *                reported as {@code notifyDataSetChanged()}.
+     */
+    void resumeUpdates(boolean changed) {
+        if (!paused) {
+            return;
+        }
+        paused = false;
+        if (resumeListening && isDataValid()) {
+            //noinspection ConstantConditions
+            addListener(adapterData);
+            if (changed) {
+                notifyDataSetChanged();
+            }
+        }
+        resumeListening = false;
     }
 
     private void addListener(@NonNull OrderedRealmCollection<T> data) {
-        if (data instanceof RealmResults) {
-            RealmResults<T> results = (RealmResults<T>) data;
-            //noinspection unchecked
-            results.addChangeListener(listener);
-        } else if (data instanceof RealmList) {
-            RealmList<T> list = (RealmList<T>) data;
-            //noinspection unchecked
-            list.addChangeListener(listener);
-        } else {
-            throw new IllegalArgumentException("RealmCollection not supported: " + data.getClass());
+        if (paused) {
+            resumeListening = true;
+            return;
+        }
+        boolean trace = RealmAdapterTracing.enabled;
+        if (trace) {
+            RealmAdapterTracing.beginSection(RealmAdapterTracing.SECTION_ADD_LISTENER);
+        }
+        try {
+            SharedCollectionObserver.subscribe(data, listener);
+        } finally {
+            if (trace) {
+                RealmAdapterTracing.endSection();
+            }
+        }
+        listening = true;
+        // Changes might have been missed while not listening, unless a ViewModel kept the caches up to date.
+        if (keyIndex != null && !keyIndex.isMaintained()) {
+            keyIndex.invalidate();
+        }
+        if (viewTypes != null && !viewTypes.isMaintained()) {
+            viewTypes.invalidate();
         }
     }
 
     private void removeListener(@NonNull OrderedRealmCollection<T> data) {
-        if (data instanceof RealmResults) {
-            RealmResults<T> results = (RealmResults<T>) data;
-            //noinspection unchecked
-            results.removeChangeListener(listener);
-        } else if (data instanceof RealmList) {
-            RealmList<T> list = (RealmList<T>) data;
-            //noinspection unchecked
-            list.removeChangeListener(listener);
-        } else {
-            throw new IllegalArgumentException("RealmCollection not supported: " + data.getClass());
+        if (paused) {
+            resumeListening = false;
+            return;
+        }
+        boolean trace = RealmAdapterTracing.enabled;
+        if (trace) {
+            RealmAdapterTracing.beginSection(RealmAdapterTracing.SECTION_REMOVE_LISTENER);
+        }
+        try {
+            SharedCollectionObserver.unsubscribe(data, listener);
+        } finally {
+            if (trace) {
+                RealmAdapterTracing.endSection();
+            }
+        }
+        listening = false;
+        // Deletions of hidden rows and echoes of moves can no longer be observed, so the collection is shown as is.
+        // The RecyclerView might still be attached, e.g. when paused, so it must be told about the new positions.
+        if (!overlay.isEmpty() || localMove.isActive()) {
+            overlay.clear();
+            localMove.clear();
+            notifyDataSetChanged();
         }
     }
 
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.functions.Consumer;
+import io.reactivex.functions.Function;
+import io.reactivex.functions.Predicate;
+import io.realm.log.RealmLog;
+import io.realm.rx.CollectionChange;
+
+/**
+ * A variant of {@link RealmRecyclerViewAdapter} that is driven by the change set stream of the collection,
+ * {@link RealmResults#asChangesetObservable()} or {@link RealmList#asChangesetObservable()}, instead of a plain change
+ * listener.
+ * <p>
+ * Every change set is turned into a {@link ChangesetEvent} and emitted as a {@link Flowable} using the given
+ * {@link BackpressureStrategy}. An optional {@link FlowableTransformer} can then debounce, sample, filter or move the
+ * events to other schedulers before the adapter consumes them on the main thread.
+ * <p>
+ * No change set is ever lost: every change set is merged into the pending update as soon as Realm reports it, and
+ * when an event is consumed, the pending update is dispatched at once. Events dropped by the backpressure strategy or
+ * the transformer are therefore folded into the next event that reaches the adapter, and only the latest snapshot is
+ * retained however many events are dropped. Between two updates the adapter reads from a snapshot of the collection
+ * matching the last dispatched change set.
+ * <p>
+ * If the stream fails, e.g. because the transformer throws or {@link BackpressureStrategy#ERROR} signals a
+ * {@code MissingBackpressureException}, the adapter stops listening, shows the current content of the collection with
+ * {@link #notifyDataSetChanged()} and reports the error to {@link #onChangesetError(Throwable)}. It listens again once
+ * it is re-attached or {@link #updateData(OrderedRealmCollection)} is called.
+ * <p>
+ * RxJava 2 must be added to the app's dependencies to use this adapter.
+ *
+ * @param <T> type of {@link RealmModel} stored in the adapter.
+ * @param <S> type of RecyclerView.ViewHolder used in the adapter.
+ * @see RealmRecyclerViewAdapter
+ */
+public abstract class RealmRxRecyclerViewAdapter<T extends RealmModel, S extends RecyclerView.ViewHolder>
+        extends SnapshotBackedRecyclerViewAdapter<T, S> {
+
+    /**
+     * A change of the collection observed by the adapter. Events can safely be inspected on any thread.
+     */
+    public static final class ChangesetEvent {
+        private final long sequence;
+        private final OrderedCollectionChangeSet changeSet;
+
+        ChangesetEvent(long sequence, OrderedCollectionChangeSet changeSet) {
+            this.sequence = sequence;
+            this.changeSet = changeSet;
+        }
+
+        /**
+         * Returns the position of this event in the stream, starting at {@code 1}.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+
+        /**
+         * Returns the change set reported by Realm for this event.
+         */
+        public OrderedCollectionChangeSet getChangeSet() {
+            return changeSet;
+        }
+    }
+
+    private final boolean updateOnModification;
+    private final BackpressureStrategy backpressureStrategy;
+    @Nullable
+    private final FlowableTransformer<ChangesetEvent, ChangesetEvent> transformer;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ChangeSetDispatcher.Target target = new AdapterNotificationTarget(this);
+    // Only accessed from the main thread, which is the thread of the Realm.
+    private final ChangeSetAccumulator accumulator = new ChangeSetAccumulator(0);
+    // Snapshot matching the changes merged into the accumulator.
+    @Nullable
+    private OrderedRealmCollection<T> pendingSnapshot;
+    @Nullable
+    private Disposable subscription;
+    // Incremented whenever listening starts or stops, so errors of previous subscriptions can be told apart.
+    private int generation;
+    // Sequence number of the last change set merged into the accumulator.
+    private long pendingSequence;
+    // Sequence number of the last change set dispatched or discarded.
+    private long lastSequence;
+
+    /**
+     * @param data collection data to be used by this adapter.
+     * @param updateOnModification when it is {@code true}, this adapter will be updated when deletions, insertions or
+     *                             modifications happen to the collection data. When it is {@code false}, only
+     *                             deletions and insertions will trigger the updates.
+     * @param backpressureStrategy how to handle events the adapter cannot consume fast enough, e.g.
+     *                             {@link BackpressureStrategy#LATEST} or {@link BackpressureStrategy#BUFFER}.
+     * @param transformer optional transformer applied to the stream of events before they are consumed.
+     */
+    public RealmRxRecyclerViewAdapter(@Nullable OrderedRealmCollection<T> data, boolean updateOnModification,
+                                      @NonNull BackpressureStrategy backpressureStrategy,
+                                      @Nullable FlowableTransformer<ChangesetEvent, ChangesetEvent> transformer) {
+        super(data);
+        this.updateOnModification = updateOnModification;
+        this.backpressureStrategy = backpressureStrategy;
+        this.transformer = transformer;
+    }
+
+    /**
+     * Called on the main thread when the stream of events fails. The adapter has already stopped listening and shows the
+     * current content of the collection. The default implementation logs the error.
+     *
+     * @param error the error signalled by the stream.
+     */
+    public void onChangesetError(@NonNull Throwable error) {
+        RealmLog.warn(error, "The change set stream of the adapter failed, automatic updates are stopped.");
+    }
+
+    @Override
+    void startListening(@NonNull final OrderedRealmCollection<T> data) {
+        accumulator.reset(getSnapshotSize());
+        final int streamGeneration = ++generation;
+        Flowable<ChangesetEvent> events = changesetObservable(data)
+                .filter(new Predicate<CollectionChange<?>>() {
+                    @Override
+                    public boolean test(CollectionChange<?> change) {
+                        // The first emission only carries the current state, which is shown already.
+                        return change.getChangeset() != null;
+                    }
+                })
+                .map(new Function<CollectionChange<?>, ChangesetEvent>() {
+                    @Override
+                    public ChangesetEvent apply(CollectionChange<?> change) {
+                        // Runs on the Realm thread, so the snapshot matches this change set exactly.
+                        //noinspection ConstantConditions
+                        DecodedChangeSet changeSet = DecodedChangeSet.from(change.getChangeset());
+                        accumulator.add(changeSet);
+                        pendingSnapshot = data.createSnapshot();
+                        return new ChangesetEvent(++pendingSequence, changeSet);
+                    }
+                })
+                .toFlowable(backpressureStrategy);
+        if (transformer != null) {
+            events = events.compose(transformer);
+        }
+        Disposable disposable = events.subscribe(new Consumer<ChangesetEvent>() {
+            @Override
+            public void accept(final ChangesetEvent event) {
+                runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        consume(event.getSequence());
+                    }
+                });
+            }
+        }, new Consumer<Throwable>() {
+            @Override
+            public void accept(final Throwable error) {
+                runOnMainThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        fail(streamGeneration, error);
+                    }
+                });
+            }
+        });
+        if (streamGeneration == generation) {
+            subscription = disposable;
+        } else {
+            // The stream failed while subscribing.
+            disposable.dispose();
+        }
+    }
+
+    private void runOnMainThread(Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            handler.post(runnable);
+        }
+    }
+
+    private Observable<CollectionChange<?>> changesetObservable(OrderedRealmCollection<T> data) {
+        //noinspection unchecked
+        return data instanceof RealmResults
+                ? (Observable) ((RealmResults<T>) data).asChangesetObservable()
+                : (Observable) ((RealmList<T>) data).asChangesetObservable();
+    }
+
+    @Override
+    void stopListening() {
+        generation++;
+        if (subscription != null) {
+            subscription.dispose();
+            subscription = null;
+        }
+        lastSequence = pendingSequence;
+        pendingSnapshot = null;
+    }
+
+    @Override
+    boolean isListening() {
+        return subscription != null;
+    }
+
+    private void fail(int streamGeneration, Throwable error) {
+        if (streamGeneration != generation) {
+            // The subscription has already been replaced or stopped.
+            return;
+        }
+        stopListening();
+        takeSnapshot();
+        notifyDataSetChanged();
+        onChangesetError(error);
+    }
+
+    // Dispatches all pending change sets, which include the one of the given sequence number.
+    private void consume(long sequence) {
+        if (subscription == null || sequence <= lastSequence) {
+            // Already dispatched as part of an earlier event, or the adapter has been detached.
+            return;
+        }
+        lastSequence = pendingSequence;
+        if (!accumulator.hasPendingChanges()) {
+            return;
+        }
+        DecodedChangeSet changeSet = accumulator.merge();
+        setSnapshot(pendingSnapshot);
+        pendingSnapshot = null;
+        accumulator.reset(getSnapshotSize());
+        ChangeSetDispatcher.dispatch(changeSet, dataOffset(), updateOnModification, target);
+    }
+}
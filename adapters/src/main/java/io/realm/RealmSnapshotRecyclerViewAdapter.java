@@ -0,0 +1,75 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm;
+
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * RecyclerView adapter showing the snapshots of row models delivered by a {@link RealmBackgroundDataSource}.
+ * <p>
+ * Each snapshot replaces the data of the adapter, and the change set delivered with it is dispatched as fine grained
+ * notifications, so positions reported to the RecyclerView always match the models returned by
+ * {@link #getItem(int)}. The adapter never accesses Realm itself.
+ * <p>
+ * Start the data source with this adapter as its listener, e.g. {@code dataSource.start(adapter)}, and close it once
+ * the adapter is no longer shown.
+ *
+ * @param <M> type of the row models.
+ * @param <S> type of RecyclerView.ViewHolder used in the adapter.
+ */
+public abstract class RealmSnapshotRecyclerViewAdapter<M, S extends RecyclerView.ViewHolder>
+        extends RecyclerView.Adapter<S> implements RealmBackgroundDataSource.Listener<M> {
+
+    private final ChangeSetDispatcher.Target target = new AdapterNotificationTarget(this);
+    private List<M> snapshot = Collections.emptyList();
+
+    @Override
+    public void onSnapshot(@NonNull List<M> snapshot, @NonNull OrderedCollectionChangeSet changeSet) {
+        this.snapshot = snapshot;
+        ChangeSetDispatcher.dispatch(changeSet, 0, true, target);
+    }
+
+    @Override
+    public int getItemCount() {
+        return snapshot.size();
+    }
+
+    /**
+     * Returns the model at the given position of the current snapshot.
+     *
+     * @param index index of the row.
+     * @return the model, or {@code null} if the index is out of bounds.
+     */
+    @Nullable
+    public M getItem(int index) {
+        return index >= 0 && index < snapshot.size() ? snapshot.get(index) : null;
+    }
+
+    /**
+     * Returns the current snapshot. It is never modified, and replaced by the next one.
+     */
+    @NonNull
+    public List<M> getSnapshot() {
+        return snapshot;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.DisplayMetrics;
+import android.util.SparseIntArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.concurrent.Executor;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Creates ViewHolders on a background thread and puts them into a {@link RecyclerView.RecycledViewPool}, so the first
+ * layout of a {@link RecyclerView} only has to bind its rows instead of inflating them.
+ * <p>
+ * Holders are created with {@link RecyclerView.Adapter#createViewHolder(android.view.ViewGroup, int)} on the given
+ * {@link Executor} and handed to the pool on the main thread as soon as each one is ready. The pool is grown as needed
+ * to hold them. The adapter's {@code onCreateViewHolder()} must therefore be safe to call from a background thread,
+ * which is the case when it only inflates a layout and finds its views.
+ * <p>
+ * Typical usage is to set the pool and the adapter on the RecyclerView while the data is still loading, e.g. with a
+ * {@code null} collection, call {@link #preInflateForViewport(RecyclerView, RecyclerView.Adapter, int, int)} and then
+ * attach the data with {@link RealmRecyclerViewAdapter#updateData(OrderedRealmCollection)}. The pool must be set on a
+ * RecyclerView which already has an adapter by the time the holders are delivered, otherwise the RecyclerView clears
+ * it when its first adapter is set. The same pool can be shared by several RecyclerViews using the same view types.
+ */
+public final class RealmViewHolderPreInflater {
+
+    // Default maximum of RecycledViewPool per view type.
+    private static final int DEFAULT_POOL_CAPACITY = 5;
+    // Number of holders created when the size of a row cannot be measured.
+    private static final int FALLBACK_COUNT = DEFAULT_POOL_CAPACITY;
+
+    private final RecyclerView.RecycledViewPool pool;
+    private final Executor executor;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final SparseIntArray capacities = new SparseIntArray();
+    // Incremented by cancel(), so pending tasks of an older generation stop creating and delivering holders.
+    private volatile int generation;
+
+    /**
+     * @param pool the pool to fill. It should be set on the RecyclerViews showing the adapter.
+     * @param executor the executor creating the ViewHolders. It must not run on the main thread.
+     */
+    public RealmViewHolderPreInflater(@NonNull RecyclerView.RecycledViewPool pool, @NonNull Executor executor) {
+        this.pool = pool;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the pool receiving the ViewHolders.
+     */
+    @NonNull
+    public RecyclerView.RecycledViewPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Creates the given number of ViewHolders of a view type in the background.
+     *
+     * @param parent the RecyclerView the holders will be shown in. It is only used as the parent for layout params.
+     * @param adapter the adapter creating the holders.
+     * @param viewType the view type of the holders, as returned by {@link RecyclerView.Adapter#getItemViewType(int)}.
+     * @param count the number of holders to create.
+     */
+    @MainThread
+    public void preInflate(@NonNull final RecyclerView parent, @NonNull final RecyclerView.Adapter<?> adapter,
+                           final int viewType, final int count) {
+        if (count <= 0) {
+            return;
+        }
+        final int taskGeneration = generation;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count && taskGeneration == generation; i++) {
+                    deliver(adapter.createViewHolder(parent, viewType), taskGeneration);
+                }
+            }
+        });
+    }
+
+    /**
+     * Creates enough ViewHolders of a view type in the background to fill the viewport of the RecyclerView, plus
+     * {@code extra} holders for the first scroll.
+     * <p>
+     * The first holder is measured against the size of the RecyclerView, or the size of the display if the
+     * RecyclerView has not been laid out yet, to find how many rows fit. {@link LinearLayoutManager} orientations and
+     * the span count of {@link GridLayoutManager} are taken into account.
+     *
+     * @param parent the RecyclerView the holders will be shown in.
+     * @param adapter the adapter creating the holders.
+     * @param viewType the view type of the holders, as returned by {@link RecyclerView.Adapter#getItemViewType(int)}.
+     * @param extra the number of holders to create in addition to those filling the viewport.
+     */
+    @MainThread
+    public void preInflateForViewport(@NonNull final RecyclerView parent,
+                                      @NonNull final RecyclerView.Adapter<?> adapter,
+                                      final int viewType, final int extra) {
+        RecyclerView.LayoutManager layoutManager = parent.getLayoutManager();
+        final boolean horizontal = layoutManager instanceof LinearLayoutManager
+                && ((LinearLayoutManager) layoutManager).getOrientation() == LinearLayoutManager.HORIZONTAL;
+        final int spanCount = layoutManager instanceof GridLayoutManager
+                ? ((GridLayoutManager) layoutManager).getSpanCount() : 1;
+        DisplayMetrics metrics = parent.getResources().getDisplayMetrics();
+        int width = parent.getWidth() > 0 ? parent.getWidth() : metrics.widthPixels;
+        int height = parent.getHeight() > 0 ? parent.getHeight() : metrics.heightPixels;
+        final int mainSize = horizontal ? width : height;
+        final int crossSize = (horizontal ? height : width) / spanCount;
+        final int taskGeneration = generation;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (taskGeneration != generation) {
+                    return;
+                }
+                RecyclerView.ViewHolder first = adapter.createViewHolder(parent, viewType);
+                int itemSize = measure(first.itemView, horizontal, crossSize);
+                int count = countForViewport(mainSize, itemSize, spanCount, extra);
+                deliver(first, taskGeneration);
+                for (int i = 1; i < count && taskGeneration == generation; i++) {
+                    deliver(adapter.createViewHolder(parent, viewType), taskGeneration);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stops creating holders for all pending requests. Holders already in the pool are kept.
+     */
+    @MainThread
+    public void cancel() {
+        generation++;
+    }
+
+    /**
+     * Returns the number of holders needed to fill a viewport of {@code viewportSize} pixels with rows of
+     * {@code itemSize} pixels, including a partially visible row, plus {@code extra}.
+     */
+    static int countForViewport(int viewportSize, int itemSize, int spanCount, int extra) {
+        if (itemSize <= 0) {
+            return FALLBACK_COUNT + extra;
+        }
+        int rows = (viewportSize + itemSize - 1) / itemSize + 1;
+        return rows * spanCount + extra;
+    }
+
+    private static int measure(View view, boolean horizontal, int crossSize) {
+        int crossSpec = View.MeasureSpec.makeMeasureSpec(crossSize, View.MeasureSpec.EXACTLY);
+        int mainSpec = View.MeasureSpec.makeMeasureSpec(0, View.MeasureSpec.UNSPECIFIED);
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        int fixedSize = params == null ? -1 : (horizontal ? params.width : params.height);
+        if (fixedSize >= 0) {
+            mainSpec = View.MeasureSpec.makeMeasureSpec(fixedSize, View.MeasureSpec.EXACTLY);
+        }
+        if (horizontal) {
+            view.measure(mainSpec, crossSpec);
+            return view.getMeasuredWidth();
+        }
+        view.measure(crossSpec, mainSpec);
+        return view.getMeasuredHeight();
+    }
+
+    private void deliver(final RecyclerView.ViewHolder holder, final int taskGeneration) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (taskGeneration != generation) {
+                    return;
+                }
+                int viewType = holder.getItemViewType();
+                int needed = pool.getRecycledViewCount(viewType) + 1;
+                if (needed > capacities.get(viewType, DEFAULT_POOL_CAPACITY)) {
+                    capacities.put(viewType, needed);
+                    pool.setMaxRecycledViews(viewType, needed);
+                }
+                pool.putRecycledView(holder);
+            }
+        });
+    }
+}
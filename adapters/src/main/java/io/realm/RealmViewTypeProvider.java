@@ -0,0 +1,37 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Returns the view type of a Realm object, typically read from a discriminator field.
+ *
+ * @param <T> type of {@link RealmModel}.
+ */
+public interface RealmViewTypeProvider<T extends RealmModel> {
+
+    /**
+     * Returns the view type of the given object. It must only depend on fields of the object, so it only has to be
+     * read again when the object is reported as modified.
+     *
+     * @param item a valid object. Usually managed, but unmanaged for placeholders shown by
+     *             {@link RealmOptimisticEditor}.
+     * @return the view type of the object.
+     */
+    int getViewType(@NonNull T item);
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Registry that multicasts the change notifications of a Realm collection to several subscribers.
+ * <p>
+ * Only one change listener is registered on a given {@link RealmResults} or {@link RealmList} instance no matter how
+ * many subscribers observe it. The change set is decoded once and then handed to every subscriber. The native
+ * listener is registered when the first subscriber arrives and removed again when the last one leaves.
+ * <p>
+ * Both {@link RealmRecyclerViewAdapter} and {@link RealmBaseAdapter} register through this class, so several adapters
+ * showing the same collection instance only cost one listener.
+ * <p>
+ * Like the Realm collections themselves, the registry is thread confined. Subscribers added on one thread are only
+ * visible to that thread. Subscribers joining a collection that is already observed will not receive an
+ * {@link OrderedCollectionChangeSet.State#INITIAL} notification, as that has already been delivered.
+ * <p>
+ * Collections that have become invalid, e.g. because their Realm has been closed, are dropped from the registry
+ * together with their subscribers the next time the calling thread subscribes or unsubscribes, so adapters that are
+ * never unsubscribed are not retained.
+ */
+public final class SharedCollectionObserver {
+
+    private static final ThreadLocal<IdentityHashMap<OrderedRealmCollection<?>, Entry>> entries =
+            new ThreadLocal<IdentityHashMap<OrderedRealmCollection<?>, Entry>>() {
+                @Override
+                protected IdentityHashMap<OrderedRealmCollection<?>, Entry> initialValue() {
+                    return new IdentityHashMap<>();
+                }
+            };
+
+    private SharedCollectionObserver() {
+    }
+
+    /**
+     * Subscribes a listener to the changes of a collection. Subscribing the same listener twice requires it to be
+     * unsubscribed twice as well.
+     *
+     * @param collection the {@link RealmResults} or {@link RealmList} to observe.
+     * @param listener the listener to notify.
+     * @throws IllegalArgumentException if the collection is neither a {@link RealmResults} nor a {@link RealmList}.
+     */
+    public static void subscribe(@NonNull OrderedRealmCollection<?> collection,
+                                 @NonNull OrderedRealmCollectionChangeListener listener) {
+        checkSupported(collection);
+        IdentityHashMap<OrderedRealmCollection<?>, Entry> map = entries.get();
+        removeInvalid(map);
+        Entry entry = map.get(collection);
+        if (entry == null) {
+            entry = new Entry(collection);
+            map.put(collection, entry);
+            entry.subscribers.add(listener);
+            entry.register();
+        } else {
+            entry.subscribers.add(listener);
+        }
+    }
+
+    /**
+     * Removes a listener previously added with {@link #subscribe(OrderedRealmCollection,
+     * OrderedRealmCollectionChangeListener)}. The underlying Realm listener is removed once no subscribers are left.
+     *
+     * @param collection the observed collection.
+     * @param listener the listener to remove.
+     * @throws IllegalArgumentException if the collection is neither a {@link RealmResults} nor a {@link RealmList}.
+     */
+    public static void unsubscribe(@NonNull OrderedRealmCollection<?> collection,
+                                   @NonNull OrderedRealmCollectionChangeListener listener) {
+        checkSupported(collection);
+        IdentityHashMap<OrderedRealmCollection<?>, Entry> map = entries.get();
+        removeInvalid(map);
+        Entry entry = map.get(collection);
+        if (entry == null || !entry.subscribers.remove(listener)) {
+            return;
+        }
+        if (entry.subscribers.isEmpty()) {
+            map.remove(collection);
+            entry.unregister();
+        }
+    }
+
+    /**
+     * Returns the number of subscriptions for the given collection on the calling thread.
+     *
+     * @param collection the observed collection.
+     * @return the number of subscriptions, {@code 0} if the collection is not observed.
+     */
+    public static int getSubscriberCount(@NonNull OrderedRealmCollection<?> collection) {
+        Entry entry = entries.get().get(collection);
+        return entry == null ? 0 : entry.subscribers.size();
+    }
+
+    /**
+     * Returns the number of valid collections observed on the calling thread, after dropping the invalid ones.
+     */
+    static int getObservedCollectionCount() {
+        IdentityHashMap<OrderedRealmCollection<?>, Entry> map = entries.get();
+        removeInvalid(map);
+        return map.size();
+    }
+
+    /**
+     * Delivers a change set to the subscribers of a collection on the calling thread as if it had been reported by
+     * Realm, e.g. to replay recorded change sets. Nothing happens if the collection is not observed.
+     */
+    static void dispatch(@NonNull OrderedRealmCollection<?> collection, @NonNull OrderedCollectionChangeSet changeSet) {
+        Entry entry = entries.get().get(collection);
+        if (entry != null) {
+            entry.onChange(collection, changeSet);
+        }
+    }
+
+    // Realm drops the listeners of invalid collections itself, so their entries only have to be forgotten.
+    private static void removeInvalid(IdentityHashMap<OrderedRealmCollection<?>, Entry> map) {
+        Iterator<OrderedRealmCollection<?>> iterator = map.keySet().iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().isValid()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static void checkSupported(OrderedRealmCollection<?> collection) {
+        if (!(collection instanceof RealmResults) && !(collection instanceof RealmList)) {
+            throw new IllegalArgumentException("RealmCollection not supported: " + collection.getClass()
+                    + ". Only RealmResults and RealmList can be observed.");
+        }
+    }
+
+    private static final class Entry implements OrderedRealmCollectionChangeListener<Object> {
+        private final OrderedRealmCollection<?> collection;
+        private final List<OrderedRealmCollectionChangeListener> subscribers = new ArrayList<>(2);
+
+        Entry(OrderedRealmCollection<?> collection) {
+            this.collection = collection;
+        }
+
+        @Override
+        public void onChange(Object collection, OrderedCollectionChangeSet changeSet) {
+            if (subscribers.size() == 1) {
+                //noinspection unchecked
+                subscribers.get(0).onChange(collection, changeSet);
+                return;
+            }
+            DecodedChangeSet decoded = DecodedChangeSet.from(changeSet);
+            // Subscribers might unsubscribe while being notified.
+            OrderedRealmCollectionChangeListener[] listeners =
+                    subscribers.toArray(new OrderedRealmCollectionChangeListener[0]);
+            for (OrderedRealmCollectionChangeListener listener : listeners) {
+                //noinspection unchecked
+                listener.onChange(collection, decoded);
+            }
+        }
+
+        void register() {
+            if (collection instanceof RealmResults) {
+                //noinspection unchecked
+                ((RealmResults) collection).addChangeListener((OrderedRealmCollectionChangeListener) this);
+            } else {
+                //noinspection unchecked
+                ((RealmList) collection).addChangeListener((OrderedRealmCollectionChangeListener) this);
+            }
+        }
+
+        void unregister() {
+            if (!collection.isValid()) {
+                // The Realm has been closed and took its listeners with it.
+                return;
+            }
+            if (collection instanceof RealmResults) {
+                //noinspection unchecked
+                ((RealmResults) collection).removeChangeListener((OrderedRealmCollectionChangeListener) this);
+            } else {
+                //noinspection unchecked
+                ((RealmList) collection).removeChangeListener((OrderedRealmCollectionChangeListener) this);
+            }
+        }
+    }
+}
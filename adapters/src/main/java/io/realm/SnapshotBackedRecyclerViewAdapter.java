@@ -0,0 +1,161 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Base of the adapters that read from a snapshot of their collection between two dispatched updates, so positions
+ * reported to the RecyclerView always match the data returned by {@link #getItem(int)}.
+ * <p>
+ * Subclasses decide when a change of the collection is dispatched. They start listening to the collection once the
+ * adapter is attached to a RecyclerView, and replace the snapshot right before dispatching a change set.
+ *
+ * @param <T> type of {@link RealmModel} stored in the adapter.
+ * @param <S> type of RecyclerView.ViewHolder used in the adapter.
+ */
+abstract class SnapshotBackedRecyclerViewAdapter<T extends RealmModel, S extends RecyclerView.ViewHolder>
+        extends RecyclerView.Adapter<S> {
+
+    @Nullable
+    private OrderedRealmCollection<T> adapterData;
+    @Nullable
+    private OrderedRealmCollection<T> snapshot;
+
+    SnapshotBackedRecyclerViewAdapter(@Nullable OrderedRealmCollection<T> data) {
+        if (data != null && !data.isManaged())
+            throw new IllegalStateException("Only use this adapter with managed RealmCollection, " +
+                    "for un-managed lists you can just use the BaseRecyclerViewAdapter");
+        this.adapterData = data;
+        this.snapshot = isDataValid() ? data.createSnapshot() : null;
+    }
+
+    /**
+     * Returns the number of header elements before the Realm collection elements.
+     *
+     * @return The number of header elements in the RecyclerView before the collection elements. Default is {@code 0}.
+     * @see RealmRecyclerViewAdapter#dataOffset()
+     */
+    public int dataOffset() {
+        return 0;
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(final RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        if (isDataValid()) {
+            // The collection might have changed while nobody was listening.
+            takeSnapshot();
+            //noinspection ConstantConditions
+            startListening(adapterData);
+        }
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(final RecyclerView recyclerView) {
+        super.onDetachedFromRecyclerView(recyclerView);
+        stopListening();
+    }
+
+    @Override
+    public int getItemCount() {
+        return getSnapshotSize();
+    }
+
+    /**
+     * Returns the item at the given position, as it was when the last update was dispatched.
+     *
+     * @param index index of the item in the original collection backing this adapter.
+     * @return the item at the specified position or {@code null} if the position does not exists, the object has
+     * been deleted since the last update or the adapter data are no longer valid.
+     */
+    @Nullable
+    public T getItem(int index) {
+        if (index < 0) {
+            throw new IllegalArgumentException("Only indexes >= 0 are allowed. Input was: " + index);
+        }
+        if (!isSnapshotValid() || index >= snapshot.size()) {
+            return null;
+        }
+        T item = snapshot.get(index);
+        return RealmObject.isValid(item) ? item : null;
+    }
+
+    /**
+     * Returns the live data associated with this adapter.
+     *
+     * @return adapter data.
+     */
+    @Nullable
+    public OrderedRealmCollection<T> getData() {
+        return adapterData;
+    }
+
+    /**
+     * Updates the data associated to the Adapter. Pending changes of the previous data are discarded.
+     *
+     * @param data the new {@link OrderedRealmCollection} to display.
+     */
+    public void updateData(@Nullable OrderedRealmCollection<T> data) {
+        boolean wasListening = isListening();
+        stopListening();
+        this.adapterData = data;
+        takeSnapshot();
+        if (wasListening && data != null) {
+            startListening(data);
+        }
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Starts listening to the given collection. The snapshot has just been taken from it.
+     */
+    abstract void startListening(@NonNull OrderedRealmCollection<T> data);
+
+    /**
+     * Stops listening and drops all changes not dispatched yet. Does nothing if not listening.
+     */
+    abstract void stopListening();
+
+    abstract boolean isListening();
+
+    final void takeSnapshot() {
+        snapshot = isDataValid() ? adapterData.createSnapshot() : null;
+    }
+
+    /**
+     * Replaces the snapshot by one taken when the changes about to be dispatched had been applied.
+     */
+    final void setSnapshot(@Nullable OrderedRealmCollection<T> snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    final int getSnapshotSize() {
+        return isSnapshotValid() ? snapshot.size() : 0;
+    }
+
+    final boolean isDataValid() {
+        return adapterData != null && adapterData.isValid();
+    }
+
+    private boolean isSnapshotValid() {
+        return snapshot != null && snapshot.isValid();
+    }
+}
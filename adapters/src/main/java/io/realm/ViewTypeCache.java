@@ -0,0 +1,138 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.Arrays;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * View types of the items of a collection, kept in an array aligned with the collection and patched from change sets.
+ * <p>
+ * The view type of a position is read from Realm the first time it is requested, and only read again once the item at
+ * that position is reported as inserted or modified. Moving items around only moves their cached view types.
+ */
+final class ViewTypeCache<T extends RealmModel> {
+
+    // Marks a position whose view type has not been read yet.
+    private static final int UNKNOWN = Integer.MIN_VALUE;
+    private static final int[] NO_TYPES = new int[0];
+
+    private final RealmViewTypeProvider<T> viewTypeProvider;
+    @Nullable
+    private OrderedRealmCollection<T> data;
+    private int[] types = NO_TYPES;
+    private int[] spareTypes = NO_TYPES;
+    private int size;
+    private boolean built;
+    private boolean maintained;
+    @Nullable
+    private OrderedCollectionChangeSet lastChangeSet;
+
+    ViewTypeCache(@NonNull RealmViewTypeProvider<T> viewTypeProvider) {
+        this.viewTypeProvider = viewTypeProvider;
+    }
+
+    RealmViewTypeProvider<T> getViewTypeProvider() {
+        return viewTypeProvider;
+    }
+
+    /**
+     * Sets the collection to cache the view types of. The cache is rebuilt on next access.
+     */
+    void reset(@Nullable OrderedRealmCollection<T> data) {
+        this.data = data;
+        this.built = false;
+    }
+
+    /**
+     * Marks the cache as kept up to date by a {@link RealmCollectionViewModel} for as long as its collection exists,
+     * so adapters using it do not need to bypass it while they are not listening.
+     */
+    void setMaintained() {
+        maintained = true;
+    }
+
+    boolean isMaintained() {
+        return maintained;
+    }
+
+    /**
+     * Forgets all cached view types.
+     */
+    void invalidate() {
+        built = false;
+    }
+
+    /**
+     * Returns the view type of the item at the given position. The collection must be valid.
+     */
+    int getViewType(int position) {
+        if (!built) {
+            //noinspection ConstantConditions
+            size = data.size();
+            if (types.length < size) {
+                types = new int[ChangeSetPatcher.capacityFor(size)];
+            }
+            Arrays.fill(types, 0, size, UNKNOWN);
+            built = true;
+        }
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position: " + position + ", size: " + size);
+        }
+        int type = types[position];
+        if (type == UNKNOWN) {
+            type = viewTypeProvider.getViewType(data.get(position));
+            types[position] = type;
+        }
+        return type;
+    }
+
+    /**
+     * Applies a change set reported for the collection. Must be called for every change set while the cache is in
+     * use. Applying the change set just applied again, e.g. by another subscriber of the collection sharing the cache,
+     * does nothing.
+     */
+    void apply(@NonNull OrderedCollectionChangeSet changeSet) {
+        if (changeSet == lastChangeSet) {
+            return;
+        }
+        lastChangeSet = changeSet;
+        if (!built) {
+            return;
+        }
+        if (changeSet.getState() != OrderedCollectionChangeSet.State.UPDATE || data == null || !data.isValid()) {
+            built = false;
+            return;
+        }
+        int newSize = ChangeSetPatcher.newSize(size, changeSet);
+        int[] newTypes = spareTypes.length >= newSize ? spareTypes : new int[ChangeSetPatcher.capacityFor(newSize)];
+        ChangeSetPatcher.patch(types, size, newTypes, changeSet);
+        forget(newTypes, changeSet.getInsertionRanges());
+        forget(newTypes, changeSet.getChangeRanges());
+        spareTypes = types;
+        types = newTypes;
+        size = newSize;
+    }
+
+    private static void forget(int[] types, OrderedCollectionChangeSet.Range[] ranges) {
+        for (OrderedCollectionChangeSet.Range range : ranges) {
+            Arrays.fill(types, range.startIndex, range.startIndex + range.length, UNKNOWN);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the translation of change sets into adapter notifications, alternating between the two states of a
+ * {@link ChangeSetScenario}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChangeSetDispatchBenchmark {
+
+    @Param({"SCATTERED", "CONTIGUOUS", "HUGE", "REORDER"})
+    public ChangeSetScenario scenario;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private ChangeSetScenario.Steps steps;
+    private DecodedChangeSet decodedForward;
+    private DecodedChangeSet decodedBackward;
+    private FakeOrderedRealmCollection<FakeRealmObject> collection;
+    private KeyPositionIndex<FakeRealmObject> keyIndex;
+    private ViewTypeCache<FakeRealmObject> viewTypes;
+    private final PositionOverlay overlay = new PositionOverlay();
+    private final ChangeSetAccumulator accumulator = new ChangeSetAccumulator(0);
+    private final CountingTarget target = new CountingTarget();
+    private boolean changed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        steps = scenario.create(size);
+        decodedForward = DecodedChangeSet.from(steps.forward);
+        decodedBackward = DecodedChangeSet.from(steps.backward);
+        collection = new FakeOrderedRealmCollection<>(steps.before);
+        changed = false;
+
+        keyIndex = new KeyPositionIndex<>(new RealmKeyProvider<FakeRealmObject>() {
+            @Override
+            public long getKey(FakeRealmObject item) {
+                return item.key;
+            }
+        });
+        keyIndex.reset(collection);
+        keyIndex.getPosition(0);
+
+        viewTypes = new ViewTypeCache<>(new RealmViewTypeProvider<FakeRealmObject>() {
+            @Override
+            public int getViewType(FakeRealmObject item) {
+                return item.viewType;
+            }
+        });
+        viewTypes.reset(collection);
+        for (int i = 0; i < size; i++) {
+            viewTypes.getViewType(i);
+        }
+    }
+
+    /**
+     * Dispatches an already decoded change set, as adapters sharing a {@link SharedCollectionObserver} do.
+     */
+    @Benchmark
+    public int dispatch() {
+        ChangeSetDispatcher.dispatch(nextChange(), 0, true, target);
+        return target.notifications;
+    }
+
+    /**
+     * Decodes the ranges of a change set before dispatching them, as done once per change by
+     * {@link SharedCollectionObserver}.
+     */
+    @Benchmark
+    public int decodeAndDispatch() {
+        changed = !changed;
+        collection.setItems(changed ? steps.after : steps.before);
+        DecodedChangeSet changeSet = DecodedChangeSet.from(changed ? steps.forward : steps.backward);
+        ChangeSetDispatcher.dispatch(changeSet, 0, true, target);
+        return target.notifications;
+    }
+
+    /**
+     * Runs the change listener of {@link RealmRecyclerViewAdapter} with a key provider and a view type provider.
+     */
+    @Benchmark
+    public int adapterListener() {
+        OrderedCollectionChangeSet changeSet = nextChange();
+        keyIndex.apply(changeSet);
+        viewTypes.apply(changeSet);
+        OrderedCollectionChangeSet visibleChanges = overlay.translate(changeSet, null);
+        ChangeSetDispatcher.dispatch(visibleChanges, 0, true, target);
+        return target.notifications;
+    }
+
+    /**
+     * Applies a change set to the key index and looks up the key of the last row, which refreshes the positions of
+     * all rows shifted by the change.
+     */
+    @Benchmark
+    public int keyLookupAfterChange() {
+        keyIndex.apply(nextChange());
+        return keyIndex.getPosition(collection.last().key);
+    }
+
+    /**
+     * Merges a change set and the one reverting it, as {@link ConflatingRealmRecyclerViewAdapter} does for changes
+     * arriving within its window.
+     */
+    @Benchmark
+    public int conflate() {
+        accumulator.reset(size);
+        accumulator.add(decodedForward);
+        accumulator.add(decodedBackward);
+        return accumulator.merge().getChangeRanges().length;
+    }
+
+    private DecodedChangeSet nextChange() {
+        changed = !changed;
+        collection.setItems(changed ? steps.after : steps.before);
+        return changed ? decodedForward : decodedBackward;
+    }
+}
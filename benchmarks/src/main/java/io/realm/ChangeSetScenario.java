@@ -0,0 +1,195 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+/**
+ * Shapes of change sets exercised by the benchmarks.
+ * <p>
+ * Every scenario describes a change from a collection of {@code size} objects to another collection of the same size,
+ * together with the change set reverting it, so the benchmarks can alternate between both states forever.
+ */
+public enum ChangeSetScenario {
+
+    /**
+     * 1% of the rows deleted, inserted and modified at positions spread over the whole collection, e.g. after a
+     * background sync.
+     */
+    SCATTERED {
+        @Override
+        int[] deletions(int size) {
+            return every(13, 100, size / 100);
+        }
+
+        @Override
+        int[] insertions(int size) {
+            return every(61, 100, size / 100);
+        }
+
+        @Override
+        int[] changes(int size) {
+            return every(37, 100, size / 100);
+        }
+    },
+
+    /**
+     * One block of 1% of the rows deleted, one inserted and one modified, e.g. after paging in a batch of objects.
+     */
+    CONTIGUOUS {
+        @Override
+        int[] deletions(int size) {
+            return block(size / 4, size / 100);
+        }
+
+        @Override
+        int[] insertions(int size) {
+            return block(size / 2, size / 100);
+        }
+
+        @Override
+        int[] changes(int size) {
+            return block(size * 3 / 4, size / 100);
+        }
+    },
+
+    /**
+     * Every other row deleted and as many rows inserted between the remaining ones, the worst case for the number of
+     * ranges.
+     */
+    HUGE {
+        @Override
+        int[] deletions(int size) {
+            return every(0, 2, size / 2);
+        }
+
+        @Override
+        int[] insertions(int size) {
+            return every(1, 2, size / 2);
+        }
+    },
+
+    /**
+     * 1% of the rows of the first half moved to the end, e.g. after changing the sort key of some objects. Realm
+     * reports moves as deletions of the old positions and insertions of the new ones.
+     */
+    REORDER {
+        @Override
+        int[] deletions(int size) {
+            int count = size / 100;
+            return every(0, size / 2 / count, count);
+        }
+
+        @Override
+        int[] insertions(int size) {
+            return block(size - size / 100, size / 100);
+        }
+
+        @Override
+        boolean moves() {
+            return true;
+        }
+    };
+
+    private static final int[] NONE = new int[0];
+
+    /**
+     * The two states of a collection and the change sets between them.
+     */
+    static final class Steps {
+        final FakeRealmObject[] before;
+        final FakeRealmObject[] after;
+        final FakeChangeSet forward;
+        final FakeChangeSet backward;
+
+        Steps(FakeRealmObject[] before, FakeRealmObject[] after, FakeChangeSet forward, FakeChangeSet backward) {
+            this.before = before;
+            this.after = after;
+            this.forward = forward;
+            this.backward = backward;
+        }
+    }
+
+    /**
+     * Returns the ascending indexes deleted from the collection before the change.
+     */
+    abstract int[] deletions(int size);
+
+    /**
+     * Returns the ascending indexes inserted into the collection after the change. There are as many as deletions.
+     */
+    abstract int[] insertions(int size);
+
+    /**
+     * Returns the ascending indexes of modified rows. They are neither deleted nor inserted in either direction.
+     */
+    int[] changes(int size) {
+        return NONE;
+    }
+
+    /**
+     * Returns whether the inserted rows are the deleted ones, rather than new objects.
+     */
+    boolean moves() {
+        return false;
+    }
+
+    /**
+     * Creates the states and change sets of the scenario for a collection of the given size, at least {@code 100}.
+     */
+    Steps create(int size) {
+        int[] deletions = deletions(size);
+        int[] insertions = insertions(size);
+        int[] changes = changes(size);
+
+        FakeRealmObject[] before = new FakeRealmObject[size];
+        for (int i = 0; i < size; i++) {
+            before[i] = new FakeRealmObject(i);
+        }
+        FakeRealmObject[] after = new FakeRealmObject[size - deletions.length + insertions.length];
+        int oldPosition = 0;
+        int deletion = 0;
+        int insertion = 0;
+        for (int newPosition = 0; newPosition < after.length; newPosition++) {
+            if (insertion < insertions.length && insertions[insertion] == newPosition) {
+                after[newPosition] = moves()
+                        ? before[deletions[insertion]]
+                        : new FakeRealmObject(size + insertion);
+                insertion++;
+                continue;
+            }
+            while (deletion < deletions.length && deletions[deletion] == oldPosition) {
+                deletion++;
+                oldPosition++;
+            }
+            after[newPosition] = before[oldPosition++];
+        }
+        return new Steps(before, after,
+                new FakeChangeSet(deletions, insertions, changes),
+                new FakeChangeSet(insertions, deletions, changes));
+    }
+
+    private static int[] every(int first, int step, int count) {
+        int[] indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[i] = first + i * step;
+        }
+        return indexes;
+    }
+
+    private static int[] block(int start, int length) {
+        return every(start, 1, length);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a change set trace recorded with {@code RealmChangeSetRecorder}, e.g. pulled from a device with
+ * {@code adb pull}, as fast as possible.
+ * <p>
+ * The trace is passed with {@code -p trace=<path>}. Without it, a trace alternating between the states of all
+ * {@link ChangeSetScenario}s is used.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChangeSetTraceBenchmark {
+
+    private static final int SYNTHETIC_SIZE = 10000;
+
+    @Param({""})
+    public String trace;
+
+    private final List<ChangeSetTraceReader.Record> records = new ArrayList<>();
+    private final CountingTarget target = new CountingTarget();
+    private byte[] traceBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        traceBytes = trace.isEmpty() ? syntheticTrace() : readFile(trace);
+        records.clear();
+        ChangeSetTraceReader reader = new ChangeSetTraceReader(new ByteArrayInputStream(traceBytes));
+        ChangeSetTraceReader.Record record;
+        while ((record = reader.read()) != null) {
+            records.add(record);
+        }
+    }
+
+    /**
+     * Dispatches every change set of the trace.
+     */
+    @Benchmark
+    public int dispatch() {
+        for (ChangeSetTraceReader.Record record : records) {
+            ChangeSetDispatcher.dispatch(record.changeSet, 0, true, target);
+        }
+        return target.notifications;
+    }
+
+    /**
+     * Merges all change sets of the trace into one, as a {@link ConflatingRealmRecyclerViewAdapter} would if they
+     * arrived within its window. Traces containing {@link OrderedCollectionChangeSet.State#INITIAL} change sets
+     * restart the merge at each of them.
+     */
+    @Benchmark
+    public int conflate() {
+        ChangeSetAccumulator accumulator = new ChangeSetAccumulator(0);
+        int ranges = 0;
+        for (ChangeSetTraceReader.Record record : records) {
+            if (record.changeSet.getState() != OrderedCollectionChangeSet.State.UPDATE) {
+                ranges += accumulator.merge().getChangeRanges().length;
+                accumulator.reset(record.size);
+            } else {
+                accumulator.add(record.changeSet);
+            }
+        }
+        return ranges + accumulator.merge().getChangeRanges().length;
+    }
+
+    /**
+     * Reads the trace, to keep the cost of decoding it apart from the other measurements.
+     */
+    @Benchmark
+    public int read() throws IOException {
+        ChangeSetTraceReader reader = new ChangeSetTraceReader(new ByteArrayInputStream(traceBytes));
+        int count = 0;
+        while (reader.read() != null) {
+            count++;
+        }
+        return count;
+    }
+
+    private static byte[] readFile(String path) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        InputStream in = new FileInputStream(path);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                bytes.write(buffer, 0, read);
+            }
+        } finally {
+            in.close();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] syntheticTrace() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ChangeSetTraceWriter writer = new ChangeSetTraceWriter(bytes);
+        writer.write(0, SYNTHETIC_SIZE, DecodedChangeSet.initial());
+        for (ChangeSetScenario scenario : ChangeSetScenario.values()) {
+            ChangeSetScenario.Steps steps = scenario.create(SYNTHETIC_SIZE);
+            writer.write(TimeUnit.MILLISECONDS.toNanos(16), SYNTHETIC_SIZE, steps.forward);
+            writer.write(TimeUnit.MILLISECONDS.toNanos(16), SYNTHETIC_SIZE, steps.backward);
+        }
+        writer.close();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.Arrays;
+
+import androidx.annotation.Nullable;
+
+/**
+ * In-memory {@link OrderedCollectionChangeSet} holding the changed indexes.
+ * <p>
+ * Like the change sets delivered by Realm, which read them from native code, the ranges are computed again on every
+ * call, so the benchmarks see the cost of decoding them.
+ */
+final class FakeChangeSet implements OrderedCollectionChangeSet {
+
+    private final int[] deletions;
+    private final int[] insertions;
+    private final int[] changes;
+
+    /**
+     * @param deletions ascending indexes of deleted elements in the collection before the change.
+     * @param insertions ascending indexes of inserted elements in the collection after the change.
+     * @param changes ascending indexes of modified elements in the collection after the change.
+     */
+    FakeChangeSet(int[] deletions, int[] insertions, int[] changes) {
+        this.deletions = deletions;
+        this.insertions = insertions;
+        this.changes = changes;
+    }
+
+    @Override
+    public State getState() {
+        return State.UPDATE;
+    }
+
+    @Override
+    public int[] getDeletions() {
+        return Arrays.copyOf(deletions, deletions.length);
+    }
+
+    @Override
+    public int[] getInsertions() {
+        return Arrays.copyOf(insertions, insertions.length);
+    }
+
+    @Override
+    public int[] getChanges() {
+        return Arrays.copyOf(changes, changes.length);
+    }
+
+    @Override
+    public Range[] getDeletionRanges() {
+        return toRanges(deletions);
+    }
+
+    @Override
+    public Range[] getInsertionRanges() {
+        return toRanges(insertions);
+    }
+
+    @Override
+    public Range[] getChangeRanges() {
+        return toRanges(changes);
+    }
+
+    @Nullable
+    @Override
+    public Throwable getError() {
+        return null;
+    }
+
+    @Override
+    public boolean isCompleteResult() {
+        return true;
+    }
+
+    private static Range[] toRanges(int[] indexes) {
+        RangeBuilder ranges = new RangeBuilder();
+        for (int index : indexes) {
+            ranges.add(index, 1);
+        }
+        return ranges.build();
+    }
+}
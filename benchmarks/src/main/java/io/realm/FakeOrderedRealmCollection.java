@@ -0,0 +1,173 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import java.util.AbstractList;
+import java.util.Date;
+
+import androidx.annotation.Nullable;
+
+/**
+ * In-memory {@link OrderedRealmCollection} backed by an array, which can be swapped to simulate a change of the
+ * collection. Only the methods used by the adapters are supported.
+ */
+final class FakeOrderedRealmCollection<E> extends AbstractList<E> implements OrderedRealmCollection<E> {
+
+    private E[] items;
+
+    FakeOrderedRealmCollection(E[] items) {
+        this.items = items;
+    }
+
+    void setItems(E[] items) {
+        this.items = items;
+    }
+
+    @Override
+    public E get(int location) {
+        return items[location];
+    }
+
+    @Override
+    public int size() {
+        return items.length;
+    }
+
+    @Override
+    public boolean isValid() {
+        return true;
+    }
+
+    @Override
+    public boolean isManaged() {
+        return true;
+    }
+
+    @Override
+    public boolean isLoaded() {
+        return true;
+    }
+
+    @Override
+    public boolean load() {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public E first() {
+        return items[0];
+    }
+
+    @Nullable
+    @Override
+    public E first(@Nullable E defaultValue) {
+        return items.length == 0 ? defaultValue : items[0];
+    }
+
+    @Nullable
+    @Override
+    public E last() {
+        return items[items.length - 1];
+    }
+
+    @Nullable
+    @Override
+    public E last(@Nullable E defaultValue) {
+        return items.length == 0 ? defaultValue : items[items.length - 1];
+    }
+
+    @Override
+    public RealmResults<E> sort(String fieldName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RealmResults<E> sort(String fieldName, Sort sortOrder) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RealmResults<E> sort(String fieldName1, Sort sortOrder1, String fieldName2, Sort sortOrder2) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RealmResults<E> sort(String[] fieldNames, Sort[] sortOrders) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void deleteFromRealm(int location) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean deleteFirstFromRealm() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean deleteLastFromRealm() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public OrderedRealmCollectionSnapshot<E> createSnapshot() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RealmQuery<E> where() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Number min(String fieldName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Number max(String fieldName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public double average(String fieldName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Number sum(String fieldName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Date maxDate(String fieldName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Date minDate(String fieldName) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean deleteAllFromRealm() {
+        throw new UnsupportedOperationException();
+    }
+}
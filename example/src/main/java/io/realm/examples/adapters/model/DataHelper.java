@@ -19,6 +19,7 @@ package io.realm.examples.adapters.model;
 import java.util.Collection;
 
 import io.realm.Realm;
+import io.realm.RealmBulkEditor;
 
 public class DataHelper {
 
@@ -44,25 +45,25 @@ public class DataHelper {
     }
 
     public static void deleteItemAsync(Realm realm, final long id) {
-        realm.executeTransactionAsync(new Realm.Transaction() {
+        realm.executeTransactionAsync(deleteItemTransaction(id));
+    }
+
+    public static Realm.Transaction deleteItemTransaction(final long id) {
+        return new Realm.Transaction() {
             @Override
             public void execute(Realm realm) {
                 Item.delete(realm, id);
             }
-        });
+        };
     }
 
     public static void deleteItemsAsync(Realm realm, Collection<Integer> ids) {
         // Create an new array to avoid concurrency problem.
-        final Integer[] idsToDelete = new Integer[ids.size()];
-        ids.toArray(idsToDelete);
-        realm.executeTransactionAsync(new Realm.Transaction() {
-            @Override
-            public void execute(Realm realm) {
-                for (Integer id : idsToDelete) {
-                    Item.delete(realm, id);
-                }
-            }
-        });
+        long[] idsToDelete = new long[ids.size()];
+        int i = 0;
+        for (Integer id : ids) {
+            idsToDelete[i++] = id;
+        }
+        new RealmBulkEditor<>(realm, Item.class, Item.FIELD_ID).deleteAsync(idsToDelete, null);
     }
 }
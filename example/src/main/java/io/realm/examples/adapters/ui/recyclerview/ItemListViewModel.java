@@ -0,0 +1,34 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.realm.examples.adapters.ui.recyclerview;
+
+import androidx.annotation.NonNull;
+import io.realm.OrderedRealmCollection;
+import io.realm.Realm;
+import io.realm.RealmCollectionViewModel;
+import io.realm.examples.adapters.model.Item;
+import io.realm.examples.adapters.model.Parent;
+
+// Keeps the item list and its listener alive while the activity is recreated.
+public class ItemListViewModel extends RealmCollectionViewModel<Item> {
+
+    @NonNull
+    @Override
+    protected OrderedRealmCollection<Item> createData(@NonNull Realm realm) {
+        //noinspection ConstantConditions
+        return realm.where(Parent.class).findFirst().getItemList();
+    }
+}
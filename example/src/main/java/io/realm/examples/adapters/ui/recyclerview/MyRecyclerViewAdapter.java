@@ -23,11 +23,13 @@ import android.widget.CheckBox;
 import android.widget.CompoundButton;
 import android.widget.TextView;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 
+import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 import io.realm.OrderedRealmCollection;
+import io.realm.RealmItemSelection;
+import io.realm.RealmKeyProvider;
 import io.realm.RealmRecyclerViewAdapter;
 import io.realm.examples.adapters.R;
 import io.realm.examples.adapters.model.Item;
@@ -35,7 +37,7 @@ import io.realm.examples.adapters.model.Item;
 class MyRecyclerViewAdapter extends RealmRecyclerViewAdapter<Item, MyRecyclerViewAdapter.MyViewHolder> {
 
     private boolean inDeletionMode = false;
-    private Set<Integer> countersToDelete = new HashSet<>();
+    private final RealmItemSelection countersToDelete;
 
     MyRecyclerViewAdapter(OrderedRealmCollection<Item> data) {
         super(data, true);
@@ -44,6 +46,13 @@ class MyRecyclerViewAdapter extends RealmRecyclerViewAdapter<Item, MyRecyclerVie
         // See https://developer.android.com/reference/android/support/v7/widget/RecyclerView.Adapter.html#hasStableIds()
         // See https://developer.android.com/reference/android/support/v7/widget/RecyclerView.Adapter.html#getItemId(int)
         setHasStableIds(true);
+        setKeyProvider(new RealmKeyProvider<Item>() {
+            @Override
+            public long getKey(@NonNull Item item) {
+                return item.getId();
+            }
+        });
+        countersToDelete = new RealmItemSelection(this);
     }
 
     void enableDeletionMode(boolean enabled) {
@@ -51,11 +60,12 @@ class MyRecyclerViewAdapter extends RealmRecyclerViewAdapter<Item, MyRecyclerVie
         if (!enabled) {
             countersToDelete.clear();
         }
-        notifyDataSetChanged();
+        // Only the check boxes change, so there is no need to rebind the rows.
+        notifyItemRangeChanged(0, getItemCount(), RealmItemSelection.PAYLOAD_SELECTION_CHANGED);
     }
 
-    Set<Integer> getCountersToDelete() {
-        return countersToDelete;
+    long[] getCountersToDelete() {
+        return countersToDelete.getSelectedKeys();
     }
 
     @Override
@@ -71,20 +81,31 @@ class MyRecyclerViewAdapter extends RealmRecyclerViewAdapter<Item, MyRecyclerVie
         final int itemId = obj.getId();
         //noinspection ConstantConditions
         holder.title.setText(obj.getCountString());
-        holder.deletedCheckBox.setChecked(countersToDelete.contains(itemId));
+        bindCheckBox(holder, itemId);
+    }
+
+    @Override
+    public void onBindViewHolder(MyViewHolder holder, int position, List<Object> payloads) {
+        if (payloads.isEmpty() || !payloads.contains(RealmItemSelection.PAYLOAD_SELECTION_CHANGED)) {
+            // Lets RealmRecyclerViewAdapter measure full binds.
+            super.onBindViewHolder(holder, position, payloads);
+        } else {
+            //noinspection ConstantConditions
+            bindCheckBox(holder, holder.data.getId());
+        }
+    }
+
+    private void bindCheckBox(MyViewHolder holder, final int itemId) {
+        // Remove the listener first, so restoring the state does not toggle the selection.
+        holder.deletedCheckBox.setOnCheckedChangeListener(null);
+        holder.deletedCheckBox.setChecked(countersToDelete.isSelected(itemId));
         if (inDeletionMode) {
             holder.deletedCheckBox.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
                 @Override
                 public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
-                    if (isChecked) {
-                        countersToDelete.add(itemId);
-                    } else {
-                        countersToDelete.remove(itemId);
-                    }
+                    countersToDelete.setSelected(itemId, isChecked);
                 }
             });
-        } else {
-            holder.deletedCheckBox.setOnCheckedChangeListener(null);
         }
         holder.deletedCheckBox.setVisibility(inDeletionMode ? View.VISIBLE : View.GONE);
     }
@@ -20,21 +20,31 @@ import android.view.Menu;
 import android.view.MenuItem;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.DividerItemDecoration;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import io.realm.Realm;
+import io.realm.RealmBulkEditor;
+import io.realm.RealmList;
+import io.realm.RealmListReorderHelper;
+import io.realm.RealmOptimisticEditor;
 import io.realm.examples.adapters.R;
 import io.realm.examples.adapters.model.DataHelper;
+import io.realm.examples.adapters.model.Item;
 import io.realm.examples.adapters.model.Parent;
 
 public class RecyclerViewExampleActivity extends AppCompatActivity {
 
     private Realm realm;
+    private ItemListViewModel viewModel;
     private RecyclerView recyclerView;
     private Menu menu;
     private MyRecyclerViewAdapter adapter;
+    private RealmBulkEditor<Item> bulkEditor;
+    private RealmListReorderHelper<Item> reorderHelper;
+    private RealmOptimisticEditor<Item> optimisticEditor;
 
     private class TouchHelperCallback extends ItemTouchHelper.SimpleCallback {
 
@@ -44,12 +54,21 @@ public class RecyclerViewExampleActivity extends AppCompatActivity {
 
         @Override
         public boolean onMove(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder, RecyclerView.ViewHolder target) {
-            return true;
+            return reorderHelper.onMove(viewHolder.getAdapterPosition(), target.getAdapterPosition());
+        }
+
+        @Override
+        public void clearView(RecyclerView recyclerView, RecyclerView.ViewHolder viewHolder) {
+            super.clearView(recyclerView, viewHolder);
+            // The whole drag is written in one transaction once the item is dropped.
+            reorderHelper.onDrop();
         }
 
         @Override
         public void onSwiped(final RecyclerView.ViewHolder viewHolder, int direction) {
-            DataHelper.deleteItemAsync(realm, viewHolder.getItemId());
+            // The row disappears right away instead of when the transaction has been committed.
+            long id = viewHolder.getItemId();
+            optimisticEditor.removeAsync(new long[] {id}, DataHelper.deleteItemTransaction(id), null);
         }
 
         @Override
@@ -62,7 +81,10 @@ public class RecyclerViewExampleActivity extends AppCompatActivity {
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_recyclerview);
-        realm = Realm.getDefaultInstance();
+        // The ViewModel owns the Realm instance and the item list, so both survive rotations.
+        viewModel = new ViewModelProvider(this, new ViewModelProvider.NewInstanceFactory())
+                .get(ItemListViewModel.class);
+        realm = viewModel.getRealm();
         recyclerView = findViewById(R.id.recycler_view);
         setUpRecyclerView();
     }
@@ -76,7 +98,6 @@ public class RecyclerViewExampleActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         recyclerView.setAdapter(null);
-        realm.close();
     }
 
     @Override
@@ -104,7 +125,8 @@ public class RecyclerViewExampleActivity extends AppCompatActivity {
                 menu.setGroupVisible(R.id.group_delete_mode, true);
                 return true;
             case R.id.action_end_delete_mode:
-                DataHelper.deleteItemsAsync(realm, adapter.getCountersToDelete());
+                // Selected rows disappear at once, the deletion itself runs in a background transaction.
+                bulkEditor.deleteAsync(adapter.getCountersToDelete(), null);
                 // Fall through
             case R.id.action_cancel_delete_mode:
                 adapter.enableDeletionMode(false);
@@ -117,9 +139,20 @@ public class RecyclerViewExampleActivity extends AppCompatActivity {
     }
 
     private void setUpRecyclerView() {
-        adapter = new MyRecyclerViewAdapter(realm.where(Parent.class).findFirst().getItemList());
+        adapter = new MyRecyclerViewAdapter(viewModel.getData());
+        // The key index survives rotations as well, instead of reading every row again.
+        viewModel.retainCaches(adapter);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
         recyclerView.setAdapter(adapter);
+        bulkEditor = new RealmBulkEditor<>(realm, Item.class, Item.FIELD_ID, adapter);
+        optimisticEditor = new RealmOptimisticEditor<>(realm, adapter);
+        reorderHelper = new RealmListReorderHelper<>(realm, adapter, new RealmListReorderHelper.ListLocator<Item>() {
+            @Override
+            public RealmList<Item> findList(Realm realm) {
+                Parent parent = realm.where(Parent.class).findFirst();
+                return parent != null ? parent.getItemList() : null;
+            }
+        });
         recyclerView.setHasFixedSize(true);
         recyclerView.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
 
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.app.Instrumentation;
+import android.os.Bundle;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+/**
+ * Counts the objects allocated by an operation, which the benchmark library does not report.
+ * <p>
+ * The counts are reported in the instrumentation status, e.g. shown by {@code adb shell am instrument -r}, and in the
+ * log.
+ */
+final class BenchmarkAllocations {
+
+    /**
+     * An operation to count the allocations of.
+     */
+    interface Operation {
+        void run(int iteration);
+    }
+
+    private static final String TAG = "RealmBenchmark";
+    private static final int STATUS_CODE = 2;
+    private static final int WARMUP_ITERATIONS = 100;
+
+    private BenchmarkAllocations() {
+    }
+
+    /**
+     * Runs an operation a number of times and reports the average number of objects it allocates.
+     *
+     * @param name name of the measurement, e.g. the benchmark method and its parameters.
+     * @param iterations number of times to run the operation.
+     * @param operation the operation.
+     * @return the number of allocations per operation.
+     */
+    @SuppressWarnings("deprecation")
+    static double report(String name, int iterations, Operation operation) {
+        // Lets lazily initialized state be allocated outside of the measurement.
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            operation.run(i);
+        }
+        Debug.resetGlobalAllocCount();
+        Debug.startAllocCounting();
+        for (int i = 0; i < iterations; i++) {
+            operation.run(i);
+        }
+        Debug.stopAllocCounting();
+        double perOperation = (double) Debug.getGlobalAllocCount() / iterations;
+
+        Log.i(TAG, name + ": " + perOperation + " allocations per operation");
+        Bundle status = new Bundle();
+        status.putString(Instrumentation.REPORT_KEY_STREAMRESULT,
+                name + ": " + perOperation + " allocations per operation\n");
+        status.putDouble("allocations_" + name, perOperation);
+        InstrumentationRegistry.getInstrumentation().sendStatus(STATUS_CODE, status);
+        return perOperation;
+    }
+}
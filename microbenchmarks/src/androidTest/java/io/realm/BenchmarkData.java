@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.content.Context;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+import io.realm.entity.AllJavaTypes;
+
+/**
+ * Realm files and change sets shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    /**
+     * Number of rows of the benchmarked collections.
+     */
+    static final List<Object[]> SIZES = Arrays.asList(new Object[][] {{1000}, {100000}, {1000000}});
+
+    /**
+     * One row out of this many is modified by {@link #captureChange(Realm, RealmResults)}.
+     */
+    static final int CHANGE_STRIDE = 100;
+
+    private static final int ROWS_PER_TRANSACTION = 10000;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Returns the configuration of a Realm holding {@code size} {@link AllJavaTypes} rows. The file is only written
+     * once and kept across runs, as filling it takes a while for the larger sizes.
+     */
+    static RealmConfiguration getConfiguration(int size) {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        RealmConfiguration configuration = new RealmConfiguration.Builder(context)
+                .name("benchmark-" + size + ".realm")
+                .modules(new RealmTestModule())
+                .build();
+        Realm realm = Realm.getInstance(configuration);
+        try {
+            if (realm.where(AllJavaTypes.class).count() != size) {
+                realm.beginTransaction();
+                realm.delete(AllJavaTypes.class);
+                realm.commitTransaction();
+                for (int start = 0; start < size; start += ROWS_PER_TRANSACTION) {
+                    realm.beginTransaction();
+                    for (int i = start; i < Math.min(size, start + ROWS_PER_TRANSACTION); i++) {
+                        AllJavaTypes row = realm.createObject(AllJavaTypes.class, i);
+                        row.setFieldString("row " + i);
+                        row.setFieldInt(i);
+                    }
+                    realm.commitTransaction();
+                }
+            }
+        } finally {
+            realm.close();
+        }
+        return configuration;
+    }
+
+    /**
+     * Modifies every {@value #CHANGE_STRIDE}th row of a collection from a background thread and returns the change set
+     * Realm delivers for it. Must be called on a Looper thread, from outside of a transaction.
+     *
+     * @param realm the Realm of the collection.
+     * @param results all {@link AllJavaTypes} rows.
+     * @return the change set, as delivered by Realm.
+     */
+    static OrderedCollectionChangeSet captureChange(Realm realm, RealmResults<AllJavaTypes> results) {
+        final RealmConfiguration configuration = realm.getConfiguration();
+        final AtomicReference<OrderedCollectionChangeSet> captured = new AtomicReference<>();
+        OrderedRealmCollectionChangeListener<RealmResults<AllJavaTypes>> listener =
+                new OrderedRealmCollectionChangeListener<RealmResults<AllJavaTypes>>() {
+                    @Override
+                    public void onChange(RealmResults<AllJavaTypes> collection, OrderedCollectionChangeSet changeSet) {
+                        if (changeSet.getState() == OrderedCollectionChangeSet.State.UPDATE) {
+                            captured.set(changeSet);
+                        }
+                    }
+                };
+        results.addChangeListener(listener);
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Realm backgroundRealm = Realm.getInstance(configuration);
+                try {
+                    backgroundRealm.beginTransaction();
+                    RealmResults<AllJavaTypes> rows = backgroundRealm.where(AllJavaTypes.class).findAll();
+                    for (int i = 0; i < rows.size(); i += CHANGE_STRIDE) {
+                        //noinspection ConstantConditions
+                        rows.get(i).setFieldInt(rows.get(i).getFieldInt() + 1);
+                    }
+                    backgroundRealm.commitTransaction();
+                } finally {
+                    backgroundRealm.close();
+                }
+            }
+        });
+        writer.start();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        // Delivers the notifications synchronously.
+        realm.refresh();
+        results.removeChangeListener(listener);
+        if (captured.get() == null) {
+            throw new IllegalStateException("No change set was delivered.");
+        }
+        return captured.get();
+    }
+
+    /**
+     * Runs a task on the main thread, where the adapters are used, and rethrows its failures on the calling thread.
+     */
+    static void runOnMainThread(final Runnable task) {
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }
+        });
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+}
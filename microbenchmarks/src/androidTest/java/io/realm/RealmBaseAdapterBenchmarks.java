@@ -0,0 +1,184 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.content.Context;
+import android.database.DataSetObserver;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.List;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+import io.realm.adapter.ListViewTestAdapter;
+import io.realm.entity.AllJavaTypes;
+
+/**
+ * Measures the hot paths of {@link RealmBaseAdapter} on Realm files of different sizes.
+ */
+@RunWith(Parameterized.class)
+public class RealmBaseAdapterBenchmarks {
+
+    // Prime, so that consecutive reads are spread over the whole collection.
+    private static final int STRIDE = 7919;
+    private static final int ALLOCATION_ITERATIONS = 10000;
+    // Every change notification reads all of its ranges.
+    private static final int CHANGE_ALLOCATION_ITERATIONS = 100;
+
+    @Parameterized.Parameters(name = "size={0}")
+    public static List<Object[]> data() {
+        return BenchmarkData.SIZES;
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int size;
+    private Realm realm;
+    private RealmResults<AllJavaTypes> results;
+    private ListViewTestAdapter adapter;
+
+    public RealmBaseAdapterBenchmarks(int size) {
+        this.size = size;
+    }
+
+    @Before
+    public void setUp() {
+        final RealmConfiguration configuration = BenchmarkData.getConfiguration(size);
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+                realm = Realm.getInstance(configuration);
+                results = realm.where(AllJavaTypes.class).findAll();
+                adapter = new ListViewTestAdapter(context, results);
+                // Stands in for the ListView, so notifications reach an observer.
+                adapter.registerDataSetObserver(new DataSetObserver() {
+                });
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                adapter.updateData(null);
+                realm.close();
+            }
+        });
+    }
+
+    @Test
+    public void getItem() {
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                BenchmarkState state = benchmarkRule.getState();
+                int i = 0;
+                while (state.keepRunning()) {
+                    adapter.getItem(positionAt(i++));
+                }
+                reportAllocations("getItem", ALLOCATION_ITERATIONS, new BenchmarkAllocations.Operation() {
+                    @Override
+                    public void run(int iteration) {
+                        adapter.getItem(positionAt(iteration));
+                    }
+                });
+            }
+        });
+    }
+
+    @Test
+    public void getCount() {
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                BenchmarkState state = benchmarkRule.getState();
+                while (state.keepRunning()) {
+                    adapter.getCount();
+                }
+                reportAllocations("getCount", ALLOCATION_ITERATIONS, new BenchmarkAllocations.Operation() {
+                    @Override
+                    public void run(int iteration) {
+                        adapter.getCount();
+                    }
+                });
+            }
+        });
+    }
+
+    @Test
+    public void getItemId() {
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                BenchmarkState state = benchmarkRule.getState();
+                int i = 0;
+                while (state.keepRunning()) {
+                    adapter.getItemId(positionAt(i++));
+                }
+                reportAllocations("getItemId", ALLOCATION_ITERATIONS, new BenchmarkAllocations.Operation() {
+                    @Override
+                    public void run(int iteration) {
+                        adapter.getItemId(positionAt(iteration));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Replays a change set modifying one row out of {@value BenchmarkData#CHANGE_STRIDE}, as delivered by Realm, through
+     * {@link SharedCollectionObserver} into the change listener of the adapter.
+     */
+    @Test
+    public void onChange() {
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                final OrderedCollectionChangeSet changeSet = BenchmarkData.captureChange(realm, results);
+                BenchmarkState state = benchmarkRule.getState();
+                while (state.keepRunning()) {
+                    SharedCollectionObserver.dispatch(results, changeSet);
+                }
+                reportAllocations("onChange", CHANGE_ALLOCATION_ITERATIONS, new BenchmarkAllocations.Operation() {
+                    @Override
+                    public void run(int iteration) {
+                        SharedCollectionObserver.dispatch(results, changeSet);
+                    }
+                });
+            }
+        });
+    }
+
+    private int positionAt(int iteration) {
+        return (int) ((long) iteration * STRIDE % size);
+    }
+
+    private void reportAllocations(String method, int iterations, BenchmarkAllocations.Operation operation) {
+        BenchmarkAllocations.report("RealmBaseAdapter_" + method + "_size=" + size, iterations, operation);
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.List;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.platform.app.InstrumentationRegistry;
+import io.realm.adapter.RecyclerViewTestAdapter;
+import io.realm.entity.AllJavaTypes;
+
+/**
+ * Measures the hot paths of {@link RealmRecyclerViewAdapter} on Realm files of different sizes.
+ */
+@RunWith(Parameterized.class)
+public class RealmRecyclerViewAdapterBenchmarks {
+
+    // Prime, so that consecutive reads are spread over the whole collection.
+    private static final int STRIDE = 7919;
+    private static final int ALLOCATION_ITERATIONS = 10000;
+    // Every change notification reads all of its ranges.
+    private static final int CHANGE_ALLOCATION_ITERATIONS = 100;
+
+    @Parameterized.Parameters(name = "size={0}")
+    public static List<Object[]> data() {
+        return BenchmarkData.SIZES;
+    }
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final int size;
+    private Realm realm;
+    private RealmResults<AllJavaTypes> results;
+    private RecyclerViewTestAdapter adapter;
+    private RecyclerView recyclerView;
+
+    public RealmRecyclerViewAdapterBenchmarks(int size) {
+        this.size = size;
+    }
+
+    @Before
+    public void setUp() {
+        final RealmConfiguration configuration = BenchmarkData.getConfiguration(size);
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+                realm = Realm.getInstance(configuration);
+                results = realm.where(AllJavaTypes.class).findAll();
+                adapter = new RecyclerViewTestAdapter(context, results, true);
+                recyclerView = new RecyclerView(context);
+                adapter.onAttachedToRecyclerView(recyclerView);
+                // Stands in for the RecyclerView, so notifications reach an observer.
+                adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+                });
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                adapter.onDetachedFromRecyclerView(recyclerView);
+                realm.close();
+            }
+        });
+    }
+
+    @Test
+    public void getItem() {
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                BenchmarkState state = benchmarkRule.getState();
+                int i = 0;
+                while (state.keepRunning()) {
+                    adapter.getItem(positionAt(i++));
+                }
+                reportAllocations("getItem", ALLOCATION_ITERATIONS, new BenchmarkAllocations.Operation() {
+                    @Override
+                    public void run(int iteration) {
+                        adapter.getItem(positionAt(iteration));
+                    }
+                });
+            }
+        });
+    }
+
+    @Test
+    public void getItemCount() {
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                BenchmarkState state = benchmarkRule.getState();
+                while (state.keepRunning()) {
+                    adapter.getItemCount();
+                }
+                reportAllocations("getItemCount", ALLOCATION_ITERATIONS, new BenchmarkAllocations.Operation() {
+                    @Override
+                    public void run(int iteration) {
+                        adapter.getItemCount();
+                    }
+                });
+            }
+        });
+    }
+
+    @Test
+    public void getItemId() {
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                BenchmarkState state = benchmarkRule.getState();
+                int i = 0;
+                while (state.keepRunning()) {
+                    adapter.getItemId(positionAt(i++));
+                }
+                reportAllocations("getItemId", ALLOCATION_ITERATIONS, new BenchmarkAllocations.Operation() {
+                    @Override
+                    public void run(int iteration) {
+                        adapter.getItemId(positionAt(iteration));
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Replays a change set modifying one row out of {@value BenchmarkData#CHANGE_STRIDE}, as delivered by Realm, through
+     * {@link SharedCollectionObserver} into the change listener of the adapter.
+     */
+    @Test
+    public void onChange() {
+        BenchmarkData.runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                final OrderedCollectionChangeSet changeSet = BenchmarkData.captureChange(realm, results);
+                BenchmarkState state = benchmarkRule.getState();
+                while (state.keepRunning()) {
+                    SharedCollectionObserver.dispatch(results, changeSet);
+                }
+                reportAllocations("onChange", CHANGE_ALLOCATION_ITERATIONS, new BenchmarkAllocations.Operation() {
+                    @Override
+                    public void run(int iteration) {
+                        SharedCollectionObserver.dispatch(results, changeSet);
+                    }
+                });
+            }
+        });
+    }
+
+    private int positionAt(int iteration) {
+        return (int) ((long) iteration * STRIDE % size);
+    }
+
+    private void reportAllocations(String method, int iterations, BenchmarkAllocations.Operation operation) {
+        BenchmarkAllocations.report("RealmRecyclerViewAdapter_" + method + "_size=" + size, iterations, operation);
+    }
+}
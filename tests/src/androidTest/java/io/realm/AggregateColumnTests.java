@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class AggregateColumnTests {
+
+    private static final OrderedCollectionChangeSet.Range[] NONE = new OrderedCollectionChangeSet.Range[0];
+
+    private static OrderedCollectionChangeSet.Range[] ranges(int... startAndLength) {
+        OrderedCollectionChangeSet.Range[] ranges = new OrderedCollectionChangeSet.Range[startAndLength.length / 2];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = new OrderedCollectionChangeSet.Range(startAndLength[2 * i], startAndLength[2 * i + 1]);
+        }
+        return ranges;
+    }
+
+    private static OrderedCollectionChangeSet update(OrderedCollectionChangeSet.Range[] deletions,
+                                                     OrderedCollectionChangeSet.Range[] insertions,
+                                                     OrderedCollectionChangeSet.Range[] changes) {
+        return new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE, deletions, insertions, changes, null,
+                true);
+    }
+
+    private static AggregateColumn.Reader reader(final List<Double> values) {
+        return new AggregateColumn.Reader() {
+            @Override
+            public double read(int position) {
+                return values.get(position);
+            }
+        };
+    }
+
+    @Test
+    public void reset_computesAggregates() {
+        List<Double> values = new ArrayList<>(Arrays.asList(3.0, 1.0, 4.0, 1.5));
+        AggregateColumn column = new AggregateColumn();
+        column.reset(values.size(), reader(values));
+
+        assertEquals(4, column.size());
+        assertEquals(9.5, column.getSum(), 0);
+        assertEquals(1.0, column.getMin(), 0);
+        assertEquals(4.0, column.getMax(), 0);
+        assertEquals(9.5 / 4, column.getAverage(), 0);
+    }
+
+    @Test
+    public void emptyColumn() {
+        AggregateColumn column = new AggregateColumn();
+        column.reset(0, reader(new ArrayList<Double>()));
+
+        assertEquals(0, column.getSum(), 0);
+        assertTrue(Double.isNaN(column.getMin()));
+        assertTrue(Double.isNaN(column.getMax()));
+        assertTrue(Double.isNaN(column.getAverage()));
+    }
+
+    @Test
+    public void apply_onlyReadsChangedPositions() {
+        final List<Double> values = new ArrayList<>(Arrays.asList(1.0, 2.0, 3.0, 4.0, 5.0));
+        final List<Integer> reads = new ArrayList<>();
+        AggregateColumn column = new AggregateColumn();
+        column.reset(values.size(), reader(values));
+        assertEquals(5.0, column.getMax(), 0);
+
+        // Delete 2.0 and 5.0, insert 10.0 at 1 and modify 3.0 into -1.0, ending with [1, 10, -1, 4].
+        values.remove(4);
+        values.remove(1);
+        values.add(1, 10.0);
+        values.set(2, -1.0);
+        column.apply(update(ranges(1, 1, 4, 1), ranges(1, 1), ranges(2, 1)), new AggregateColumn.Reader() {
+            @Override
+            public double read(int position) {
+                reads.add(position);
+                return values.get(position);
+            }
+        });
+
+        assertEquals(Arrays.asList(1, 2), reads);
+        assertEquals(4, column.size());
+        assertEquals(14.0, column.getSum(), 0);
+        assertEquals(-1.0, column.getMin(), 0);
+        assertEquals(10.0, column.getMax(), 0);
+    }
+
+    @Test
+    public void apply_removingExtremaRecomputesThem() {
+        List<Double> values = new ArrayList<>(Arrays.asList(7.0, 2.0, 9.0, 4.0));
+        AggregateColumn column = new AggregateColumn();
+        column.reset(values.size(), reader(values));
+        assertEquals(2.0, column.getMin(), 0);
+        assertEquals(9.0, column.getMax(), 0);
+
+        values.remove(2);
+        values.remove(1);
+        column.apply(update(ranges(1, 2), NONE, NONE), reader(values));
+
+        assertEquals(4.0, column.getMin(), 0);
+        assertEquals(7.0, column.getMax(), 0);
+        assertEquals(11.0, column.getSum(), 0);
+    }
+
+    @Test
+    public void apply_sumDoesNotDrift() {
+        List<Double> values = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            values.add(0.1);
+        }
+        AggregateColumn column = new AggregateColumn();
+        column.reset(values.size(), reader(values));
+        // Modify every row back and forth, which would accumulate rounding errors with a naive sum.
+        for (int round = 0; round < 1000; round++) {
+            double value = round % 2 == 0 ? 1e8 + 0.3 : 0.1;
+            for (int i = 0; i < values.size(); i++) {
+                values.set(i, value);
+            }
+            column.apply(update(NONE, NONE, ranges(0, values.size())), reader(values));
+        }
+
+        assertEquals(10.0, column.getSum(), 1e-9);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class ChangeSetAccumulatorTests {
+
+    private static final OrderedCollectionChangeSet.Range[] NONE = new OrderedCollectionChangeSet.Range[0];
+
+    private static OrderedCollectionChangeSet.Range[] ranges(int... startAndLength) {
+        OrderedCollectionChangeSet.Range[] ranges = new OrderedCollectionChangeSet.Range[startAndLength.length / 2];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = new OrderedCollectionChangeSet.Range(startAndLength[i * 2], startAndLength[i * 2 + 1]);
+        }
+        return ranges;
+    }
+
+    private static DecodedChangeSet update(OrderedCollectionChangeSet.Range[] deletions,
+                                           OrderedCollectionChangeSet.Range[] insertions,
+                                           OrderedCollectionChangeSet.Range[] changes) {
+        return new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE, deletions, insertions, changes, null, true);
+    }
+
+    @Test
+    public void merge_noChanges() {
+        ChangeSetAccumulator accumulator = new ChangeSetAccumulator(10);
+        assertFalse(accumulator.hasPendingChanges());
+
+        DecodedChangeSet merged = accumulator.merge();
+        assertEquals(0, merged.getDeletionRanges().length);
+        assertEquals(0, merged.getInsertionRanges().length);
+        assertEquals(0, merged.getChangeRanges().length);
+    }
+
+    @Test
+    public void merge_singleChangeSetIsUnchanged() {
+        ChangeSetAccumulator accumulator = new ChangeSetAccumulator(10);
+        accumulator.add(update(ranges(2, 2), ranges(0, 1), ranges(5, 1)));
+
+        DecodedChangeSet merged = accumulator.merge();
+        assertArrayEquals(new int[] {2, 3}, merged.getDeletions());
+        assertArrayEquals(new int[] {0}, merged.getInsertions());
+        assertArrayEquals(new int[] {5}, merged.getChanges());
+        assertEquals(9, accumulator.getCurrentSize());
+    }
+
+    @Test
+    public void merge_insertedThenDeletedCancelsOut() {
+        ChangeSetAccumulator accumulator = new ChangeSetAccumulator(5);
+        accumulator.add(update(NONE, ranges(5, 3), NONE));
+        accumulator.add(update(ranges(5, 3), NONE, NONE));
+
+        DecodedChangeSet merged = accumulator.merge();
+        assertEquals(2, accumulator.getPendingCount());
+        assertEquals(0, merged.getDeletionRanges().length);
+        assertEquals(0, merged.getInsertionRanges().length);
+        assertEquals(5, accumulator.getCurrentSize());
+    }
+
+    @Test
+    public void merge_modificationsFollowShiftedRows() {
+        ChangeSetAccumulator accumulator = new ChangeSetAccumulator(5);
+        // Modify original row 4, then delete original row 0 so it moves to position 3.
+        accumulator.add(update(NONE, NONE, ranges(4, 1)));
+        accumulator.add(update(ranges(0, 1), NONE, NONE));
+
+        DecodedChangeSet merged = accumulator.merge();
+        assertArrayEquals(new int[] {0}, merged.getDeletions());
+        assertArrayEquals(new int[] {3}, merged.getChanges());
+    }
+
+    @Test
+    public void merge_modifiedInsertionIsReportedAsInsertion() {
+        ChangeSetAccumulator accumulator = new ChangeSetAccumulator(2);
+        accumulator.add(update(NONE, ranges(1, 1), NONE));
+        accumulator.add(update(NONE, NONE, ranges(0, 3)));
+
+        DecodedChangeSet merged = accumulator.merge();
+        assertArrayEquals(new int[] {1}, merged.getInsertions());
+        assertArrayEquals(new int[] {0, 2}, merged.getChanges());
+    }
+
+    @Test
+    public void merge_initialForcesFullReload() {
+        ChangeSetAccumulator accumulator = new ChangeSetAccumulator(5);
+        accumulator.add(update(ranges(0, 1), NONE, NONE));
+        accumulator.add(DecodedChangeSet.initial());
+
+        assertTrue(accumulator.hasPendingChanges());
+        assertEquals(OrderedCollectionChangeSet.State.INITIAL, accumulator.merge().getState());
+
+        accumulator.reset(4);
+        assertFalse(accumulator.hasPendingChanges());
+        assertEquals(OrderedCollectionChangeSet.State.UPDATE, accumulator.merge().getState());
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class ChangeSetTraceTests {
+
+    private static final OrderedCollectionChangeSet.Range[] NONE = new OrderedCollectionChangeSet.Range[0];
+
+    private static OrderedCollectionChangeSet.Range[] ranges(int... startAndLength) {
+        OrderedCollectionChangeSet.Range[] ranges = new OrderedCollectionChangeSet.Range[startAndLength.length / 2];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = new OrderedCollectionChangeSet.Range(startAndLength[i * 2], startAndLength[i * 2 + 1]);
+        }
+        return ranges;
+    }
+
+    private static String toString(OrderedCollectionChangeSet.Range[] ranges) {
+        StringBuilder builder = new StringBuilder();
+        for (OrderedCollectionChangeSet.Range range : ranges) {
+            builder.append(range.startIndex).append('+').append(range.length).append(' ');
+        }
+        return builder.toString();
+    }
+
+    private static void assertChangeSetEquals(OrderedCollectionChangeSet expected, OrderedCollectionChangeSet actual) {
+        assertEquals(expected.getState(), actual.getState());
+        assertEquals(expected.isCompleteResult(), actual.isCompleteResult());
+        assertEquals(toString(expected.getDeletionRanges()), toString(actual.getDeletionRanges()));
+        assertEquals(toString(expected.getInsertionRanges()), toString(actual.getInsertionRanges()));
+        assertEquals(toString(expected.getChangeRanges()), toString(actual.getChangeRanges()));
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        DecodedChangeSet[] changeSets = {
+                DecodedChangeSet.initial(),
+                new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE,
+                        ranges(0, 1, 5, 2), ranges(3, 1), ranges(10, 4, 200, 1), null, true),
+                new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE,
+                        NONE, ranges(1000000, 300000), NONE, null, false),
+                new DecodedChangeSet(OrderedCollectionChangeSet.State.ERROR,
+                        NONE, NONE, NONE, new IllegalStateException(), true),
+        };
+        long[] delays = {0, 1, 16000000L, Long.MAX_VALUE};
+        int[] sizes = {10, 11, 1300000, 0};
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChangeSetTraceWriter writer = new ChangeSetTraceWriter(out);
+        for (int i = 0; i < changeSets.length; i++) {
+            writer.write(delays[i], sizes[i], changeSets[i]);
+        }
+        writer.close();
+
+        ChangeSetTraceReader reader = new ChangeSetTraceReader(new ByteArrayInputStream(out.toByteArray()));
+        for (int i = 0; i < changeSets.length; i++) {
+            ChangeSetTraceReader.Record record = reader.read();
+            assertEquals(delays[i], record.delayNanos);
+            assertEquals(sizes[i], record.size);
+            assertChangeSetEquals(changeSets[i], record.changeSet);
+            assertNull(record.changeSet.getError());
+        }
+        assertNull(reader.read());
+    }
+
+    @Test
+    public void write_smallRangesAreCompact() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChangeSetTraceWriter writer = new ChangeSetTraceWriter(out);
+        writer.flush();
+        int headerSize = out.size();
+        writer.write(100, 50, new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE,
+                ranges(10, 1), ranges(20, 1), ranges(30, 1), null, true));
+        writer.flush();
+
+        // Delay, flags, size and three range lists of one range each.
+        assertEquals(1 + 1 + 1 + 3 * 3, out.size() - headerSize);
+    }
+
+    @Test
+    public void read_rejectsOtherData() {
+        try {
+            new ChangeSetTraceReader(new ByteArrayInputStream("not a trace".getBytes()));
+            fail();
+        } catch (IOException expected) {
+            assertFalse(expected instanceof EOFException);
+        }
+    }
+
+    @Test
+    public void read_truncatedTraceThrows() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ChangeSetTraceWriter writer = new ChangeSetTraceWriter(out);
+        writer.write(1, 10, new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE,
+                ranges(1, 2), ranges(3, 4), ranges(5, 6), null, true));
+        writer.close();
+        byte[] bytes = out.toByteArray();
+
+        ChangeSetTraceReader reader = new ChangeSetTraceReader(
+                new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1)));
+        try {
+            reader.read();
+            fail();
+        } catch (EOFException expected) {
+            assertTrue(expected.getMessage().contains("Truncated"));
+        }
+    }
+}
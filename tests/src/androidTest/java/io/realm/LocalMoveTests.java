@@ -0,0 +1,174 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.content.Context;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import io.realm.adapter.RecyclerViewTestAdapter;
+import io.realm.entity.AllJavaTypes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class LocalMoveTests {
+
+    private static final OrderedCollectionChangeSet.Range[] NONE = new OrderedCollectionChangeSet.Range[0];
+
+    private static OrderedCollectionChangeSet update(int deletion, int insertion) {
+        return new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE,
+                new OrderedCollectionChangeSet.Range[] {new OrderedCollectionChangeSet.Range(deletion, 1)},
+                new OrderedCollectionChangeSet.Range[] {new OrderedCollectionChangeSet.Range(insertion, 1)},
+                NONE, null, true);
+    }
+
+    @Test
+    public void move_stepsComposeAndMatchListMove() {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            list.add(i);
+        }
+        LocalMove move = new LocalMove();
+        // Drag the item at 2 down to 6, then back up to 5.
+        int[][] steps = {{2, 3}, {3, 4}, {4, 5}, {5, 6}, {6, 5}};
+        for (int[] step : steps) {
+            assertTrue(move.move(step[0], step[1]));
+            list.add(step[1], list.remove(step[0]));
+        }
+
+        assertEquals(2, move.getFrom());
+        assertEquals(5, move.getTo());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals((int) list.get(i), move.toOriginalIndex(i));
+            assertEquals(i, move.toMovedIndex(list.get(i)));
+        }
+    }
+
+    @Test
+    public void move_otherItemIsRefused() {
+        LocalMove move = new LocalMove();
+        assertTrue(move.move(1, 3));
+        assertFalse(move.move(0, 1));
+
+        move.commit();
+        assertFalse(move.move(3, 4));
+    }
+
+    @Test
+    public void move_backToStartClears() {
+        LocalMove move = new LocalMove();
+        move.move(4, 2);
+        move.move(2, 4);
+        assertFalse(move.isActive());
+    }
+
+    @Test
+    public void isEcho() {
+        LocalMove move = new LocalMove();
+        move.move(1, 3);
+        assertFalse(move.isEcho(update(1, 3)));
+
+        move.commit();
+        assertTrue(move.isEcho(update(1, 3)));
+        assertFalse(move.isEcho(update(3, 1)));
+        assertFalse(move.isEcho(DecodedChangeSet.initial()));
+    }
+
+    @Test
+    public void reorderHelper_dropWritesMultiStepMove() throws InterruptedException {
+        final Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        final RealmConfiguration realmConfig =
+                new RealmConfiguration.Builder(context).modules(new RealmTestModule()).build();
+        Realm.deleteRealm(realmConfig);
+        final Realm[] realm = new Realm[1];
+        final List<Long> expected = new ArrayList<>();
+        final List<Long> actual = new ArrayList<>();
+        final CountDownLatch written = new CountDownLatch(1);
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                realm[0] = Realm.getInstance(realmConfig);
+                realm[0].beginTransaction();
+                AllJavaTypes owner = realm[0].createObject(AllJavaTypes.class, -1);
+                for (int i = 0; i < 10; i++) {
+                    owner.getFieldList().add(realm[0].createObject(AllJavaTypes.class, i));
+                    expected.add((long) i);
+                }
+                realm[0].commitTransaction();
+
+                RecyclerViewTestAdapter adapter = new RecyclerViewTestAdapter(context, owner.getFieldList(), true);
+                // Attaching the adapter makes it listen to changes, which local moves require.
+                new RecyclerView(context).setAdapter(adapter);
+                RealmListReorderHelper<AllJavaTypes> helper = new RealmListReorderHelper<>(realm[0], adapter,
+                        new RealmListReorderHelper.ListLocator<AllJavaTypes>() {
+                            @Override
+                            public RealmList<AllJavaTypes> findList(Realm realm) {
+                                AllJavaTypes owner = realm.where(AllJavaTypes.class)
+                                        .equalTo(AllJavaTypes.FIELD_LONG, -1L)
+                                        .findFirst();
+                                return owner == null ? null : owner.getFieldList();
+                            }
+                        });
+
+                // Drag the item at 2 down to 6, then back up to 5.
+                int[][] steps = {{2, 3}, {3, 4}, {4, 5}, {5, 6}, {6, 5}};
+                for (int[] step : steps) {
+                    if (helper.onMove(step[0], step[1])) {
+                        expected.add(step[1], expected.remove(step[0]));
+                    }
+                }
+                realm[0].addChangeListener(new RealmChangeListener<Realm>() {
+                    @Override
+                    public void onChange(Realm realm) {
+                        written.countDown();
+                    }
+                });
+                helper.onDrop();
+            }
+        });
+        assertTrue(written.await(10, TimeUnit.SECONDS));
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                AllJavaTypes owner = realm[0].where(AllJavaTypes.class)
+                        .equalTo(AllJavaTypes.FIELD_LONG, -1L)
+                        .findFirst();
+                //noinspection ConstantConditions
+                for (AllJavaTypes item : owner.getFieldList()) {
+                    actual.add(item.getFieldLong());
+                }
+                realm[0].close();
+            }
+        });
+        assertEquals(Long.valueOf(2), expected.get(5));
+        assertEquals(expected, actual);
+    }
+}
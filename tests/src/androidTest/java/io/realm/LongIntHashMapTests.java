@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class LongIntHashMapTests {
+
+    @Test
+    public void putGetRemove() {
+        LongIntHashMap map = new LongIntHashMap();
+        map.put(42, 1);
+        map.put(-7, 2);
+        map.put(Long.MIN_VALUE, 3);
+        assertEquals(3, map.size());
+        assertEquals(1, map.get(42));
+        assertEquals(2, map.get(-7));
+        assertEquals(3, map.get(Long.MIN_VALUE));
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(0));
+
+        map.put(42, 5);
+        assertEquals(5, map.get(42));
+        assertEquals(3, map.size());
+
+        assertEquals(2, map.remove(-7));
+        assertEquals(LongIntHashMap.NO_VALUE, map.remove(-7));
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(-7));
+        assertEquals(2, map.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void put_negativeValueThrows() {
+        new LongIntHashMap().put(1, -1);
+    }
+
+    @Test
+    public void clear() {
+        LongIntHashMap map = new LongIntHashMap();
+        for (int i = 0; i < 100; i++) {
+            map.put(i, i);
+        }
+        map.clear(1000);
+        assertEquals(0, map.size());
+        assertEquals(LongIntHashMap.NO_VALUE, map.get(50));
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(42);
+        LongIntHashMap map = new LongIntHashMap();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            // A small key space forces collisions and removals of existing keys.
+            long key = random.nextInt(500) * 1024L;
+            if (random.nextInt(3) == 0) {
+                Integer removed = expected.remove(key);
+                assertEquals(removed == null ? LongIntHashMap.NO_VALUE : removed.intValue(), map.remove(key));
+            } else {
+                int value = random.nextInt(Integer.MAX_VALUE);
+                expected.put(key, value);
+                map.put(key, value);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 500 * 1024L; key += 1024) {
+            Integer value = expected.get(key);
+            assertEquals(value == null ? LongIntHashMap.NO_VALUE : value.intValue(), map.get(key));
+        }
+    }
+}
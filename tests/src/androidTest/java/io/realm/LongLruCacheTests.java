@@ -0,0 +1,101 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class LongLruCacheTests {
+
+    @Test
+    public void put_evictsLeastRecentlyUsed() {
+        LongLruCache<String> cache = new LongLruCache<>(3);
+        cache.put(1, "a", 1);
+        cache.put(2, "b", 1);
+        cache.put(3, "c", 1);
+        // Accessing 1 makes 2 the least recently used entry.
+        assertEquals("a", cache.get(1));
+        cache.put(4, "d", 1);
+
+        assertNull(cache.get(2));
+        assertEquals("a", cache.get(1));
+        assertEquals("c", cache.get(3));
+        assertEquals("d", cache.get(4));
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void put_evictsByWeight() {
+        LongLruCache<String> cache = new LongLruCache<>(10);
+        cache.put(1, "a", 4);
+        cache.put(2, "b", 4);
+        cache.put(3, "c", 4);
+
+        assertFalse(cache.containsKey(1));
+        assertTrue(cache.containsKey(2));
+        assertEquals(8, cache.size());
+    }
+
+    @Test
+    public void put_replacesWeight() {
+        LongLruCache<String> cache = new LongLruCache<>(10);
+        cache.put(1, "a", 8);
+        cache.put(1, "b", 2);
+        cache.put(2, "c", 8);
+
+        assertEquals("b", cache.get(1));
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void put_tooHeavyIsNotCached() {
+        LongLruCache<String> cache = new LongLruCache<>(10);
+        cache.put(1, "a", 5);
+        cache.put(2, "b", 11);
+
+        assertFalse(cache.containsKey(2));
+        // Only the heavy entry itself has to go, but everything older is evicted first.
+        assertTrue(cache.isEmpty());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void remove_and_trimToSize() {
+        LongLruCache<String> cache = new LongLruCache<>(10);
+        for (int i = 0; i < 5; i++) {
+            cache.put(i, "v" + i, 2);
+        }
+        assertEquals("v2", cache.remove(2));
+        assertNull(cache.remove(2));
+        assertEquals(8, cache.size());
+
+        cache.trimToSize(4);
+        assertFalse(cache.containsKey(0));
+        assertFalse(cache.containsKey(1));
+        assertTrue(cache.containsKey(3));
+        assertTrue(cache.containsKey(4));
+        assertEquals(4, cache.size());
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class PositionOverlayTests {
+
+    private static final OrderedCollectionChangeSet.Range[] NONE = new OrderedCollectionChangeSet.Range[0];
+
+    private static class RecordingTarget implements ChangeSetDispatcher.Target {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void notifyDataSetChanged() {
+            calls.add("changed");
+        }
+
+        @Override
+        public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+            calls.add("removed " + positionStart + " " + itemCount);
+        }
+
+        @Override
+        public void notifyItemRangeInserted(int positionStart, int itemCount) {
+            calls.add("inserted " + positionStart + " " + itemCount);
+        }
+
+        @Override
+        public void notifyItemRangeChanged(int positionStart, int itemCount) {
+            calls.add("changed " + positionStart + " " + itemCount);
+        }
+    }
+
+    private static OrderedCollectionChangeSet.Range[] ranges(int... startAndLength) {
+        OrderedCollectionChangeSet.Range[] ranges = new OrderedCollectionChangeSet.Range[startAndLength.length / 2];
+        for (int i = 0; i < ranges.length; i++) {
+            ranges[i] = new OrderedCollectionChangeSet.Range(startAndLength[i * 2], startAndLength[i * 2 + 1]);
+        }
+        return ranges;
+    }
+
+    @Test
+    public void hide_mergesRemovalsIntoRanges() {
+        PositionOverlay overlay = new PositionOverlay();
+        RecordingTarget target = new RecordingTarget();
+        overlay.hide(new int[] {7, 2, 3, 4, 8, 3}, 1, target);
+
+        assertEquals(-5, overlay.getSizeDelta());
+        assertEquals(2, target.calls.size());
+        assertEquals("removed 8 2", target.calls.get(0));
+        assertEquals("removed 3 3", target.calls.get(1));
+        assertEquals(1, overlay.toDataIndex(1));
+        assertEquals(5, overlay.toDataIndex(2));
+        assertEquals(9, overlay.toDataIndex(4));
+        assertEquals(-1, overlay.toVisibleIndex(3));
+        assertEquals(4, overlay.toVisibleIndex(9));
+    }
+
+    @Test
+    public void translate_confirmedDeletionsAreNotReportedAgain() {
+        PositionOverlay overlay = new PositionOverlay();
+        RecordingTarget target = new RecordingTarget();
+        overlay.hide(new int[] {2, 5}, 0, target);
+
+        // Rows 2 and 5 are deleted together with row 8, which was still visible at position 6.
+        OrderedCollectionChangeSet visible = overlay.translate(new DecodedChangeSet(
+                OrderedCollectionChangeSet.State.UPDATE, ranges(2, 1, 5, 1, 8, 1), NONE, NONE, null, true), null);
+
+        assertTrue(overlay.isEmpty());
+        assertArrayEquals(new int[] {6}, visible.getDeletions());
+        assertEquals(0, visible.getInsertions().length);
+    }
+
+    @Test
+    public void translate_movesHiddenRows() {
+        PositionOverlay overlay = new PositionOverlay();
+        overlay.hide(new int[] {4}, 0, new RecordingTarget());
+
+        // Row 0 is deleted, two rows are inserted in front of the hidden row and row 5 (old 4) is modified.
+        OrderedCollectionChangeSet visible = overlay.translate(new DecodedChangeSet(
+                OrderedCollectionChangeSet.State.UPDATE, ranges(0, 1), ranges(1, 2), ranges(5, 1, 6, 1), null, true), null);
+
+        assertEquals(-1, overlay.getSizeDelta());
+        assertEquals(-1, overlay.toVisibleIndex(5));
+        assertArrayEquals(new int[] {0}, visible.getDeletions());
+        assertArrayEquals(new int[] {1, 2}, visible.getInsertions());
+        assertArrayEquals(new int[] {5}, visible.getChanges());
+    }
+
+    @Test
+    public void restore_onlyShowsRowsOfToken() {
+        PositionOverlay overlay = new PositionOverlay();
+        RecordingTarget target = new RecordingTarget();
+        int first = overlay.hide(new int[] {1, 2}, 0, target);
+        overlay.hide(new int[] {4}, 0, target);
+        target.calls.clear();
+
+        overlay.restore(first, 0, target);
+
+        assertEquals(-1, overlay.getSizeDelta());
+        assertEquals(1, target.calls.size());
+        assertEquals("inserted 1 2", target.calls.get(0));
+        assertEquals(-1, overlay.toVisibleIndex(4));
+    }
+
+    @Test
+    public void restoreSettled_restoresRowsNotReconciledByChangeSet() {
+        PositionOverlay overlay = new PositionOverlay();
+        RecordingTarget target = new RecordingTarget();
+        int deleted = overlay.hide(new int[] {2}, 0, target);
+        int notDeleted = overlay.hide(new int[] {5}, 0, target);
+        assertTrue(overlay.settle(deleted));
+        assertTrue(overlay.settle(notDeleted));
+
+        target.calls.clear();
+
+        // Only row 2 is deleted, row 5 (now 4) is shown again right after the change set.
+        overlay.translate(new DecodedChangeSet(
+                OrderedCollectionChangeSet.State.UPDATE, ranges(2, 1), NONE, NONE, null, true), null);
+        overlay.restoreSettled(0, target);
+
+        assertTrue(overlay.isEmpty());
+        assertEquals(1, target.calls.size());
+        assertEquals("inserted 4 1", target.calls.get(0));
+        assertFalse(overlay.settle(deleted));
+    }
+
+    @Test
+    public void translate_initialClearsOverlay() {
+        PositionOverlay overlay = new PositionOverlay();
+        overlay.hide(new int[] {1}, 0, new RecordingTarget());
+
+        OrderedCollectionChangeSet initial = DecodedChangeSet.initial();
+        assertEquals(initial, overlay.translate(initial, null));
+        assertTrue(overlay.isEmpty());
+    }
+
+    @Test
+    public void insert_placeholderIsShown() {
+        PositionOverlay overlay = new PositionOverlay();
+        RecordingTarget target = new RecordingTarget();
+        overlay.insert(2, 5, 42, "placeholder", 1, target);
+
+        assertEquals(1, overlay.getSizeDelta());
+        assertEquals("inserted 3 1", target.calls.get(0));
+        assertEquals(1, overlay.toDataIndex(1));
+        int placeholder = overlay.toDataIndex(2);
+        assertTrue(placeholder < 0);
+        assertEquals("placeholder", overlay.getPlaceholderItem(placeholder));
+        assertEquals(42, overlay.getPlaceholderKey(placeholder));
+        assertEquals(2, overlay.findPlaceholder(42));
+        assertEquals(2, overlay.toDataIndex(3));
+        assertEquals(3, overlay.toVisibleIndex(2));
+    }
+
+    @Test
+    public void translate_rowInsertedAtPlaceholderReplacesIt() {
+        PositionOverlay overlay = new PositionOverlay();
+        overlay.insert(2, 5, 42, "placeholder", 0, new RecordingTarget());
+        PositionOverlay.KeySource keys = new PositionOverlay.KeySource() {
+            @Override
+            public long getKey(int dataIndex) {
+                return dataIndex == 2 ? 42 : dataIndex;
+            }
+        };
+
+        OrderedCollectionChangeSet visible = overlay.translate(new DecodedChangeSet(
+                OrderedCollectionChangeSet.State.UPDATE, NONE, ranges(2, 1), NONE, null, true), keys);
+
+        assertTrue(overlay.isEmpty());
+        assertEquals(0, visible.getDeletions().length);
+        assertEquals(0, visible.getInsertions().length);
+        assertArrayEquals(new int[] {2}, visible.getChanges());
+    }
+
+    @Test
+    public void translate_rowInsertedElsewhereMovesPlaceholder() {
+        PositionOverlay overlay = new PositionOverlay();
+        overlay.insert(5, 5, 42, "placeholder", 0, new RecordingTarget());
+        PositionOverlay.KeySource keys = new PositionOverlay.KeySource() {
+            @Override
+            public long getKey(int dataIndex) {
+                return dataIndex == 0 ? 42 : dataIndex;
+            }
+        };
+
+        OrderedCollectionChangeSet visible = overlay.translate(new DecodedChangeSet(
+                OrderedCollectionChangeSet.State.UPDATE, NONE, ranges(0, 1), NONE, null, true), keys);
+
+        assertTrue(overlay.isEmpty());
+        assertArrayEquals(new int[] {5}, visible.getDeletions());
+        assertArrayEquals(new int[] {0}, visible.getInsertions());
+    }
+
+    @Test
+    public void restore_removesPlaceholder() {
+        PositionOverlay overlay = new PositionOverlay();
+        RecordingTarget target = new RecordingTarget();
+        int token = overlay.insert(0, 3, 42, "placeholder", 0, target);
+        target.calls.clear();
+
+        overlay.restore(token, 0, target);
+
+        assertTrue(overlay.isEmpty());
+        assertEquals(1, target.calls.size());
+        assertEquals("removed 0 1", target.calls.get(0));
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm;
+
+import android.content.Context;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import io.realm.entity.AllJavaTypes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(AndroidJUnit4.class)
+public class RealmBackgroundDataSourceTests {
+
+    private static final int TEST_DATA_SIZE = 47;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static class StringDataSource extends RealmBackgroundDataSource<AllJavaTypes, String> {
+
+        StringDataSource(RealmConfiguration configuration) {
+            super(configuration);
+        }
+
+        @Override
+        protected RealmResults<AllJavaTypes> query(Realm realm) {
+            return realm.where(AllJavaTypes.class).sort(AllJavaTypes.FIELD_LONG).findAll();
+        }
+
+        @Override
+        protected String map(AllJavaTypes item) {
+            return item.getFieldString();
+        }
+    }
+
+    private static class Snapshot {
+        final List<String> models;
+        final OrderedCollectionChangeSet changeSet;
+        final int itemCount;
+
+        Snapshot(List<String> models, OrderedCollectionChangeSet changeSet, int itemCount) {
+            this.models = new ArrayList<>(models);
+            this.changeSet = changeSet;
+            this.itemCount = itemCount;
+        }
+    }
+
+    private static class TestAdapter extends RealmSnapshotRecyclerViewAdapter<String, RecyclerView.ViewHolder> {
+        final BlockingQueue<Snapshot> snapshots = new LinkedBlockingQueue<>();
+
+        @Override
+        public void onSnapshot(List<String> snapshot, OrderedCollectionChangeSet changeSet) {
+            super.onSnapshot(snapshot, changeSet);
+            snapshots.add(new Snapshot(snapshot, changeSet, getItemCount()));
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(new TextView(parent.getContext())) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            ((TextView) holder.itemView).setText(getItem(position));
+        }
+    }
+
+    private RealmConfiguration realmConfig;
+    private StringDataSource dataSource;
+    private TestAdapter adapter;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getContext();
+        realmConfig = new RealmConfiguration.Builder(context).modules(new RealmTestModule()).build();
+        Realm.deleteRealm(realmConfig);
+        Realm realm = Realm.getInstance(realmConfig);
+        realm.beginTransaction();
+        for (int i = 0; i < TEST_DATA_SIZE; i++) {
+            AllJavaTypes allTypes = realm.createObject(AllJavaTypes.class, i);
+            allTypes.setFieldString("test data " + i);
+        }
+        realm.commitTransaction();
+        realm.close();
+
+        dataSource = new StringDataSource(realmConfig);
+        adapter = new TestAdapter();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                dataSource.start(adapter);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                dataSource.close();
+            }
+        });
+    }
+
+    @Test
+    public void start_deliversInitialSnapshot() throws InterruptedException {
+        Snapshot snapshot = adapter.snapshots.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(snapshot);
+        assertEquals(OrderedCollectionChangeSet.State.INITIAL, snapshot.changeSet.getState());
+        assertEquals(TEST_DATA_SIZE, snapshot.itemCount);
+        for (int i = 0; i < TEST_DATA_SIZE; i++) {
+            assertEquals("test data " + i, snapshot.models.get(i));
+        }
+    }
+
+    @Test
+    public void commit_deliversSnapshotWithChangeSet() throws InterruptedException {
+        assertNotNull(adapter.snapshots.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        Realm realm = Realm.getInstance(realmConfig);
+        realm.beginTransaction();
+        //noinspection ConstantConditions
+        realm.where(AllJavaTypes.class).equalTo(AllJavaTypes.FIELD_LONG, 0L).findFirst().deleteFromRealm();
+        //noinspection ConstantConditions
+        realm.where(AllJavaTypes.class).equalTo(AllJavaTypes.FIELD_LONG, 2L).findFirst().setFieldString("changed");
+        // Same model as before, so it must not be reported as changed.
+        //noinspection ConstantConditions
+        realm.where(AllJavaTypes.class).equalTo(AllJavaTypes.FIELD_LONG, 3L).findFirst().setFieldString("test data 3");
+        realm.createObject(AllJavaTypes.class, TEST_DATA_SIZE).setFieldString("inserted");
+        realm.commitTransaction();
+        realm.close();
+
+        Snapshot snapshot = adapter.snapshots.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(snapshot);
+        assertEquals(OrderedCollectionChangeSet.State.UPDATE, snapshot.changeSet.getState());
+        assertEquals(TEST_DATA_SIZE, snapshot.itemCount);
+        assertEquals("test data 1", snapshot.models.get(0));
+        assertEquals("changed", snapshot.models.get(1));
+        assertEquals("inserted", snapshot.models.get(TEST_DATA_SIZE - 1));
+
+        OrderedCollectionChangeSet changeSet = snapshot.changeSet;
+        assertEquals(1, changeSet.getDeletionRanges().length);
+        assertEquals(0, changeSet.getDeletionRanges()[0].startIndex);
+        assertEquals(1, changeSet.getInsertionRanges().length);
+        assertEquals(TEST_DATA_SIZE - 1, changeSet.getInsertionRanges()[0].startIndex);
+        assertEquals(1, changeSet.getChangeRanges().length);
+        assertEquals(1, changeSet.getChangeRanges()[0].startIndex);
+        assertEquals(1, changeSet.getChangeRanges()[0].length);
+    }
+}
@@ -18,6 +18,8 @@ package io.realm;
 
 import android.content.Context;
 import android.view.View;
+import android.view.ViewGroup;
+import android.widget.Filter;
 import android.widget.TextView;
 
 import org.junit.After;
@@ -26,6 +28,13 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import androidx.test.annotation.UiThreadTest;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.platform.app.InstrumentationRegistry;
@@ -42,6 +51,28 @@ import static org.junit.Assert.fail;
 @RunWith(AndroidJUnit4.class)
 public class RealmBaseAdapterTests {
 
+    private static class FilterableTestAdapter extends RealmFilterableBaseAdapter<AllJavaTypes> {
+
+        FilterableTestAdapter(Realm realm) {
+            super(realm, AllJavaTypes.class, AllJavaTypes.FIELD_LONG, new RealmKeyProvider<AllJavaTypes>() {
+                @Override
+                public long getKey(AllJavaTypes item) {
+                    return item.getFieldLong();
+                }
+            }, null);
+        }
+
+        @Override
+        protected RealmQuery<AllJavaTypes> buildQuery(RealmQuery<AllJavaTypes> query, String constraint) {
+            return query.beginsWith(AllJavaTypes.FIELD_STRING, constraint).sort(AllJavaTypes.FIELD_LONG);
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            return convertView != null ? convertView : new TextView(parent.getContext());
+        }
+    }
+
     private final static int TEST_DATA_SIZE = 47;
 
     private Context context;
@@ -247,4 +278,79 @@ public class RealmBaseAdapterTests {
         assertEquals(0, realmAdapter.getCount());
         assertNull(realmAdapter.getItem(0));
     }
+
+    @Test
+    public void filter_showsMatchingObjectsUpToLimit() throws InterruptedException {
+        final FilterableTestAdapter[] adapter = new FilterableTestAdapter[1];
+        final CountDownLatch filtered = new CountDownLatch(1);
+        final AtomicInteger filterCount = new AtomicInteger(-1);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                adapter[0] = new FilterableTestAdapter(realm);
+                adapter[0].setDebounceMillis(0);
+                adapter[0].setLimit(5);
+                // Matches "test data 1" and "test data 10" to "test data 19".
+                adapter[0].getFilter().filter("test data 1", new Filter.FilterListener() {
+                    @Override
+                    public void onFilterComplete(int count) {
+                        filterCount.set(count);
+                        filtered.countDown();
+                    }
+                });
+            }
+        });
+        assertTrue(filtered.await(10, TimeUnit.SECONDS));
+        assertEquals(5, filterCount.get());
+
+        final List<String> strings = new ArrayList<>();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < adapter[0].getCount(); i++) {
+                    //noinspection ConstantConditions
+                    strings.add(adapter[0].getItem(i).getFieldString());
+                }
+                adapter[0].close();
+            }
+        });
+        assertEquals(5, strings.size());
+        for (String string : strings) {
+            assertTrue(string.startsWith("test data 1"));
+        }
+    }
+
+    @Test
+    public void filter_noMatchShowsNothing() throws InterruptedException {
+        final FilterableTestAdapter[] adapter = new FilterableTestAdapter[1];
+        final CountDownLatch filtered = new CountDownLatch(1);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                adapter[0] = new FilterableTestAdapter(realm);
+                adapter[0].setDebounceMillis(0);
+                adapter[0].getFilter().filter("no match", new Filter.FilterListener() {
+                    @Override
+                    public void onFilterComplete(int count) {
+                        filtered.countDown();
+                    }
+                });
+            }
+        });
+        assertTrue(filtered.await(10, TimeUnit.SECONDS));
+
+        final AtomicInteger count = new AtomicInteger(-1);
+        final AtomicBoolean managed = new AtomicBoolean();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                count.set(adapter[0].getCount());
+                // The adapter keeps an empty managed collection instead of null.
+                managed.set(adapter[0].adapterData != null && adapter[0].adapterData.isManaged());
+                adapter[0].close();
+            }
+        });
+        assertEquals(0, count.get());
+        assertTrue(managed.get());
+    }
 }
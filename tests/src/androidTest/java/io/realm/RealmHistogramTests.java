@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class RealmHistogramTests {
+
+    @Test
+    public void buckets_coverAllValuesInOrder() {
+        RealmHistogram histogram = new RealmHistogram();
+        assertEquals(0, histogram.getBucketLowerBound(0));
+        for (int i = 1; i < histogram.getBucketCount(); i++) {
+            long lower = histogram.getBucketLowerBound(i);
+            assertTrue(lower > histogram.getBucketLowerBound(i - 1));
+            assertEquals(i, RealmHistogram.bucketOf(lower));
+            assertEquals(i - 1, RealmHistogram.bucketOf(lower - 1));
+        }
+        assertEquals(histogram.getBucketCount() - 1, RealmHistogram.bucketOf(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void bucketWidth_isBoundedRelativeToValue() {
+        RealmHistogram histogram = new RealmHistogram();
+        for (int i = 4; i < histogram.getBucketCount() - 1; i++) {
+            long lower = histogram.getBucketLowerBound(i);
+            long width = histogram.getBucketLowerBound(i + 1) - lower;
+            assertTrue(width * 4 <= lower);
+        }
+    }
+
+    @Test
+    public void record_tracksStatistics() {
+        RealmHistogram histogram = new RealmHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i * 1000);
+        }
+        histogram.record(-5);
+
+        assertEquals(101, histogram.getCount());
+        assertEquals(0, histogram.getMin());
+        assertEquals(100000, histogram.getMax());
+        assertEquals(5050000, histogram.getSum());
+        long median = histogram.getValueAtPercentile(50);
+        assertTrue(median >= 50000 && median <= 50000 * 5 / 4);
+        assertEquals(100000, histogram.getValueAtPercentile(100));
+        assertEquals(0, histogram.getValueAtPercentile(0));
+
+        long total = 0;
+        for (int i = 0; i < histogram.getBucketCount(); i++) {
+            total += histogram.getCountAt(i);
+        }
+        assertEquals(101, total);
+    }
+
+    @Test
+    public void reset_forgetsValues() {
+        RealmHistogram histogram = new RealmHistogram();
+        histogram.record(42);
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getCountAt(RealmHistogram.bucketOf(42)));
+    }
+}
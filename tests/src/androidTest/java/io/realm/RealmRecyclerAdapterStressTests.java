@@ -0,0 +1,333 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.platform.app.InstrumentationRegistry;
+import io.realm.adapter.RecyclerViewTestAdapter;
+import io.realm.entity.AllJavaTypes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Stress test of {@link RealmRecyclerViewAdapter} at the scale of production collections.
+ * <p>
+ * Background writers randomly insert, delete, move and modify rows of a sorted collection of {@value #ROWS} rows
+ * bound to a {@link RecyclerView}. The view is laid out after every notification, like the main thread would before
+ * drawing the next frame, so any notification not matching the collection fails the layout with an
+ * "Inconsistency detected" exception. The dispatch latency percentiles are reported as instrumentation status.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class RealmRecyclerAdapterStressTests {
+
+    private static final String TAG = "RealmAdapterStress";
+
+    private static final int ROWS = 200000;
+    private static final int ROWS_PER_TRANSACTION = 10000;
+    private static final int WRITERS = 4;
+    private static final int TRANSACTIONS_PER_WRITER = 50;
+    private static final int MAX_OPERATIONS_PER_TRANSACTION = 200;
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final RealmMetricsRecorder metrics = new RealmMetricsRecorder();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final Random scrollRandom = new Random();
+
+    private Context context;
+    private RealmConfiguration realmConfig;
+
+    // Only accessed on the main thread.
+    private Realm realm;
+    private RealmResults<AllJavaTypes> results;
+    private RecyclerViewTestAdapter adapter;
+    private RecyclerView recyclerView;
+    private boolean layoutPosted;
+
+    private final Runnable layoutPass = new Runnable() {
+        @Override
+        public void run() {
+            layoutPosted = false;
+            try {
+                // Lay out a random window of the collection, so notifications are checked against different rows.
+                recyclerView.scrollToPosition(scrollRandom.nextInt(Math.max(1, adapter.getItemCount())));
+                layout();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        }
+    };
+
+    private final RecyclerView.AdapterDataObserver layoutScheduler = new RecyclerView.AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            scheduleLayout();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            scheduleLayout();
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            scheduleLayout();
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            scheduleLayout();
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            scheduleLayout();
+        }
+    };
+
+    @Before
+    public void setUp() throws Throwable {
+        context = instrumentation.getContext();
+        realmConfig = new RealmConfiguration.Builder(context)
+                .name("stress.realm")
+                .modules(new RealmTestModule())
+                .build();
+        Realm.deleteRealm(realmConfig);
+
+        Realm writeRealm = Realm.getInstance(realmConfig);
+        try {
+            for (int start = 0; start < ROWS; start += ROWS_PER_TRANSACTION) {
+                writeRealm.beginTransaction();
+                for (int i = start; i < Math.min(ROWS, start + ROWS_PER_TRANSACTION); i++) {
+                    AllJavaTypes allTypes = writeRealm.createObject(AllJavaTypes.class, i);
+                    allTypes.setFieldInt(i);
+                    allTypes.setFieldString("test data " + i);
+                }
+                writeRealm.commitTransaction();
+            }
+        } finally {
+            writeRealm.close();
+        }
+
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                realm = Realm.getInstance(realmConfig);
+                // Sorted, so changing the sort key of a row moves it.
+                results = realm.where(AllJavaTypes.class).sort(AllJavaTypes.FIELD_INT).findAll();
+                adapter = new RecyclerViewTestAdapter(context, results, true);
+                adapter.setMetrics(metrics);
+                recyclerView = new RecyclerView(context);
+                recyclerView.setLayoutManager(new LinearLayoutManager(context));
+                // Animations would keep stale views attached, as they never run without a window.
+                recyclerView.setItemAnimator(null);
+                recyclerView.setAdapter(adapter);
+                adapter.registerAdapterDataObserver(layoutScheduler);
+                layout();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Throwable {
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                mainHandler.removeCallbacks(layoutPass);
+                if (adapter != null) {
+                    adapter.unregisterAdapterDataObserver(layoutScheduler);
+                }
+                if (recyclerView != null) {
+                    recyclerView.setAdapter(null);
+                }
+                if (realm != null) {
+                    realm.close();
+                }
+            }
+        });
+        Realm.deleteRealm(realmConfig);
+    }
+
+    @Test
+    public void concurrentWriters_keepRecyclerViewConsistent() throws Throwable {
+        final long seed = new Random().nextLong();
+        Log.i(TAG, "Seed: " + seed);
+        final AtomicLong nextKey = new AtomicLong(ROWS);
+
+        Thread[] writers = new Thread[WRITERS];
+        for (int i = 0; i < WRITERS; i++) {
+            final Random random = new Random(seed + i);
+            writers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    write(random, nextKey);
+                }
+            }, "StressWriter-" + i);
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        // Delivers the remaining notifications and checks the final layout against the collection.
+        runOnMainThread(new Runnable() {
+            @Override
+            public void run() {
+                realm.refresh();
+                mainHandler.removeCallbacks(layoutPass);
+                layoutPosted = false;
+                layout();
+                verifyBoundRows();
+            }
+        });
+
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new AssertionError("Inconsistent notifications with seed " + seed, error);
+        }
+        assertTrue(metrics.getChangeDurations().getCount() > 0);
+        reportLatency();
+    }
+
+    private void write(Random random, AtomicLong nextKey) {
+        Realm writeRealm = Realm.getInstance(realmConfig);
+        try {
+            for (int transaction = 0; transaction < TRANSACTIONS_PER_WRITER && failure.get() == null; transaction++) {
+                writeRealm.beginTransaction();
+                int operations = 1 + random.nextInt(MAX_OPERATIONS_PER_TRANSACTION);
+                for (int i = 0; i < operations; i++) {
+                    int operation = random.nextInt(4);
+                    if (operation == 0) {
+                        long key = nextKey.getAndIncrement();
+                        AllJavaTypes allTypes = writeRealm.createObject(AllJavaTypes.class, key);
+                        allTypes.setFieldInt(random.nextInt(ROWS));
+                        allTypes.setFieldString("inserted " + key);
+                        continue;
+                    }
+                    // Rows deleted by any writer are skipped.
+                    AllJavaTypes allTypes = writeRealm.where(AllJavaTypes.class)
+                            .equalTo(AllJavaTypes.FIELD_LONG, (long) random.nextInt((int) nextKey.get()))
+                            .findFirst();
+                    if (allTypes == null) {
+                        continue;
+                    }
+                    if (operation == 1) {
+                        allTypes.deleteFromRealm();
+                    } else if (operation == 2) {
+                        allTypes.setFieldInt(random.nextInt(ROWS));
+                    } else {
+                        allTypes.setFieldString("modified " + random.nextInt());
+                    }
+                }
+                writeRealm.commitTransaction();
+            }
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            if (writeRealm.isInTransaction()) {
+                writeRealm.cancelTransaction();
+            }
+        } finally {
+            writeRealm.close();
+        }
+    }
+
+    private void scheduleLayout() {
+        if (!layoutPosted) {
+            layoutPosted = true;
+            mainHandler.post(layoutPass);
+        }
+    }
+
+    private void layout() {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    private void verifyBoundRows() {
+        assertEquals(results.size(), adapter.getItemCount());
+        assertTrue(results.isEmpty() || recyclerView.getChildCount() > 0);
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            RecyclerViewTestAdapter.ViewHolder holder =
+                    (RecyclerViewTestAdapter.ViewHolder) recyclerView.getChildViewHolder(recyclerView.getChildAt(i));
+            AllJavaTypes allTypes = results.get(holder.getAdapterPosition());
+            assertEquals(allTypes.getFieldLong(), holder.getItemId());
+            assertEquals(allTypes.getFieldString(), holder.textView.getText().toString());
+        }
+    }
+
+    private void reportLatency() {
+        RealmHistogram durations = metrics.getChangeDurations();
+        String report = String.format(Locale.US,
+                "%d notifications, dispatch latency p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+                durations.getCount(),
+                durations.getValueAtPercentile(50) / 1e6,
+                durations.getValueAtPercentile(90) / 1e6,
+                durations.getValueAtPercentile(99) / 1e6,
+                durations.getMax() / 1e6);
+        Log.i(TAG, report);
+        Bundle status = new Bundle();
+        status.putString(Instrumentation.REPORT_KEY_STREAMRESULT, report + "\n");
+        instrumentation.sendStatus(2, status);
+    }
+
+    // Rethrows failures on the calling thread instead of crashing the main thread.
+    private void runOnMainThread(final Runnable runnable) throws Throwable {
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    runnable.run();
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            }
+        });
+        if (error.get() != null) {
+            throw error.get();
+        }
+    }
+}
@@ -24,6 +24,15 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.recyclerview.widget.RecyclerView;
 import androidx.test.annotation.UiThreadTest;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.platform.app.InstrumentationRegistry;
@@ -34,6 +43,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 @RunWith(AndroidJUnit4.class)
@@ -248,4 +258,182 @@ public class RealmRecyclerAdapterTests {
         realmAdapter.onBindViewHolder(holder, 0);
         assertEquals(resultList.first().getFieldString(), holder.textView.getText());
     }
+
+    @Test
+    @UiThreadTest
+    public void getItemViewType_usesViewTypeProvider() {
+        RealmResults<AllJavaTypes> resultList = realm.where(AllJavaTypes.class).sort(AllJavaTypes.FIELD_LONG).findAll();
+        RecyclerViewTestAdapter realmAdapter = new RecyclerViewTestAdapter(context, resultList, AUTOMATIC_UPDATE);
+        assertEquals(0, realmAdapter.getItemViewType(1));
+
+        realmAdapter.setViewTypeProvider(new RealmViewTypeProvider<AllJavaTypes>() {
+            @Override
+            public int getViewType(AllJavaTypes item) {
+                return (int) (item.getFieldLong() % 3);
+            }
+        });
+        for (int i = 0; i < TEST_DATA_SIZE; i++) {
+            assertEquals(i % 3, realmAdapter.getItemViewType(i));
+        }
+        // Positions outside of the collection, e.g. footers, keep the default view type.
+        assertEquals(0, realmAdapter.getItemViewType(TEST_DATA_SIZE));
+
+        realmAdapter.setViewTypeProvider(null);
+        assertEquals(0, realmAdapter.getItemViewType(1));
+    }
+
+    @Test
+    @UiThreadTest
+    public void itemSelection_headerAndFooterAreNeverSelected() {
+        RealmResults<AllJavaTypes> resultList = realm.where(AllJavaTypes.class).sort(AllJavaTypes.FIELD_LONG).findAll();
+        RecyclerViewTestAdapter realmAdapter = new RecyclerViewTestAdapter(context, resultList, AUTOMATIC_UPDATE) {
+            @Override
+            public int dataOffset() {
+                return 1;
+            }
+
+            @Override
+            public int getItemCount() {
+                // A header and a footer.
+                return super.getItemCount() + 2;
+            }
+        };
+        realmAdapter.setKeyProvider(new RealmKeyProvider<AllJavaTypes>() {
+            @Override
+            public long getKey(AllJavaTypes item) {
+                return item.getFieldLong();
+            }
+        });
+        RealmItemSelection selection = new RealmItemSelection(realmAdapter);
+        for (int i = 0; i < TEST_DATA_SIZE; i++) {
+            selection.setSelected(i, true);
+        }
+
+        assertFalse(selection.isSelectedAt(0));
+        for (int i = 0; i < TEST_DATA_SIZE; i++) {
+            assertTrue(selection.isSelectedAt(i + 1));
+        }
+        assertFalse(selection.isSelectedAt(TEST_DATA_SIZE + 1));
+
+        selection.setSelected(0, false);
+        assertFalse(selection.isSelectedAt(1));
+        assertTrue(selection.isSelectedAt(2));
+    }
+
+    private static class RecordingSink implements RealmAdapterTracing.Sink {
+        final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void beginSection(String name) {
+            calls.add("begin " + name);
+        }
+
+        @Override
+        public void endSection() {
+            calls.add("end");
+        }
+
+        @Override
+        public void setCounter(String name, int value) {
+            calls.add(name + " " + value);
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void tracing_emitsSectionsAndCounters() {
+        RealmResults<AllJavaTypes> resultList = realm.where(AllJavaTypes.class).sort(AllJavaTypes.FIELD_LONG).findAll();
+        RecyclerViewTestAdapter realmAdapter = new RecyclerViewTestAdapter(context, resultList, AUTOMATIC_UPDATE);
+        RecyclerView recyclerView = new RecyclerView(context);
+        RecordingSink sink = new RecordingSink();
+        RealmAdapterTracing.sink = sink;
+        RealmAdapterTracing.setEnabled(true);
+        try {
+            assertTrue(RealmAdapterTracing.isEnabled());
+            realmAdapter.onAttachedToRecyclerView(recyclerView);
+            assertEquals(Arrays.asList("begin " + RealmAdapterTracing.SECTION_ADD_LISTENER, "end"), sink.calls);
+
+            // Reading items is only traced as part of binding a row.
+            sink.calls.clear();
+            //noinspection ConstantConditions
+            assertEquals(0, realmAdapter.getItem(0).getFieldLong());
+            assertTrue(sink.calls.isEmpty());
+            RecyclerViewTestAdapter.ViewHolder holder = realmAdapter.onCreateViewHolder(recyclerView, 0);
+            realmAdapter.onBindViewHolder(holder, 0, Collections.emptyList());
+            assertEquals(Arrays.asList("begin " + RealmAdapterTracing.SECTION_BIND, "end"), sink.calls);
+
+            sink.calls.clear();
+            // Replayed change sets are traced like the ones reported by Realm.
+            RealmRecyclerViewAdapter<AllJavaTypes, ?> adapter = realmAdapter;
+            adapter.dispatchReplayed(new DecodedChangeSet(OrderedCollectionChangeSet.State.UPDATE,
+                    new OrderedCollectionChangeSet.Range[] {new OrderedCollectionChangeSet.Range(0, 2)},
+                    new OrderedCollectionChangeSet.Range[] {new OrderedCollectionChangeSet.Range(0, 1)},
+                    new OrderedCollectionChangeSet.Range[] {new OrderedCollectionChangeSet.Range(1, 3)},
+                    null, true));
+            assertEquals(Arrays.asList("begin " + RealmAdapterTracing.SECTION_CHANGE,
+                    RealmAdapterTracing.COUNTER_DELETIONS + " 2",
+                    RealmAdapterTracing.COUNTER_INSERTIONS + " 1",
+                    RealmAdapterTracing.COUNTER_CHANGES + " 3",
+                    "end"), sink.calls);
+
+            sink.calls.clear();
+            realmAdapter.updateData(null);
+            assertEquals(0, realmAdapter.getItemCount());
+            assertEquals(Arrays.asList("begin " + RealmAdapterTracing.SECTION_UPDATE_DATA,
+                    "begin " + RealmAdapterTracing.SECTION_REMOVE_LISTENER, "end", "end"), sink.calls);
+        } finally {
+            RealmAdapterTracing.setEnabled(false);
+            RealmAdapterTracing.resetSink();
+        }
+        assertFalse(RealmAdapterTracing.isEnabled());
+
+        // Nothing is emitted once disabled.
+        sink.calls.clear();
+        realmAdapter.updateData(resultList);
+        realmAdapter.onDetachedFromRecyclerView(recyclerView);
+        assertTrue(sink.calls.isEmpty());
+    }
+
+    @Test
+    @UiThreadTest
+    public void changeSetRecorder_replaysRecordedChangeSets() throws IOException {
+        RealmResults<AllJavaTypes> resultList = realm.where(AllJavaTypes.class).findAll();
+        RecyclerViewTestAdapter realmAdapter = new RecyclerViewTestAdapter(context, resultList, AUTOMATIC_UPDATE);
+        RecyclerView recyclerView = new RecyclerView(context);
+        realmAdapter.onAttachedToRecyclerView(recyclerView);
+
+        ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        RealmChangeSetRecorder recorder = new RealmChangeSetRecorder(realmAdapter, trace);
+        recorder.start();
+        RealmResults<AllJavaTypes> emptyResultList =
+                realm.where(AllJavaTypes.class).equalTo(AllJavaTypes.FIELD_STRING, "Not there").findAll();
+        realmAdapter.updateData(emptyResultList);
+        recorder.close();
+        // The start of the recording and the replacement of the collection.
+        assertEquals(2, recorder.getRecordCount());
+        assertNull(recorder.getError());
+
+        RealmChangeSetReplayer replayer = new RealmChangeSetReplayer(new ByteArrayInputStream(trace.toByteArray()));
+        assertEquals(2, replayer.getChangeSetCount());
+        assertEquals(OrderedCollectionChangeSet.State.INITIAL, replayer.getChangeSet(0).getState());
+        assertEquals(TEST_DATA_SIZE, replayer.getCollectionSize(0));
+        assertEquals(0, replayer.getCollectionSize(1));
+
+        final int[] notifications = new int[1];
+        realmAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                notifications[0]++;
+            }
+        });
+        replayer.replay(realmAdapter);
+        assertEquals(2, notifications[0]);
+
+        realmAdapter.onDetachedFromRecyclerView(recyclerView);
+        try {
+            replayer.replay(realmAdapter);
+            fail("Should throw if the collection is not observed");
+        } catch (IllegalStateException ignore) {
+        }
+    }
 }
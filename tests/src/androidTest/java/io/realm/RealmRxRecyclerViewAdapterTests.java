@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.realm;
+
+import android.content.Context;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.reactivestreams.Publisher;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import io.reactivex.BackpressureStrategy;
+import io.reactivex.Flowable;
+import io.reactivex.FlowableTransformer;
+import io.reactivex.functions.Function;
+import io.realm.entity.AllJavaTypes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class RealmRxRecyclerViewAdapterTests {
+
+    private static final int TEST_DATA_SIZE = 47;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private static class TestAdapter
+            extends RealmRxRecyclerViewAdapter<AllJavaTypes, RecyclerView.ViewHolder> {
+        final BlockingQueue<Throwable> errors = new LinkedBlockingQueue<>();
+
+        TestAdapter(OrderedRealmCollection<AllJavaTypes> data,
+                    FlowableTransformer<ChangesetEvent, ChangesetEvent> transformer) {
+            super(data, true, BackpressureStrategy.BUFFER, transformer);
+        }
+
+        @Override
+        public void onChangesetError(Throwable error) {
+            errors.add(error);
+        }
+
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(new TextView(parent.getContext())) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(RecyclerView.ViewHolder holder, int position) {
+            AllJavaTypes item = getItem(position);
+            ((TextView) holder.itemView).setText(item != null ? item.getFieldString() : null);
+        }
+    }
+
+    private Context context;
+    private RealmConfiguration realmConfig;
+    private Realm realm;
+    private RecyclerView recyclerView;
+    private TestAdapter adapter;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getContext();
+        realmConfig = new RealmConfiguration.Builder(context).modules(new RealmTestModule()).build();
+        Realm.deleteRealm(realmConfig);
+        Realm realm = Realm.getInstance(realmConfig);
+        realm.beginTransaction();
+        for (int i = 0; i < TEST_DATA_SIZE; i++) {
+            AllJavaTypes allTypes = realm.createObject(AllJavaTypes.class, i);
+            allTypes.setFieldString("test data " + i);
+        }
+        realm.commitTransaction();
+        realm.close();
+    }
+
+    @After
+    public void tearDown() {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                if (adapter != null) {
+                    adapter.onDetachedFromRecyclerView(recyclerView);
+                }
+                if (realm != null) {
+                    realm.close();
+                }
+            }
+        });
+    }
+
+    @Test
+    public void failingTransformer_stopsListeningAndShowsCurrentContent() throws InterruptedException {
+        final RuntimeException failure = new IllegalStateException("Transformer failure");
+        final FlowableTransformer<RealmRxRecyclerViewAdapter.ChangesetEvent, RealmRxRecyclerViewAdapter.ChangesetEvent>
+                transformer = new FlowableTransformer<RealmRxRecyclerViewAdapter.ChangesetEvent,
+                RealmRxRecyclerViewAdapter.ChangesetEvent>() {
+            @Override
+            public Publisher<RealmRxRecyclerViewAdapter.ChangesetEvent> apply(
+                    Flowable<RealmRxRecyclerViewAdapter.ChangesetEvent> upstream) {
+                return upstream.map(new Function<RealmRxRecyclerViewAdapter.ChangesetEvent,
+                        RealmRxRecyclerViewAdapter.ChangesetEvent>() {
+                    @Override
+                    public RealmRxRecyclerViewAdapter.ChangesetEvent apply(
+                            RealmRxRecyclerViewAdapter.ChangesetEvent event) {
+                        throw failure;
+                    }
+                });
+            }
+        };
+        final int[] dataSetChanges = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                realm = Realm.getInstance(realmConfig);
+                adapter = new TestAdapter(realm.where(AllJavaTypes.class).sort(AllJavaTypes.FIELD_LONG).findAll(),
+                        transformer);
+                adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+                    @Override
+                    public void onChanged() {
+                        dataSetChanges[0]++;
+                    }
+                });
+                recyclerView = new RecyclerView(context);
+                adapter.onAttachedToRecyclerView(recyclerView);
+                assertTrue(adapter.isListening());
+            }
+        });
+
+        Realm backgroundRealm = Realm.getInstance(realmConfig);
+        backgroundRealm.beginTransaction();
+        //noinspection ConstantConditions
+        backgroundRealm.where(AllJavaTypes.class).equalTo(AllJavaTypes.FIELD_LONG, 0L).findFirst().deleteFromRealm();
+        backgroundRealm.commitTransaction();
+        backgroundRealm.close();
+
+        Throwable error = adapter.errors.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(error);
+        assertEquals(failure, error);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                assertFalse(adapter.isListening());
+                assertEquals(1, dataSetChanges[0]);
+                assertEquals(TEST_DATA_SIZE - 1, adapter.getItemCount());
+                //noinspection ConstantConditions
+                assertEquals(1, adapter.getItem(0).getFieldLong());
+            }
+        });
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class RealmViewHolderPreInflaterTests {
+
+    @Test
+    public void countForViewport_includesPartialRow() {
+        // 1000 / 100 = 10 full rows, plus one partially visible while scrolling.
+        assertEquals(11, RealmViewHolderPreInflater.countForViewport(1000, 100, 1, 0));
+        // 1050 / 100 needs 11 rows to cover the viewport, plus one partially visible while scrolling.
+        assertEquals(12, RealmViewHolderPreInflater.countForViewport(1050, 100, 1, 0));
+    }
+
+    @Test
+    public void countForViewport_multipliesBySpanCountAndAddsExtra() {
+        assertEquals(11 * 3 + 4, RealmViewHolderPreInflater.countForViewport(1000, 100, 3, 4));
+    }
+
+    @Test
+    public void countForViewport_unmeasuredItem() {
+        assertEquals(5 + 2, RealmViewHolderPreInflater.countForViewport(1000, 0, 1, 2));
+    }
+}
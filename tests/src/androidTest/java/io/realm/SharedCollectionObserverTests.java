@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 Realm Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.realm;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import io.realm.adapter.ListViewTestAdapter;
+import io.realm.adapter.RecyclerViewTestAdapter;
+import io.realm.entity.AllJavaTypes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@RunWith(AndroidJUnit4.class)
+public class SharedCollectionObserverTests {
+
+    private static final int TEST_DATA_SIZE = 47;
+
+    private Context context;
+    private Realm realm;
+
+    private final OrderedRealmCollectionChangeListener emptyListener = new OrderedRealmCollectionChangeListener() {
+        @Override
+        public void onChange(Object collection, OrderedCollectionChangeSet changeSet) {
+        }
+    };
+
+    @Before
+    @UiThreadTest
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getContext();
+        RealmConfiguration realmConfig = new RealmConfiguration.Builder(context).modules(new RealmTestModule()).build();
+        Realm.deleteRealm(realmConfig);
+        realm = Realm.getInstance(realmConfig);
+
+        realm.beginTransaction();
+        for (int i = 0; i < TEST_DATA_SIZE; i++) {
+            AllJavaTypes allTypes = realm.createObject(AllJavaTypes.class, i);
+            allTypes.setFieldString("test data " + i);
+        }
+        realm.commitTransaction();
+    }
+
+    @After
+    @UiThreadTest
+    public void tearDown() {
+        if (realm != null) {
+            realm.close();
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void subscribe_countsSubscriptions() {
+        RealmResults<AllJavaTypes> results = realm.where(AllJavaTypes.class).findAll();
+        assertEquals(0, SharedCollectionObserver.getSubscriberCount(results));
+
+        SharedCollectionObserver.subscribe(results, emptyListener);
+        SharedCollectionObserver.subscribe(results, emptyListener);
+        assertEquals(2, SharedCollectionObserver.getSubscriberCount(results));
+
+        SharedCollectionObserver.unsubscribe(results, emptyListener);
+        assertEquals(1, SharedCollectionObserver.getSubscriberCount(results));
+        SharedCollectionObserver.unsubscribe(results, emptyListener);
+        assertEquals(0, SharedCollectionObserver.getSubscriberCount(results));
+    }
+
+    @Test
+    @UiThreadTest
+    public void subscribe_equalCollectionsAreObservedSeparately() {
+        RealmResults<AllJavaTypes> results1 = realm.where(AllJavaTypes.class).findAll();
+        RealmResults<AllJavaTypes> results2 = realm.where(AllJavaTypes.class).findAll();
+
+        SharedCollectionObserver.subscribe(results1, emptyListener);
+        assertEquals(1, SharedCollectionObserver.getSubscriberCount(results1));
+        assertEquals(0, SharedCollectionObserver.getSubscriberCount(results2));
+        SharedCollectionObserver.unsubscribe(results1, emptyListener);
+    }
+
+    @Test
+    @UiThreadTest
+    public void subscribe_unsupportedCollectionThrows() {
+        RealmResults<AllJavaTypes> results = realm.where(AllJavaTypes.class).findAll();
+        try {
+            SharedCollectionObserver.subscribe(results.createSnapshot(), emptyListener);
+            fail("Should throw exception if there is unsupported collection");
+        } catch (IllegalArgumentException ignore) {
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void unsubscribe_unknownListenerIsIgnored() {
+        RealmResults<AllJavaTypes> results = realm.where(AllJavaTypes.class).findAll();
+        SharedCollectionObserver.unsubscribe(results, emptyListener);
+        assertEquals(0, SharedCollectionObserver.getSubscriberCount(results));
+    }
+
+    @Test
+    @UiThreadTest
+    public void adapters_shareOneSubscriptionEntry() {
+        RealmResults<AllJavaTypes> results = realm.where(AllJavaTypes.class).findAll();
+        RecyclerView recyclerView = new RecyclerView(context);
+        RecyclerViewTestAdapter recyclerAdapter = new RecyclerViewTestAdapter(context, results, true);
+        recyclerAdapter.onAttachedToRecyclerView(recyclerView);
+        ListViewTestAdapter listAdapter = new ListViewTestAdapter(context, results);
+        assertEquals(2, SharedCollectionObserver.getSubscriberCount(results));
+
+        recyclerAdapter.onDetachedFromRecyclerView(recyclerView);
+        assertEquals(1, SharedCollectionObserver.getSubscriberCount(results));
+
+        listAdapter.updateData(null);
+        assertEquals(0, SharedCollectionObserver.getSubscriberCount(results));
+    }
+
+    @Test
+    @UiThreadTest
+    public void closingRealm_dropsSubscriptions() {
+        RealmResults<AllJavaTypes> results = realm.where(AllJavaTypes.class).findAll();
+        new RecyclerView(context).setAdapter(new RecyclerViewTestAdapter(context, results, true));
+        new ListViewTestAdapter(context, realm.where(AllJavaTypes.class).findAll());
+        assertEquals(2, SharedCollectionObserver.getObservedCollectionCount());
+
+        // Neither adapter unsubscribes, the registry must not retain them once the Realm is closed.
+        realm.close();
+        realm = null;
+        assertEquals(0, SharedCollectionObserver.getObservedCollectionCount());
+    }
+}